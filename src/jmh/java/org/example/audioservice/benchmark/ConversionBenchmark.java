@@ -0,0 +1,81 @@
+package org.example.audioservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.library.FFmpegWrapper;
+import org.example.audioservice.library.PcmWavTranscoder;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FFmpegWrapper#convertAudio} of a 5 second stereo WAV to the wav or flac config, 48k
+ * for wav and 44.1k for flac, which is only written in process at the source rate. The
+ * {@code ffmpeg} engine forks the stub binary from {@code tools/fake-ffmpeg} (set through
+ * {@code audio.ffmpeg.path}), which only copies the file, so it measures the cost of forking
+ * a process per conversion. The {@code pcm} engine resamples and encodes in the JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"ffmpeg", "pcm"})
+    public String engine;
+
+    @Param({"wav", "flac"})
+    public String format;
+
+    private Path workDir;
+    private File input;
+    private Path output;
+    private FFmpegWrapper ffmpegWrapper;
+
+    @Setup
+    public void setup() throws Exception {
+        workDir = Files.createTempDirectory("conversion-benchmark");
+        int sampleRate = "flac".equals(format) ? 44100 : 48000;
+        input = writeWav(workDir.resolve("source.wav"), sampleRate, 2, 5 * sampleRate).toFile();
+        output = workDir.resolve("converted." + format);
+        ffmpegWrapper = new FFmpegWrapper(new AudioFormatConstants(), new PcmWavTranscoder(), "pcm".equals(engine),
+                new AudioMetrics(new SimpleMeterRegistry()), System.getProperty("audio.ffmpeg.path", "tools/fake-ffmpeg"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() throws Exception {
+        Files.deleteIfExists(output);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(input.toPath());
+        Files.deleteIfExists(workDir);
+    }
+
+    @Benchmark
+    public File convert() {
+        return ffmpegWrapper.convertAudio(input, format, output, null);
+    }
+
+    private static Path writeWav(Path path, int sampleRate, int channels, int frames) throws Exception {
+        int dataLength = frames * channels * 2;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataLength).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataLength);
+        for (int i = 0; i < frames * channels; i++) {
+            wav.putShort((short) (Math.sin(i / 20.0) * 8000));
+        }
+        return Files.write(path, wav.array());
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.audioservice.benchmark;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.util.FileStreamUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a download into the response for clip sizes up to the upload limit, as a
+ * full body and as a range in the middle of the clip. The response discards the bytes,
+ * so what is measured is the copy out of the file, not a client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DownloadBenchmark {
+
+    @Param({"102400", "1048576", "9437184"})
+    public int size;
+
+    private Path clip;
+    private FileDownloadDTO download;
+
+    @Setup
+    public void setup() throws Exception {
+        clip = Files.createTempFile("download-benchmark", ".mp3");
+        Files.write(clip, new byte[size]);
+        download = FileDownloadDTO.builder()
+                .fileName("clip.mp3")
+                .file(clip)
+                .contentLength(size)
+                .lastModified(Files.getLastModifiedTime(clip).toMillis())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(clip);
+    }
+
+    @Benchmark
+    public long fullBody() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/audio/user/1/phrase/2/mp3");
+        return FileStreamUtils.writeFile(request, new DiscardingResponse(), download, MediaType.valueOf("audio/mpeg"));
+    }
+
+    @Benchmark
+    public long range() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/audio/user/1/phrase/2/mp3");
+        request.addHeader(HttpHeaders.RANGE, "bytes=" + size / 4 + "-" + (size / 2));
+        return FileStreamUtils.writeFile(request, new DiscardingResponse(), download, MediaType.valueOf("audio/mpeg"));
+    }
+
+    private static class DiscardingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream discard = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return discard;
+        }
+    }
+}
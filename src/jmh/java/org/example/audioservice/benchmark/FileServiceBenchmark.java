@@ -0,0 +1,114 @@
+package org.example.audioservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.cache.HotClipCache;
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.ingest.IngestPipeline;
+import org.example.audioservice.library.FFmpegWrapper;
+import org.example.audioservice.library.FFprobeWrapper;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.repository.PhraseManifestRepository;
+import org.example.audioservice.service.ConversionQueue;
+import org.example.audioservice.service.ConversionScheduler;
+import org.example.audioservice.service.FileService;
+import org.example.audioservice.service.PhraseManifestService;
+import org.example.audioservice.service.TranscodeSourcePlanner;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.DerivativeAccessTracker;
+import org.example.audioservice.storage.LocalStorageBackend;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link FileService#getAudioFile} when the requested format exists, served from the phrase
+ * files cache or resolved through the repository on every call. Repositories are stubbed,
+ * the file is real so the stat of the serve path is included, unless the hot clip cache
+ * ({@code hotClips} above 0) holds its bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileServiceBenchmark {
+
+    @Param({"0", "64MB"})
+    public String hotClips;
+
+    private FileService fileService;
+    private PhraseFilesCache phraseFilesCache;
+    private ConversionScheduler conversionScheduler;
+    private Path audioFile;
+
+    @Setup
+    public void setup() throws Exception {
+        audioFile = Files.createTempFile("benchmark", ".mp3");
+        Files.write(audioFile, new byte[64 * 1024]);
+
+        FileEntity original = FileEntity.builder()
+                .id(1L)
+                .userId(100L)
+                .phraseId(200L)
+                .fileName("benchmark.mp3")
+                .filePath(audioFile.toString())
+                .format("mp3")
+                .groupId(1L)
+                .createdAt(1L)
+                .build();
+
+        FileRepository fileRepository = mock(FileRepository.class);
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L)).thenReturn(Optional.of(original));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 1L)).thenReturn(List.of(original));
+
+        PhraseManifestService phraseManifestService = new PhraseManifestService(fileRepository, mock(PhraseManifestRepository.class),
+                mock(PlatformTransactionManager.class));
+        phraseFilesCache = new PhraseFilesCache(phraseManifestService, Optional.empty(), 10_000, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        conversionScheduler = new ConversionScheduler(1, 16, 16, 5);
+        BlobStore blobStore = mock(BlobStore.class);
+        LocalStorageBackend storageBackend = new LocalStorageBackend(audioFile.getParent().toString());
+        fileService = new FileService(fileRepository, mock(FFmpegWrapper.class), conversionScheduler,
+                mock(ApplicationEventPublisher.class), phraseFilesCache, phraseManifestService,
+                new IngestPipeline(64 * 1024), blobStore, new AudioMetrics(new SimpleMeterRegistry()),
+                new DerivativeAccessTracker(mock(BlobRepository.class)), storageBackend,
+                new TranscodeSourcePlanner(blobStore, storageBackend, new AudioFormatConstants()),
+                new FFprobeWrapper(false, ""), new AudioFormatConstants(),
+                new HotClipCache(DataSize.parse(hotClips), DataSize.ofMegabytes(1), 2, Duration.ofMinutes(10)),
+                mock(ConversionQueue.class));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        conversionScheduler.shutdown();
+        Files.deleteIfExists(audioFile);
+    }
+
+    @Benchmark
+    public FileDownloadDTO cachedHit() {
+        return fileService.getAudioFile(100L, 200L, "mp3");
+    }
+
+    @Benchmark
+    public FileDownloadDTO repositoryHit() {
+        phraseFilesCache.evictLocal(new PhraseKey(100L, 200L));
+        return fileService.getAudioFile(100L, 200L, "mp3");
+    }
+}
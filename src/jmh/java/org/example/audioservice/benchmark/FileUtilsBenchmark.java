@@ -0,0 +1,60 @@
+package org.example.audioservice.benchmark;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.util.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Format lookups run on every upload and download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileUtilsBenchmark {
+
+    @Param({"mp3", "wav", "flac", "opus"})
+    public String format;
+
+    private String mimeType;
+    private MockMultipartFile upload;
+    private AudioFormatConstants audioFormatConstants;
+
+    @Setup
+    public void setup() {
+        mimeType = FileUtils.getMimeTypeFromExtension(format);
+        upload = new MockMultipartFile("file", "clip." + format, mimeType, new byte[1024]);
+        audioFormatConstants = new AudioFormatConstants();
+    }
+
+    @Benchmark
+    public String mimeTypeFromExtension() {
+        return FileUtils.getMimeTypeFromExtension(format);
+    }
+
+    @Benchmark
+    public String extensionFromMimeType() {
+        return FileUtils.getExtensionFromMimeType(mimeType);
+    }
+
+    @Benchmark
+    public MediaType audioMediaType() {
+        return FileUtils.getAudioMediaType(format);
+    }
+
+    @Benchmark
+    public String validateAudioFile() {
+        return FileUtils.validateAudioFile(upload);
+    }
+
+    @Benchmark
+    public AudioFormatConstants.AudioConfig audioConfig() {
+        return audioFormatConstants.getConfig(format);
+    }
+}
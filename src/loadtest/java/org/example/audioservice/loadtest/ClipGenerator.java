@@ -0,0 +1,104 @@
+package org.example.audioservice.loadtest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic synthetic clips in the six supported formats. WAV is real PCM (a seeded tone).
+ * The compressed formats carry their container magic followed by seeded filler sized to the
+ * format's bitrate, which is enough for the upload checks and the fake ffmpeg. When a real
+ * ffmpeg is given the WAV is encoded with it instead, producing playable clips.
+ */
+public class ClipGenerator {
+
+    public static final List<String> FORMATS = List.of("mp3", "wav", "ogg", "aac", "flac", "opus");
+
+    private final Path ffmpeg;
+
+    /**
+     * @param ffmpeg real ffmpeg binary to encode clips with, null for synthetic containers
+     */
+    public ClipGenerator(Path ffmpeg) {
+        this.ffmpeg = ffmpeg;
+    }
+
+    public byte[] generate(String format, double seconds, long seed) throws IOException {
+        byte[] wav = wav(seconds, 44100, 2, seed);
+        if ("wav".equals(format)) {
+            return wav;
+        }
+        if (ffmpeg != null) {
+            return encode(wav, format);
+        }
+
+        Random random = new Random(seed);
+        int kbps = switch (format) {
+            case "mp3" -> 192;
+            case "aac" -> 128;
+            case "opus" -> 96;
+            case "ogg" -> 160;
+            default -> 700; // flac
+        };
+        byte[] clip = new byte[(int) Math.max(64, seconds * kbps * 1000 / 8)];
+        random.nextBytes(clip);
+        byte[] magic = switch (format) {
+            case "mp3" -> "ID3\u0004\u0000\u0000\u0000\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1);
+            case "aac" -> new byte[]{(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80};
+            case "flac" -> "fLaC".getBytes(StandardCharsets.US_ASCII);
+            default -> "OggS".getBytes(StandardCharsets.US_ASCII);
+        };
+        System.arraycopy(magic, 0, clip, 0, magic.length);
+        byte[] codecHeader = ("opus".equals(format) ? "OpusHead" : "\u0001vorbis").getBytes(StandardCharsets.ISO_8859_1);
+        if (format.equals("opus") || format.equals("ogg")) {
+            System.arraycopy(codecHeader, 0, clip, 28, codecHeader.length);
+        }
+        return clip;
+    }
+
+    static byte[] wav(double seconds, int sampleRate, int channels, long seed) {
+        int frames = (int) (seconds * sampleRate);
+        int dataLength = frames * channels * 2;
+        double frequency = 220 + new Random(seed).nextInt(660);
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataLength).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        wav.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        wav.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataLength);
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * frequency * i / sampleRate) * 8000);
+            for (int c = 0; c < channels; c++) {
+                wav.putShort(sample);
+            }
+        }
+        return wav.array();
+    }
+
+    private byte[] encode(byte[] wav, String format) throws IOException {
+        Path input = Files.createTempFile("clip", ".wav");
+        Path output = Files.createTempFile("clip", "." + format);
+        try {
+            Files.write(input, wav);
+            Process process = new ProcessBuilder(ffmpeg.toString(), "-y", "-loglevel", "error", "-i", input.toString(), output.toString())
+                    .redirectErrorStream(true)
+                    .start();
+            process.getInputStream().transferTo(System.err);
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("ffmpeg failed to encode a " + format + " clip");
+            }
+            return Files.readAllBytes(output);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+}
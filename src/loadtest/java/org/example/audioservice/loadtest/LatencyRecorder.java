@@ -0,0 +1,61 @@
+package org.example.audioservice.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latencies and outcomes of one request kind. Samples are kept in a growing long array,
+ * sorted once when the report is built.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private int errors;
+    private int rejected;
+
+    public synchronized void record(long nanos, boolean error, boolean rejectedByServer) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (rejectedByServer) {
+            rejected++;
+        } else if (error) {
+            errors++;
+        }
+    }
+
+    public synchronized Map<String, Object> summary(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("throughput_rps", round(count / elapsedSeconds));
+        summary.put("error_rate", count == 0 ? 0.0 : round((double) errors / count));
+        summary.put("rejected_rate", count == 0 ? 0.0 : round((double) rejected / count));
+        summary.put("p50_ms", millis(percentile(sorted, 0.50)));
+        summary.put("p90_ms", millis(percentile(sorted, 0.90)));
+        summary.put("p99_ms", millis(percentile(sorted, 0.99)));
+        summary.put("max_ms", millis(count == 0 ? 0 : sorted[count - 1]));
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,311 @@
+package org.example.audioservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open model load generator for the audio endpoints. Requests start at a fixed rate whatever
+ * the response times, drawn from a weighted mix of:
+ * <ul>
+ *     <li>{@code upload}: a new clip for a new phrase, sent as a raw audio body</li>
+ *     <li>{@code hit}: download of an uploaded phrase in the format it was uploaded in</li>
+ *     <li>{@code convert}: first download of an uploaded phrase in another format</li>
+ *     <li>{@code missing}: download of a phrase that was never uploaded, 404 expected</li>
+ * </ul>
+ * Options are given as {@code --name=value}, see {@link #main}. Prints p50/p90/p99 latency,
+ * throughput, error and rejection rates per kind and writes them as JSON.
+ */
+public class LoadTestDriver {
+
+    private static final long FIRST_PHRASE_ID = 1_000;
+    private static final long MISSING_PHRASE_ID = 900_000_000L;
+
+    private record Uploaded(long userId, long phraseId, String format, Set<String> requested) {
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ClipGenerator clipGenerator;
+    private final double clipSeconds;
+    private final int users;
+    // request kinds, formats and users are drawn from one seeded sequence so runs repeat
+    private final Random random;
+    private final Map<String, byte[]> clips = new HashMap<>();
+    private final List<Uploaded> uploaded = new CopyOnWriteArrayList<>();
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private final AtomicLong nextPhraseId = new AtomicLong(FIRST_PHRASE_ID);
+    private final AtomicLong nextMissingId = new AtomicLong(MISSING_PHRASE_ID);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    LoadTestDriver(String baseUrl, ClipGenerator clipGenerator, double clipSeconds, int users, long seed, ExecutorService executor) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        this.clipGenerator = clipGenerator;
+        this.clipSeconds = clipSeconds;
+        this.users = users;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Options, with defaults:
+     * {@code --base-url=http://localhost:8080 --rate=20 --duration=30 --seed-uploads=20
+     * --mix=upload=10,hit=60,convert=20,missing=10 --clip-seconds=2 --users=10 --seed=42
+     * --max-in-flight=256 --ffmpeg= --report=target/loadtest-report.json}
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int seedUploads = Integer.parseInt(options.getOrDefault("seed-uploads", "20"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "upload=10,hit=60,convert=20,missing=10"));
+        double clipSeconds = Double.parseDouble(options.getOrDefault("clip-seconds", "2"));
+        int users = Integer.parseInt(options.getOrDefault("users", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "256"));
+        String ffmpeg = options.getOrDefault("ffmpeg", "");
+        Path report = Paths.get(options.getOrDefault("report", "target/loadtest-report.json"));
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ClipGenerator clipGenerator = new ClipGenerator(ffmpeg.isBlank() ? null : Paths.get(ffmpeg));
+            LoadTestDriver driver = new LoadTestDriver(baseUrl, clipGenerator, clipSeconds, users, seed, executor);
+            driver.prepareClips();
+            driver.seed(seedUploads);
+
+            System.out.printf("loadtest|start|rate=%.1f/s, duration=%ds, mix=%s, base-url=%s%n", rate, duration, mix, baseUrl);
+            long start = System.nanoTime();
+            long period = (long) (1_000_000_000L / rate);
+            ticker.scheduleAtFixedRate(() -> {
+                try {
+                    driver.fire(driver.pick(mix), maxInFlight);
+                } catch (RuntimeException e) {
+                    // an exception would cancel the schedule
+                    System.err.printf("loadtest|fire failed, error=%s%n", e);
+                }
+            }, 0, period, TimeUnit.NANOSECONDS);
+            ticker.awaitTermination(duration, TimeUnit.SECONDS);
+            ticker.shutdownNow();
+
+            // let requests already started finish, they are part of the run
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (driver.inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+                Thread.sleep(50);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            driver.report(elapsed, rate, duration, mix, report);
+        } finally {
+            ticker.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    void prepareClips() throws Exception {
+        for (String format : ClipGenerator.FORMATS) {
+            clips.put(format, clipGenerator.generate(format, clipSeconds, format.hashCode()));
+        }
+    }
+
+    void seed(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            PreparedRequest upload = uploadRequest(randomFormat());
+            HttpResponse<Void> response = client.send(upload.request(), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != upload.expectedStatus()) {
+                throw new IllegalStateException("Seed upload failed with status " + response.statusCode());
+            }
+            upload.onSuccess().run();
+        }
+        System.out.printf("loadtest|seeded uploads=%d%n", uploaded.size());
+    }
+
+    private record PreparedRequest(String kind, HttpRequest request, int expectedStatus, Runnable onSuccess) {
+    }
+
+    private void fire(String kind, int maxInFlight) {
+        if (inFlight.get() >= maxInFlight) {
+            // the client is saturated, starting more would measure the driver
+            dropped.incrementAndGet();
+            return;
+        }
+        if (uploaded.isEmpty() && ("hit".equals(kind) || "convert".equals(kind))) {
+            kind = "upload"; // nothing to download yet
+        }
+        PreparedRequest prepared = switch (kind) {
+            case "upload" -> uploadRequest(randomFormat());
+            case "hit" -> hitRequest();
+            case "convert" -> convertRequest();
+            default -> missingRequest();
+        };
+
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        client.sendAsync(prepared.request(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            boolean rejected = response != null && (response.statusCode() == 429 || response.statusCode() == 503);
+            boolean ok = response != null && response.statusCode() == prepared.expectedStatus();
+            if (ok && prepared.onSuccess() != null) {
+                prepared.onSuccess().run();
+            }
+            recorders.computeIfAbsent(prepared.kind(), k -> new LatencyRecorder()).record(elapsed, !ok, rejected);
+        });
+    }
+
+    private PreparedRequest uploadRequest(String format) {
+        long userId = 1 + random.nextInt(users);
+        long phraseId = nextPhraseId.getAndIncrement();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/v1/audio/user/" + userId + "/phrase/" + phraseId
+                        + "?fileName=clip." + format))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", mimeType(format))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(clips.get(format)))
+                .build();
+        Set<String> requested = ConcurrentHashMap.newKeySet();
+        requested.add(format);
+        return new PreparedRequest("upload", request, 200, () -> uploaded.add(new Uploaded(userId, phraseId, format, requested)));
+    }
+
+    private PreparedRequest hitRequest() {
+        Uploaded phrase = uploaded.get(random.nextInt(uploaded.size()));
+        return new PreparedRequest("hit", download(phrase.userId(), phrase.phraseId(), phrase.format()), 200, null);
+    }
+
+    private PreparedRequest convertRequest() {
+        // a format this phrase has not been asked for yet, a hit once all were converted
+        for (int attempt = 0; attempt < 8; attempt++) {
+            Uploaded phrase = uploaded.get(random.nextInt(uploaded.size()));
+            for (String format : ClipGenerator.FORMATS) {
+                if (phrase.requested().add(format)) {
+                    return new PreparedRequest("convert", download(phrase.userId(), phrase.phraseId(), format), 200, null);
+                }
+            }
+        }
+        return hitRequest();
+    }
+
+    private PreparedRequest missingRequest() {
+        long userId = 1 + random.nextInt(users);
+        return new PreparedRequest("missing", download(userId, nextMissingId.getAndIncrement(), "mp3"), 404, null);
+    }
+
+    private HttpRequest download(long userId, long phraseId, String format) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/v1/audio/user/" + userId + "/phrase/" + phraseId + "/" + format))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private void report(double elapsed, double rate, int duration, Map<String, Integer> mix, Path report) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("base_url", baseUrl);
+        result.put("target_rate_rps", rate);
+        result.put("duration_s", duration);
+        result.put("elapsed_s", Math.round(elapsed * 1000) / 1000.0);
+        result.put("mix", mix);
+        result.put("dropped", dropped.get());
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%n%-8s %9s %9s %8s %8s %9s %9s %9s %9s%n",
+                "kind", "requests", "rps", "errors", "rejected", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (String kind : List.of("upload", "hit", "convert", "missing")) {
+            LatencyRecorder recorder = recorders.get(kind);
+            if (recorder == null) {
+                continue;
+            }
+            Map<String, Object> summary = recorder.summary(elapsed);
+            endpoints.put(kind, summary);
+            System.out.printf("%-8s %9s %9s %8s %8s %9s %9s %9s %9s%n", kind,
+                    summary.get("requests"), summary.get("throughput_rps"), summary.get("error_rate"), summary.get("rejected_rate"),
+                    summary.get("p50_ms"), summary.get("p90_ms"), summary.get("p99_ms"), summary.get("max_ms"));
+        }
+        result.put("endpoints", endpoints);
+        if (dropped.get() > 0) {
+            System.out.printf("loadtest|client saturated, dropped=%d requests%n", dropped.get());
+        }
+
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(report.toFile(), result);
+        System.out.printf("loadtest|report written to %s%n", report.toAbsolutePath());
+    }
+
+    private String pick(Map<String, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty request mix");
+    }
+
+    private String randomFormat() {
+        return ClipGenerator.FORMATS.get(random.nextInt(ClipGenerator.FORMATS.size()));
+    }
+
+    private static String mimeType(String format) {
+        return switch (format) {
+            case "mp3" -> "audio/mpeg";
+            default -> "audio/" + format;
+        };
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            if (entry.length != 2 || !List.of("upload", "hit", "convert", "missing").contains(entry[0])) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            int weight = Integer.parseInt(entry[1]);
+            if (weight > 0) {
+                weights.put(entry[0], weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Empty request mix: " + mix);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.audioservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Bytes of the most downloaded small files, keyed by file id, so their downloads need no
+ * storage read at all. A file row's content never changes, so an entry never goes stale.
+ * The bytes are held in direct buffers outside the heap and weighed by their size, Caffeine
+ * keeps the total under {@code audio.cache.clips.max-size} with its TinyLFU policy. A file
+ * is only loaded on its {@code audio.cache.clips.admit-after}th request, so one-off downloads
+ * never cost a buffer. Entries of a phrase are dropped once a newer group is seen for it.
+ */
+@Component
+public class HotClipCache {
+
+    private static final Logger Log = LoggerFactory.getLogger(HotClipCache.class);
+    private static final int READ_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Cached content of one file. The buffer is shared, every read works on a duplicate.
+     */
+    public record Clip(ByteBuffer bytes, PhraseKey phrase, long groupId, long lastModified) {
+
+        public long size() {
+            return bytes.capacity();
+        }
+
+        public StorageBackend.RangeReader reader() {
+            return (offset, count) -> new ByteBufferInputStream(bytes.duplicate()
+                    .position((int) offset)
+                    .limit((int) Math.min(bytes.capacity(), offset + count)));
+        }
+    }
+
+    private final boolean enabled;
+    private final long maxClipBytes;
+    private final int admitAfter;
+    private final Cache<Long, Clip> clips;
+    // requests seen per file not admitted yet, bounded so it cannot grow with the catalogue
+    private final Cache<Long, Integer> candidates;
+    private final ConcurrentMap<PhraseKey, Set<Long>> clipsByPhrase = new ConcurrentHashMap<>();
+
+    public HotClipCache(@Value("${audio.cache.clips.max-size:64MB}") DataSize maxSize,
+                        @Value("${audio.cache.clips.max-clip-size:1MB}") DataSize maxClipSize,
+                        @Value("${audio.cache.clips.admit-after:2}") int admitAfter,
+                        @Value("${audio.cache.clips.admission-window:10m}") Duration admissionWindow) {
+        this.enabled = maxSize.toBytes() > 0;
+        this.maxClipBytes = Math.min(maxClipSize.toBytes(), Integer.MAX_VALUE);
+        this.admitAfter = Math.max(1, admitAfter);
+        this.clips = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long fileId, Clip clip) -> clip.bytes().capacity())
+                // keeps the phrase index in step on the removing thread
+                .executor(Runnable::run)
+                .removalListener((Long fileId, Clip clip, RemovalCause cause) -> {
+                    // a replaced clip is of the same file, which stays indexed
+                    if (cause != RemovalCause.REPLACED) {
+                        unindex(fileId, clip);
+                    }
+                })
+                .recordStats()
+                .build();
+        this.candidates = Caffeine.newBuilder()
+                .maximumSize(Math.max(1_000, maxSize.toBytes() / 16_384))
+                .expireAfterWrite(admissionWindow)
+                .build();
+    }
+
+    /**
+     * The cached content of the file, null when it is not cached.
+     */
+    public Clip get(Long fileId) {
+        if (!enabled || fileId == null) {
+            return null;
+        }
+        return clips.getIfPresent(fileId);
+    }
+
+    /**
+     * Counts a request for a file that was not cached and loads it once it was requested often
+     * enough. Returns the loaded clip, or null when the file is not admitted or cannot be read.
+     */
+    public Clip admit(FileEntity file, long size, long lastModified, StorageBackend.RangeReader source) {
+        if (!enabled || file.getId() == null || size <= 0 || size > maxClipBytes) {
+            return null;
+        }
+        Integer seen = candidates.asMap().merge(file.getId(), 1, Integer::sum);
+        if (seen < admitAfter) {
+            return null;
+        }
+        candidates.invalidate(file.getId());
+
+        ByteBuffer bytes = ByteBuffer.allocateDirect((int) size);
+        try (InputStream in = source.open(0, size)) {
+            byte[] chunk = new byte[READ_CHUNK_SIZE];
+            int read;
+            while (bytes.hasRemaining() && (read = in.read(chunk, 0, Math.min(chunk.length, bytes.remaining()))) != -1) {
+                bytes.put(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            Log.warn("hot_clip_cache|failed to load file={}, error={}", file.getId(), e.getMessage());
+            return null;
+        }
+        if (bytes.hasRemaining()) {
+            Log.warn("hot_clip_cache|short read of file={}, expected={}, read={}", file.getId(), size, bytes.position());
+            return null;
+        }
+        bytes.flip();
+
+        PhraseKey phrase = new PhraseKey(file.getUserId(), file.getPhraseId());
+        Clip clip = new Clip(bytes.asReadOnlyBuffer(), phrase, file.getGroupId(), lastModified);
+        clipsByPhrase.computeIfAbsent(phrase, key -> ConcurrentHashMap.newKeySet()).add(file.getId());
+        clips.put(file.getId(), clip);
+        Log.info("hot_clip_cache|admitted file={}, bytes={}", file.getId(), size);
+        return clip;
+    }
+
+    /**
+     * Drops the cached files of the phrase that belong to groups older than the current one.
+     */
+    public void expireOlderGroups(Long userId, Long phraseId, long currentGroupId) {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> fileIds = clipsByPhrase.get(new PhraseKey(userId, phraseId));
+        if (fileIds == null) {
+            return;
+        }
+        for (Long fileId : fileIds) {
+            // a map read, so the check is not counted as a cache hit
+            Clip clip = clips.asMap().get(fileId);
+            if (clip == null) {
+                fileIds.remove(fileId);
+            } else if (clip.groupId() < currentGroupId) {
+                clips.invalidate(fileId);
+            }
+        }
+    }
+
+    /**
+     * Bytes held by the cached clips.
+     */
+    public long weightedSize() {
+        return clips.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    public Cache<Long, Clip> getCache() {
+        return clips;
+    }
+
+    private void unindex(Long fileId, Clip clip) {
+        if (fileId == null || clip == null) {
+            return;
+        }
+        clipsByPhrase.computeIfPresent(clip.phrase(), (phrase, fileIds) -> {
+            fileIds.remove(fileId);
+            return fileIds.isEmpty() ? null : fileIds;
+        });
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.audioservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.audioservice.config.ReadRouting;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.service.PhraseManifestService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of {@link PhraseFiles} keyed by user and phrase. A bounded in-process
+ * map is consulted first, then redis when enabled, then the phrase manifest. Writers call
+ * {@link #invalidate} after saving a file, which is broadcast to the other nodes. A load that
+ * raced with an invalidation of its phrase is returned but not cached, on this node or in
+ * redis. A phrase
+ * invalidated within {@code audio.datasource.replica.sticky-for} is loaded from the primary,
+ * a read replica may not have the write yet. With redis every load is, the invalidation of
+ * another node's write may not have reached this node when it fills the shared level.
+ */
+@Component
+public class PhraseFilesCache {
+
+    private final PhraseManifestService phraseManifestService;
+    private final RedisPhraseFilesStore redisStore;
+    private final Cache<PhraseKey, PhraseFiles> local;
+    // sequence of invalidations, the phrases invalidated within the local ttl keep their last one
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Cache<PhraseKey, Long> invalidatedAt;
+    private final Cache<PhraseKey, Boolean> recentlyWritten;
+
+    public PhraseFilesCache(PhraseManifestService phraseManifestService,
+                            Optional<RedisPhraseFilesStore> redisStore,
+                            @Value("${audio.cache.local.max-entries:10000}") long maxEntries,
+                            @Value("${audio.cache.local.ttl:5m}") Duration ttl,
+                            @Value("${audio.datasource.replica.sticky-for:5s}") Duration primaryReadsAfterWrite) {
+        this.phraseManifestService = phraseManifestService;
+        this.redisStore = redisStore.orElse(null);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.invalidatedAt = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.recentlyWritten = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(primaryReadsAfterWrite)
+                .build();
+    }
+
+    /**
+     * Returns the current group of the phrase, or empty when nothing was uploaded for it.
+     */
+    public Optional<PhraseFiles> get(Long userId, Long phraseId) {
+        PhraseKey key = new PhraseKey(userId, phraseId);
+
+        PhraseFiles cached = local.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long seen = invalidations.get();
+        PhraseFiles loaded = null;
+        String sharedVersion = null;
+        if (redisStore != null) {
+            RedisPhraseFilesStore.Entry shared = redisStore.get(key);
+            loaded = shared.phraseFiles();
+            sharedVersion = shared.version();
+        }
+        boolean fromRedis = loaded != null;
+        if (loaded == null) {
+            // a load that fills the shared level is read on the primary, a replica that has not
+            // received another node's write yet would hand its previous group to every node
+            loaded = redisStore != null || recentlyWritten.getIfPresent(key) != null
+                    ? ReadRouting.onPrimary(() -> phraseManifestService.resolve(userId, phraseId)).orElse(null)
+                    : phraseManifestService.resolve(userId, phraseId).orElse(null);
+        }
+        if (loaded == null) {
+            return Optional.empty();
+        }
+
+        // checked and written under the key's lock, an invalidation cannot slip in between
+        PhraseFiles result = loaded;
+        boolean kept = local.asMap().compute(key, (k, current) -> invalidatedSince(k, seen) ? current : result) == result;
+        if (kept && redisStore != null && !fromRedis) {
+            redisStore.put(key, loaded, sharedVersion);
+        }
+        return Optional.of(loaded);
+    }
+
+    /**
+     * Drops the phrase from every level, on this node and, through redis, on the others.
+     */
+    public void invalidate(Long userId, Long phraseId) {
+        PhraseKey key = new PhraseKey(userId, phraseId);
+        evictLocal(key);
+        if (redisStore != null) {
+            redisStore.invalidate(key);
+        }
+    }
+
+    /**
+     * Drops the local copy only, used for invalidations received from other nodes.
+     */
+    public void evictLocal(PhraseKey key) {
+        // marked before the stamp, a load that sees the stamp also reads from the primary
+        recentlyWritten.put(key, Boolean.TRUE);
+        local.asMap().compute(key, (k, current) -> {
+            invalidatedAt.put(k, invalidations.incrementAndGet());
+            return null;
+        });
+    }
+
+    private boolean invalidatedSince(PhraseKey key, long seen) {
+        Long stamp = invalidatedAt.getIfPresent(key);
+        return stamp != null && stamp > seen;
+    }
+
+    public Cache<PhraseKey, PhraseFiles> getLocalCache() {
+        return local;
+    }
+}
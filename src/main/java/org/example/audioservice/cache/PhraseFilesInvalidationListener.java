@@ -0,0 +1,89 @@
+package org.example.audioservice.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.example.audioservice.dto.PhraseKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Subscribes to the invalidations published by {@link RedisPhraseFilesStore} and drops the
+ * matching local entries. Subscribing happens in the background once the application is
+ * ready and is retried, so an unreachable redis does not fail the boot.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.cache.redis.enabled", havingValue = "true")
+public class PhraseFilesInvalidationListener {
+
+    private static final Logger Log = LoggerFactory.getLogger(PhraseFilesInvalidationListener.class);
+
+    private final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    private final PhraseFilesCache phraseFilesCache;
+    private final Duration retryInterval;
+    private volatile Thread subscriber;
+
+    public PhraseFilesInvalidationListener(RedisConnectionFactory connectionFactory, PhraseFilesCache phraseFilesCache,
+                                           @Value("${audio.cache.redis.subscribe-retry-interval:5s}") Duration retryInterval) {
+        this.phraseFilesCache = phraseFilesCache;
+        this.retryInterval = retryInterval;
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> onMessage(message),
+                new ChannelTopic(RedisPhraseFilesStore.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        subscriber = new Thread(this::subscribeWithRetry, "phrase-files-invalidation-subscriber");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (subscriber != null) {
+            subscriber.interrupt();
+        }
+        container.destroy();
+    }
+
+    private void onMessage(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            phraseFilesCache.evictLocal(PhraseKey.parse(body));
+        } catch (IllegalArgumentException e) {
+            Log.warn("phrase_files_invalidation|ignoring message={}", body);
+        }
+    }
+
+    private void subscribeWithRetry() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                container.start();
+                Log.info("phrase_files_invalidation|subscribed channel={}", RedisPhraseFilesStore.INVALIDATION_CHANNEL);
+                return;
+            } catch (RuntimeException e) {
+                // until subscribed, local entries only expire through their ttl
+                Log.warn("phrase_files_invalidation|subscribe failed, retrying in {} error={}", retryInterval, e.getMessage());
+                container.stop();
+            }
+
+            try {
+                Thread.sleep(retryInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.audioservice.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.dto.PhraseKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Shared second level of the phrase files cache. Every call degrades to a miss
+ * when redis is unavailable, the database stays the source of truth. Each phrase has a
+ * version bumped on invalidation, an entry loaded from the database is only written while
+ * the version is the one read before the load, so a node that read the old manifest cannot
+ * bring it back after another node's invalidation.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.cache.redis.enabled", havingValue = "true")
+public class RedisPhraseFilesStore {
+
+    public static final String INVALIDATION_CHANNEL = "audio:phrase-files:invalidate";
+    private static final String KEY_PREFIX = "audio:phrase-files:";
+    private static final String VERSION_PREFIX = "audio:phrase-files:version:";
+
+    // sets the entry only when the version still matches, a missing version reads as ""
+    private static final RedisScript<Long> PUT_IF_VERSION = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then return 0 end " +
+                    "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1", Long.class);
+
+    private static final Logger Log = LoggerFactory.getLogger(RedisPhraseFilesStore.class);
+
+    /**
+     * A shared entry, null when absent, and the phrase's version when it was read.
+     */
+    public record Entry(PhraseFiles phraseFiles, String version) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public RedisPhraseFilesStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                 @Value("${audio.cache.redis.ttl:30m}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    /**
+     * The shared entry of the phrase, with its version to pass to {@link #put}. Both are
+     * null when redis cannot be read.
+     */
+    public Entry get(PhraseKey key) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(KEY_PREFIX + key.asString(), VERSION_PREFIX + key.asString()));
+            String json = values != null ? values.get(0) : null;
+            String version = values != null && values.get(1) != null ? values.get(1) : "";
+            return new Entry(json != null ? objectMapper.readValue(json, PhraseFiles.class) : null, version);
+        } catch (JsonProcessingException e) {
+            Log.warn("redis_phrase_files|unreadable entry key={}, error={}", key.asString(), e.getMessage());
+            return new Entry(null, null);
+        } catch (RuntimeException e) {
+            Log.warn("redis_phrase_files|get failed key={}, error={}", key.asString(), e.getMessage());
+            return new Entry(null, null);
+        }
+    }
+
+    /**
+     * Writes the entry unless the phrase was invalidated since its version was read.
+     */
+    public void put(PhraseKey key, PhraseFiles phraseFiles, String version) {
+        if (version == null) {
+            return;
+        }
+        try {
+            Long written = redisTemplate.execute(PUT_IF_VERSION,
+                    List.of(KEY_PREFIX + key.asString(), VERSION_PREFIX + key.asString()),
+                    version, objectMapper.writeValueAsString(phraseFiles), String.valueOf(ttl.toMillis()));
+            if (written == null || written == 0) {
+                Log.info("redis_phrase_files|skipped stale put key={}, version={}", key.asString(), version);
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            Log.warn("redis_phrase_files|put failed key={}, error={}", key.asString(), e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the shared entry and tells every node to drop its local copy.
+     */
+    public void invalidate(PhraseKey key) {
+        try {
+            // the version moves first, a put racing with the delete is refused
+            String versionKey = VERSION_PREFIX + key.asString();
+            redisTemplate.opsForValue().increment(versionKey);
+            redisTemplate.expire(versionKey, ttl.multipliedBy(2));
+            redisTemplate.delete(KEY_PREFIX + key.asString());
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, key.asString());
+        } catch (RuntimeException e) {
+            Log.warn("redis_phrase_files|invalidate failed key={}, error={}", key.asString(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.audioservice.config;
+
+import jakarta.annotation.PostConstruct;
+import org.example.audioservice.model.FileEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the {@code file_tab} id sequence past the ids assigned while the column was
+ * {@code IDENTITY}, before the first insert. On MySQL hibernate emulates the sequence with the
+ * one row table {@code file_tab_seq}, which starts at 1 when it is created next to existing rows.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class FileIdSequenceAligner {
+
+    private static final Logger Log = LoggerFactory.getLogger(FileIdSequenceAligner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FileIdSequenceAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void align() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database)) {
+            // other databases used here are created empty, with a native sequence
+            Log.info("file_id_sequence|skip alignment on database={}", database);
+            return;
+        }
+
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from file_tab", Long.class);
+        // the pooled optimizer hands out the block ending at the value read, so leave a whole block above max(id)
+        long next = maxId + FileEntity.ID_ALLOCATION_SIZE;
+        // greatest keeps the value when it is already ahead, e.g. another node aligned it first
+        int updated = jdbcTemplate.update("update file_tab_seq set next_val = greatest(next_val, ?)", next);
+        Log.info("file_id_sequence|aligned maxId={}, nextVal>={}, rows={}", maxId, next, updated);
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.audioservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * With {@code audio.datasource.replica.enabled=true} the application's data source routes read
+ * only transactions to a replica, see {@link ReadWriteDataSource}. The primary pool is set up
+ * from {@code spring.datasource.*} as without a replica, the replica pool from
+ * {@code audio.datasource.replica.*}, both take hikari settings under their {@code .hikari} prefix.
+ */
+@Configuration
+@ConditionalOnProperty(name = "audio.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @Primary
+    public ReadWriteDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                          @Value("${audio.datasource.replica.url}") String replicaUrl,
+                                          @Value("${audio.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                          @Value("${audio.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+                                          @Value("${audio.datasource.replica.sticky-for:5s}") Duration stickyFor) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        binder.bind("audio.datasource.replica.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        // the replica is only ever read
+        replica.setReadOnly(true);
+
+        return new ReadWriteDataSource(primary, replica, stickyFor);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReadWriteDataSource dataSource,
+                                               @Value("${audio.datasource.replica.max-lag:2s}") Duration maxLag,
+                                               @Value("${audio.datasource.replica.lag-check-interval:1s}") Duration interval) {
+        return new ReplicaLagMonitor(dataSource, maxLag, interval);
+    }
+}
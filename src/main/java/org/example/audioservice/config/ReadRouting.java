@@ -0,0 +1,57 @@
+package org.example.audioservice.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per thread state deciding whether read only transactions may use the replica. A thread
+ * that committed a write reads from the primary for a while after, so a request sees its own
+ * writes, and any code can force a read onto the primary with {@link #onPrimary}. Without a
+ * replica configured every read goes to the primary anyway and this has no effect.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Long> LAST_WRITE_AT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Runs the read against the primary, e.g. to look again for a row the replica may not
+     * have received yet.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = ON_PRIMARY.get();
+        ON_PRIMARY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                ON_PRIMARY.remove();
+            }
+        }
+    }
+
+    static void recordWrite() {
+        LAST_WRITE_AT.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Whether reads of this thread must see the primary, because it is forced or because the
+     * thread wrote within the last {@code stickyForMillis}.
+     */
+    static boolean readsFromPrimary(long stickyForMillis) {
+        if (ON_PRIMARY.get() != null) {
+            return true;
+        }
+        Long lastWriteAt = LAST_WRITE_AT.get();
+        if (lastWriteAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lastWriteAt < stickyForMillis) {
+            return true;
+        }
+        LAST_WRITE_AT.remove();
+        return false;
+    }
+}
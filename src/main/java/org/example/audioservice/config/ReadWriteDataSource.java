@@ -0,0 +1,88 @@
+package org.example.audioservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends read only transactions to the replica pool and everything else to the primary pool.
+ * The connection is only fetched on the first statement, once the transaction is known to be
+ * read only. Reads fall back to the primary while the {@link ReplicaLagMonitor} finds the
+ * replica behind, and while the thread recently wrote, see {@link ReadRouting}. Owns both
+ * pools and closes them on shutdown.
+ */
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final long stickyForMillis;
+    // false until the lag monitor saw the replica caught up
+    private volatile boolean replicaUsable;
+
+    public ReadWriteDataSource(HikariDataSource primary, HikariDataSource replica, Duration stickyFor) {
+        super(new WriteTrackingDataSource(primary));
+        this.primary = primary;
+        this.replica = replica;
+        this.stickyForMillis = stickyFor.toMillis();
+
+        AbstractRoutingDataSource reads = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return replicaUsable && !ReadRouting.readsFromPrimary(stickyForMillis) ? REPLICA : PRIMARY;
+            }
+        };
+        reads.setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        reads.afterPropertiesSet();
+        setReadOnlyDataSource(reads);
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public HikariDataSource getReplica() {
+        return replica;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    void setReplicaUsable(boolean replicaUsable) {
+        this.replicaUsable = replicaUsable;
+    }
+
+    @Override
+    public void destroy() {
+        replica.close();
+        primary.close();
+    }
+
+    // connections of read-write transactions make the thread read its own writes from the primary
+    private static final class WriteTrackingDataSource extends DelegatingDataSource {
+
+        private WriteTrackingDataSource(HikariDataSource primary) {
+            super(primary);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (TransactionSynchronizationManager.isActualTransactionActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                ReadRouting.recordWrite();
+            }
+            return super.getConnection();
+        }
+    }
+}
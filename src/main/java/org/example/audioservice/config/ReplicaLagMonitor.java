@@ -0,0 +1,137 @@
+package org.example.audioservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica is behind by writing a timestamp to {@code replica_heartbeat_tab}
+ * on the primary and reading it back from the replica. Works with any replication set up and
+ * needs no replication privileges. Every node beats under its own id and only compares against
+ * its own beat, so the clocks of the nodes never meet. While the lag is above
+ * {@code audio.datasource.replica.max-lag}, or the replica cannot be read, every read goes to the primary.
+ */
+public class ReplicaLagMonitor implements MeterBinder {
+
+    private static final Logger Log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    private static final String CREATE_TABLE = "create table if not exists replica_heartbeat_tab (node_id varchar(64) primary key, beat_at bigint not null)";
+
+    private final ReadWriteDataSource dataSource;
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final Duration interval;
+    // a restarted node beats under a new id, the row of its previous run is left behind
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile long lagMillis = -1;
+    private boolean heartbeatTableReady;
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(ReadWriteDataSource dataSource, Duration maxLag, Duration interval) {
+        this.dataSource = dataSource;
+        this.primary = new JdbcTemplate(dataSource.getPrimary());
+        this.replica = new JdbcTemplate(dataSource.getReplica());
+        this.maxLagMillis = maxLag.toMillis();
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            primary.update("delete from replica_heartbeat_tab where node_id = ?", nodeId);
+        } catch (DataAccessException e) {
+            Log.warn("replica_lag|cannot remove heartbeat of node={}, error={}", nodeId, e.getMessage());
+        }
+    }
+
+    private void run() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            // a throwing task would cancel the schedule, the replica is not trusted meanwhile
+            dataSource.setReplicaUsable(false);
+            Log.error("replica_lag|check failed, error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a heartbeat, reads the replica's copy and switches reads accordingly. The lag is
+     * measured to within one interval, a replica that stopped applying is seen as ever more behind.
+     */
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            if (!heartbeatTableReady) {
+                primary.execute(CREATE_TABLE);
+                heartbeatTableReady = true;
+            }
+            if (primary.update("update replica_heartbeat_tab set beat_at = ? where node_id = ?", now, nodeId) == 0) {
+                primary.update("insert into replica_heartbeat_tab (node_id, beat_at) values (?, ?)", nodeId, now);
+            }
+        } catch (DataAccessException e) {
+            // the replica's beat then ages, and reads move to the primary once it is too old
+            Log.warn("replica_lag|cannot write heartbeat to primary, error={}", e.getMessage());
+        }
+
+        boolean usable;
+        try {
+            List<Long> beats = replica.queryForList("select beat_at from replica_heartbeat_tab where node_id = ?", Long.class, nodeId);
+            lagMillis = beats.isEmpty() ? -1 : Math.max(0, now - beats.get(0));
+            usable = lagMillis >= 0 && lagMillis <= maxLagMillis;
+        } catch (DataAccessException e) {
+            lagMillis = -1;
+            usable = false;
+            Log.warn("replica_lag|cannot read heartbeat from replica, error={}", e.getMessage());
+        }
+
+        if (usable != dataSource.isReplicaUsable()) {
+            Log.info("replica_lag|reads now go to the {}, lag={}ms, max={}ms", usable ? "replica" : "primary", lagMillis, maxLagMillis);
+        }
+        dataSource.setReplicaUsable(usable);
+    }
+
+    /**
+     * Last measured lag, -1 when the replica could not be read.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audio.datasource.replica.lag", this, monitor -> monitor.getLagMillis() < 0 ? Double.NaN : monitor.getLagMillis() / 1000.0)
+                .description("How far the read replica is behind the primary, NaN when it cannot be read")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("audio.datasource.replica.usable", dataSource, source -> source.isReplicaUsable() ? 1 : 0)
+                .description("1 while read only transactions are sent to the replica")
+                .register(registry);
+    }
+}
@@ -2,6 +2,7 @@ package org.example.audioservice.constant;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.example.audioservice.dto.AudioStreamInfo;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
@@ -29,9 +30,71 @@ public class AudioFormatConstants {
     @Getter
     @AllArgsConstructor
     public static class AudioConfig {
+        // ffprobe's name of the stream an encoder produces, where it differs from the encoder's
+        private static final Map<String, String> STREAM_CODECS = Map.of(
+                "libmp3lame", "mp3",
+                "libopus", "opus",
+                "libvorbis", "vorbis"
+        );
+        // containers round bitrates a little, a stream this close to the target is not re-encoded
+        private static final double BITRATE_TOLERANCE = 1.05;
+
         private final String codec;
         private final String bitrate;
         private final int sampleRate;
         private final int channels;
+
+        /**
+         * Identifies the encoder settings, derivatives made with the same settings are interchangeable.
+         */
+        public String fingerprint() {
+            return codec + "|" + (bitrate != null ? bitrate : "-") + "|" + sampleRate + "|" + channels;
+        }
+
+        /**
+         * Codec name of the encoded stream as ffprobe reports it.
+         */
+        public String streamCodec() {
+            return STREAM_CODECS.getOrDefault(codec, codec);
+        }
+
+        /**
+         * Target bitrate in bits per second, null for lossless codecs.
+         */
+        public Long bitrateBps() {
+            if (bitrate == null) {
+                return null;
+            }
+            String value = bitrate.toLowerCase();
+            if (value.endsWith("k")) {
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1000;
+            }
+            if (value.endsWith("m")) {
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1_000_000;
+            }
+            return Long.parseLong(value);
+        }
+
+        /**
+         * Whether the stream already is what encoding with these settings would produce, so it
+         * can be copied into the format's container instead. A lossy stream must not be above
+         * the target bitrate, re-encoding it would only lose more.
+         */
+        public boolean accepts(AudioStreamInfo stream) {
+            if (stream == null || !streamCodec().equals(stream.codec())
+                    || stream.sampleRate() == null || stream.sampleRate() != sampleRate
+                    || stream.channels() == null || stream.channels() != channels) {
+                return false;
+            }
+            Long target = bitrateBps();
+            return target == null || (stream.bitrate() != null && stream.bitrate() <= target * BITRATE_TOLERANCE);
+        }
+
+        /**
+         * The stream encoding with these settings produces, for recording on converted files.
+         */
+        public AudioStreamInfo encodedStream(Long durationMillis) {
+            return new AudioStreamInfo(streamCodec(), sampleRate, channels, bitrateBps(), durationMillis);
+        }
     }
 }
@@ -0,0 +1,80 @@
+package org.example.audioservice.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.service.BulkDownloadSink;
+import org.example.audioservice.util.ArchiveWriter;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams a bulk download into an archive response, one {@code <phraseId>.<format>} entry per
+ * file. The response is only committed by the first entry, so validation errors thrown before
+ * it still get a regular error response. Phrases that could not be served are listed in a
+ * trailing {@code errors.txt} entry.
+ */
+class ArchiveResponseSink implements BulkDownloadSink {
+
+    static final String ERRORS_ENTRY = "errors.txt";
+
+    private final HttpServletResponse response;
+    private final String archiveType;
+    private final String format;
+    private final StringBuilder errors = new StringBuilder();
+    private ArchiveWriter writer;
+    private long servedBytes;
+
+    ArchiveResponseSink(HttpServletResponse response, String archiveType, String format) {
+        this.response = response;
+        this.archiveType = archiveType.toLowerCase();
+        this.format = format.toLowerCase();
+        // fails on an unknown type before anything is written
+        ArchiveWriter.contentType(this.archiveType);
+    }
+
+    @Override
+    public void file(Long phraseId, FileDownloadDTO file) throws IOException {
+        ArchiveWriter archive = open();
+        try (InputStream content = file.getReader().open(0, file.getContentLength())) {
+            archive.putFile(phraseId + "." + format, content, file.getContentLength(), file.getLastModified());
+        }
+        servedBytes += file.getContentLength();
+    }
+
+    @Override
+    public void failed(Long phraseId, String reason) {
+        errors.append(phraseId).append(": ").append(reason).append('\n');
+    }
+
+    /**
+     * Writes the errors entry and the archive trailer.
+     */
+    void finish() throws IOException {
+        ArchiveWriter archive = open();
+        if (!errors.isEmpty()) {
+            archive.putBytes(ERRORS_ENTRY, errors.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        archive.finish();
+    }
+
+    long getServedBytes() {
+        return servedBytes;
+    }
+
+    private ArchiveWriter open() throws IOException {
+        if (writer == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(ArchiveWriter.contentType(archiveType));
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename("phrases-" + format + "." + archiveType)
+                    .build()
+                    .toString());
+            writer = ArchiveWriter.open(archiveType, response.getOutputStream());
+        }
+        return writer;
+    }
+}
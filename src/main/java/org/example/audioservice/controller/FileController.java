@@ -1,37 +1,81 @@
 package org.example.audioservice.controller;
 
+import org.example.audioservice.dto.BatchUploadPart;
+import org.example.audioservice.dto.BatchUploadResult;
 import org.example.audioservice.dto.FileDTO;
 import org.example.audioservice.dto.FileDownloadDTO;
 import org.example.audioservice.exception.PhraseNotFoundException;
 import org.example.audioservice.exception.StorageException;
 import org.example.audioservice.exception.UserNotFoundException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.example.audioservice.model.FileEntity;
 import org.example.audioservice.payload.ApiResponse;
+import org.example.audioservice.payload.BatchUploadItemResponse;
+import org.example.audioservice.payload.ConversionJobResponse;
 import org.example.audioservice.payload.FileResponse;
+import org.example.audioservice.service.BatchUploadService;
+import org.example.audioservice.service.BulkDownloadService;
+import org.example.audioservice.service.ConversionJobService;
 import org.example.audioservice.service.FileService;
+import org.example.audioservice.service.ProgressiveBody;
+import org.example.audioservice.util.FileStreamUtils;
 import org.example.audioservice.util.FileUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/v1/audio")
 public class FileController {
 
+    // a file id always names the same bytes
+    private static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+    // the latest file of a phrase changes with every upload, caches revalidate it with its etag
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+    // seconds a client waits before polling an unfinished conversion job again
+    private static final String JOB_RETRY_AFTER = "1";
+
     private final FileService fileService;
+    private final BatchUploadService batchUploadService;
+    private final BulkDownloadService bulkDownloadService;
+    private final ConversionJobService conversionJobService;
+    private final AudioMetrics audioMetrics;
+    private final ObjectMapper objectMapper;
     private static final Logger Log = LoggerFactory.getLogger(FileController.class);
 
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, BatchUploadService batchUploadService,
+                          BulkDownloadService bulkDownloadService, ConversionJobService conversionJobService,
+                          AudioMetrics audioMetrics, ObjectMapper objectMapper) {
         this.fileService = fileService;
+        this.batchUploadService = batchUploadService;
+        this.bulkDownloadService = bulkDownloadService;
+        this.conversionJobService = conversionJobService;
+        this.audioMetrics = audioMetrics;
+        this.objectMapper = objectMapper;
     }
 
-    @PostMapping("/user/{userId}/phrase/{phraseId}")
+    @PostMapping(value = "/user/{userId}/phrase/{phraseId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ApiResponse<FileResponse>> uploadAudioFile(
             @PathVariable Long userId,
             @PathVariable Long phraseId,
@@ -40,6 +84,58 @@ public class FileController {
         Log.info("upload_audio_handler|userId={}, phraseId={}", userId, phraseId);
 
         FileDTO fileDTO = fileService.saveAudioFile(file, userId, phraseId);
+        return uploadResponse(fileDTO, userId, phraseId);
+    }
+
+    /**
+     * Upload sent as the raw request body, e.g. {@code Content-Type: audio/wav}. The body is
+     * streamed to storage as it arrives instead of being spooled by the multipart resolver.
+     */
+    @PostMapping(value = "/user/{userId}/phrase/{phraseId}", consumes = "audio/*")
+    public ResponseEntity<ApiResponse<FileResponse>> uploadAudioStream(
+            @PathVariable Long userId,
+            @PathVariable Long phraseId,
+            @RequestParam(value = "fileName", required = false) String fileName,
+            HttpServletRequest request) throws IOException {
+
+        Log.info("upload_audio_stream_handler|userId={}, phraseId={}, contentType={}", userId, phraseId, request.getContentType());
+
+        // parameters such as charset are not part of the supported mime types
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        FileDTO fileDTO = fileService.saveAudioFile(request.getInputStream(), contentType.getType() + "/" + contentType.getSubtype(),
+                fileName, userId, phraseId);
+        return uploadResponse(fileDTO, userId, phraseId);
+    }
+
+    /**
+     * Uploads several phrases of the user in one multipart request, every part is named after
+     * the phrase id it is for. Answers 200 when all parts were saved, 207 with the status of
+     * every part otherwise.
+     */
+    @PostMapping(value = "/user/{userId}/phrases", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<List<BatchUploadItemResponse>>> uploadAudioFiles(
+            @PathVariable Long userId,
+            MultipartHttpServletRequest request) {
+
+        List<BatchUploadPart> parts = new ArrayList<>();
+        request.getMultiFileMap().forEach((name, files) -> files.forEach(file -> parts.add(new BatchUploadPart(name, file))));
+        Log.info("upload_audio_batch_handler|userId={}, parts={}", userId, parts.size());
+
+        List<BatchUploadResult> results = batchUploadService.saveAudioFiles(userId, parts);
+        long failed = results.stream().filter(result -> !result.isSuccess()).count();
+
+        ApiResponse<List<BatchUploadItemResponse>> response = ApiResponse.<List<BatchUploadItemResponse>>builder()
+                .status(failed == 0 ? "success" : failed == results.size() ? "error" : "partial")
+                .data(results.stream().map(BatchUploadItemResponse::from).toList())
+                .message(String.format("%d of %d audio files uploaded", results.size() - failed, results.size()))
+                .build();
+
+        Log.info("upload_audio_batch_handler|userId={}, saved={}, failed={}", userId, results.size() - failed, failed);
+
+        return ResponseEntity.status(failed == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS).body(response);
+    }
+
+    private ResponseEntity<ApiResponse<FileResponse>> uploadResponse(FileDTO fileDTO, Long userId, Long phraseId) {
         if (fileDTO == null) {
             throw new StorageException("Failed to save file");
         }
@@ -56,20 +152,167 @@ public class FileController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Downloads many phrases in one format as a zip (default) or tar archive, streamed entry
+     * by entry as the files become available, e.g. {@code ?phraseIds=1,2,3&archive=tar}.
+     */
+    @GetMapping("/user/{userId}/phrases/{audioFormat}")
+    public void getAudioFiles(@PathVariable Long userId, @PathVariable String audioFormat,
+                              @RequestParam List<Long> phraseIds,
+                              @RequestParam(value = "archive", defaultValue = "zip") String archive,
+                              HttpServletResponse response) throws IOException {
+        Log.info("get_audio_bulk_handler|userId={}, phrases={}, audioFormat={}, archive={}", userId, phraseIds.size(), audioFormat, archive);
+
+        ArchiveResponseSink sink = new ArchiveResponseSink(response, archive, audioFormat);
+        bulkDownloadService.getAudioFiles(userId, phraseIds, audioFormat, sink);
+        sink.finish();
+
+        audioMetrics.recordServedBytes(audioFormat.toLowerCase(), sink.getServedBytes());
+    }
+
+    /**
+     * Downloads the latest file of the phrase in the format. Answers conditional requests with
+     * 304 from the phrase manifest alone. With {@code redirect=true} sends a redirect to the
+     * file's immutable URL instead of the body. With {@code async=true}, or
+     * {@code Prefer: respond-async}, a format that still has to be converted answers 202 with
+     * the conversion job to poll instead of waiting for it.
+     */
     @GetMapping("/user/{userId}/phrase/{phraseId}/{audioFormat}")
-    public ResponseEntity<byte[]> getAudioFile(@PathVariable Long userId, @PathVariable Long phraseId, @PathVariable String audioFormat) throws IOException {
-        Log.info("get_audio_handler|userId={}, phraseId={}, audioFormat={}", userId, phraseId, audioFormat);
+    public void getAudioFile(@PathVariable Long userId, @PathVariable Long phraseId, @PathVariable String audioFormat,
+                             @RequestParam(value = "redirect", defaultValue = "false") boolean redirect,
+                             @RequestParam(value = "async", defaultValue = "false") boolean async,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Log.info("get_audio_handler|userId={}, phraseId={}, audioFormat={}, redirect={}, async={}", userId, phraseId, audioFormat, redirect, async);
 
-        FileDownloadDTO fileDownloadDTO = fileService.getAudioFile(userId, phraseId, audioFormat);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE);
+        Optional<FileEntity> current = fileService.findAudioFile(userId, phraseId, audioFormat);
+        if (current.isPresent() && redirect) {
+            redirectToFile(current.get().getId(), response);
+            return;
+        }
+        if (current.isPresent() && notModified(current.get(), request, response)) {
+            Log.info("get_audio_handler|not modified file id={}", current.get().getId());
+            audioMetrics.recordLookup(audioFormat.toLowerCase(), "not_modified");
+            return;
+        }
+        if (current.isEmpty() && (async || prefersAsync(request))) {
+            ConversionJobEntity job = conversionJobService.submit(userId, phraseId, audioFormat);
+            Log.info("get_audio_handler|accepted conversion job={} userId={}, phraseId={}, audioFormat={}", job.getJobId(), userId, phraseId, audioFormat);
+            audioMetrics.recordLookup(audioFormat.toLowerCase(), "accepted");
+            acceptJob(job, response);
+            return;
+        }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(FileUtils.getAudioMediaType(audioFormat));
-        headers.setContentLength(fileDownloadDTO.getFile().length);
-        headers.setContentDispositionFormData("attachment", fileDownloadDTO.getFileName());
+        // a plain GET of a format that still has to be converted can be streamed while it is encoded
+        ProgressiveBody progressiveBody = null;
+        if (!redirect && HttpMethod.GET.matches(request.getMethod()) && request.getHeader(HttpHeaders.RANGE) == null) {
+            progressiveBody = fileName -> FileStreamUtils.openProgressive(response, fileName, FileUtils.getAudioMediaType(audioFormat));
+        }
 
-        Log.info("get_audio_handler|serving file={} size={}", fileDownloadDTO.getFileName(), fileDownloadDTO.getFile().length);
+        FileDownloadDTO fileDownloadDTO = fileService.getAudioFile(userId, phraseId, audioFormat, progressiveBody);
+        if (fileDownloadDTO == null) {
+            Log.info("get_audio_handler|streamed while converting userId={}, phraseId={}, audioFormat={}", userId, phraseId, audioFormat);
+            return;
+        }
+        if (redirect) {
+            redirectToFile(fileDownloadDTO.getFileId(), response);
+            return;
+        }
+
+        Log.info("get_audio_handler|serving file={} size={} range={}", fileDownloadDTO.getFileName(),
+                fileDownloadDTO.getContentLength(), request.getHeader(HttpHeaders.RANGE));
+
+        long served = FileStreamUtils.writeFile(request, response, fileDownloadDTO, FileUtils.getAudioMediaType(audioFormat));
+        audioMetrics.recordServedBytes(audioFormat.toLowerCase(), served);
+    }
+
+    /**
+     * Downloads a file by id. The content of a file id never changes, so the response may be
+     * cached for good by browsers and CDNs.
+     */
+    @GetMapping("/file/{fileId}")
+    public void getAudioFileById(@PathVariable Long fileId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Log.info("get_audio_by_id_handler|fileId={}", fileId);
+
+        FileEntity file = fileService.getFileById(fileId);
+        String format = file.getFormat().toLowerCase();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+        if (notModified(file, request, response)) {
+            audioMetrics.recordLookup(format, "not_modified");
+            return;
+        }
+
+        FileDownloadDTO fileDownloadDTO = fileService.toDownload(file);
+        audioMetrics.recordLookup(format, "hit");
+        long served = FileStreamUtils.writeFile(request, response, fileDownloadDTO, FileUtils.getAudioMediaType(format));
+        audioMetrics.recordServedBytes(format, served);
+    }
+
+    /**
+     * Status of a conversion job. Answers 303 to the file's immutable URL once it is done,
+     * the job while it is queued, running or failed.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<ConversionJobResponse>> getConversionJob(@PathVariable String jobId) {
+        ConversionJobEntity job = conversionJobService.getJob(jobId);
+        Log.info("get_conversion_job_handler|job={}, status={}", jobId, job.getStatus());
+
+        ApiResponse<ConversionJobResponse> body = jobResponse(job);
+        if (job.getStatus() == ConversionJobEntity.Status.DONE) {
+            return ResponseEntity.status(HttpStatus.SEE_OTHER)
+                    .location(fileUri(job.getFileId()))
+                    .cacheControl(CacheControl.noStore())
+                    .body(body);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noStore());
+        if (!job.getStatus().isFinished()) {
+            builder.header(HttpHeaders.RETRY_AFTER, JOB_RETRY_AFTER);
+        }
+        return builder.body(body);
+    }
+
+    // checks If-None-Match and If-Modified-Since against the file row, sets the 304 when they match
+    private static boolean notModified(FileEntity file, HttpServletRequest request, HttpServletResponse response) {
+        return new ServletWebRequest(request, response)
+                .checkNotModified(FileUtils.entityTag(file.getId(), file.getCreatedAt()), file.getCreatedAt());
+    }
+
+    private static void redirectToFile(Long fileId, HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, fileUri(fileId).toString());
+    }
+
+    private static URI fileUri(Long fileId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/v1/audio/file/{fileId}")
+                .buildAndExpand(fileId)
+                .toUri();
+    }
 
-        return new ResponseEntity<>(fileDownloadDTO.getFile(), headers, HttpStatus.OK);
+    // RFC 7240, Prefer: respond-async
+    private static boolean prefersAsync(HttpServletRequest request) {
+        String prefer = request.getHeader("Prefer");
+        return prefer != null && prefer.toLowerCase().contains("respond-async");
+    }
+
+    private void acceptJob(ConversionJobEntity job, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.setHeader(HttpHeaders.LOCATION, ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/v1/audio/jobs/{jobId}")
+                .buildAndExpand(job.getJobId())
+                .toUriString());
+        response.setHeader(HttpHeaders.RETRY_AFTER, JOB_RETRY_AFTER);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), jobResponse(job));
+    }
+
+    private static ApiResponse<ConversionJobResponse> jobResponse(ConversionJobEntity job) {
+        return ApiResponse.<ConversionJobResponse>builder()
+                .status("success")
+                .data(ConversionJobResponse.from(job))
+                .message("Conversion " + job.getStatus().name().toLowerCase())
+                .build();
     }
 
 }
@@ -2,6 +2,11 @@ package org.example.audioservice.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,13 +16,27 @@ public class ServiceController {
 
     private static final Logger Log = LoggerFactory.getLogger(ServiceController.class);
 
+    private final HealthEndpoint healthEndpoint;
+
+    public ServiceController(HealthEndpoint healthEndpoint) {
+        this.healthEndpoint = healthEndpoint;
+    }
+
     @GetMapping("/healthcheck")
     public ResponseEntity<String> healthCheck() {
+        // same checks as the readiness probe: database, storage and ffmpeg
+        HealthComponent health = healthEndpoint.healthForPath("readiness");
+        if (health == null) {
+            health = healthEndpoint.health();
+        }
 
-        Log.info("healthcheck|ok");
+        boolean up = Status.UP.equals(health.getStatus());
+        Log.info("healthcheck|{}", up ? "ok" : "status=" + health.getStatus());
         String status = """
-                {"status": "up"}
-                """;
-        return ResponseEntity.ok(status);
+                {"status": "%s"}
+                """.formatted(health.getStatus().getCode().toLowerCase());
+        return ResponseEntity.status(up ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(status);
     }
 }
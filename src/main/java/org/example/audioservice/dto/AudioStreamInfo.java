@@ -0,0 +1,30 @@
+package org.example.audioservice.dto;
+
+import org.example.audioservice.model.FileEntity;
+
+/**
+ * The audio stream of a stored file as ffprobe reports it. Codec is ffprobe's codec name,
+ * e.g. {@code mp3} or {@code opus}, bitrate is in bits per second. Any field may be null
+ * when the container does not tell.
+ */
+public record AudioStreamInfo(String codec, Integer sampleRate, Integer channels, Long bitrate, Long durationMillis) {
+
+    /**
+     * The stream recorded on a file row, null when the file was never probed.
+     */
+    public static AudioStreamInfo of(FileEntity file) {
+        if (file.getCodec() == null) {
+            return null;
+        }
+        return new AudioStreamInfo(file.getCodec(), file.getSampleRate(), file.getChannels(), file.getBitrate(), file.getDurationMs());
+    }
+
+    public FileEntity.FileEntityBuilder applyTo(FileEntity.FileEntityBuilder builder) {
+        return builder
+                .codec(codec)
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .bitrate(bitrate)
+                .durationMs(durationMillis);
+    }
+}
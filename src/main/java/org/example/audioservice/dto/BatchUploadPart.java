@@ -0,0 +1,9 @@
+package org.example.audioservice.dto;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * One file of a batch upload, the part name carries the phrase id it is uploaded for.
+ */
+public record BatchUploadPart(String name, MultipartFile file) {
+}
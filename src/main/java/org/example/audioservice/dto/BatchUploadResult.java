@@ -0,0 +1,21 @@
+package org.example.audioservice.dto;
+
+import lombok.Getter;
+import lombok.experimental.SuperBuilder;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Outcome of one part of a batch upload, the file fields are set when it was saved.
+ */
+@Getter
+@SuperBuilder
+public class BatchUploadResult extends FileDTO {
+    private String partName;
+    private Long phraseId;
+    private HttpStatus status;
+    private String error;
+
+    public boolean isSuccess() {
+        return status.is2xxSuccessful();
+    }
+}
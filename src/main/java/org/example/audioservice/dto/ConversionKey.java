@@ -0,0 +1,13 @@
+package org.example.audioservice.dto;
+
+import org.example.audioservice.model.ConversionJobEntity;
+
+/**
+ * Identifies one derivative of an upload: the file of a user's phrase group in a given format.
+ */
+public record ConversionKey(Long userId, Long phraseId, Long groupId, String format) {
+
+    public static ConversionKey of(ConversionJobEntity job) {
+        return new ConversionKey(job.getUserId(), job.getPhraseId(), job.getGroupId(), job.getFormat());
+    }
+}
@@ -9,4 +9,6 @@ public class FileDTO {
     private Long fileId;
     private String fileName;
     private String filePath;
+    // probed length of the audio, null when it could not be probed
+    private Long durationMs;
 }
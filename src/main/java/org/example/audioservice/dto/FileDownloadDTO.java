@@ -1,11 +1,21 @@
 package org.example.audioservice.dto;
 
-import lombok.Builder;
 import lombok.Getter;
 import lombok.experimental.SuperBuilder;
+import org.example.audioservice.storage.StorageBackend;
+
+import java.nio.file.Path;
 
 @Getter
 @SuperBuilder
 public class FileDownloadDTO extends FileDTO {
-    private byte[] file;
-}
\ No newline at end of file
+    // handle to the stored file, the body is streamed from disk instead of buffered on heap,
+    // null when the file is a remote object
+    private Path file;
+    // reads the stored content, local or remote
+    private StorageBackend.RangeReader reader;
+    private long contentLength;
+    private long lastModified;
+    // strong validator of the file version, quoted
+    private String etag;
+}
@@ -0,0 +1,31 @@
+package org.example.audioservice.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+import org.example.audioservice.model.FileEntity;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the current upload group of a user's phrase: its original and
+ * the latest file of every format already available in the group.
+ */
+@Getter
+@Builder
+@Jacksonized
+public class PhraseFiles {
+    private Long userId;
+    private Long phraseId;
+    private Long groupId;
+    private FileEntity original;
+    private Map<String, FileEntity> files;
+
+    public FileEntity getFile(String format) {
+        return files == null ? null : files.get(format);
+    }
+
+    public boolean isOriginal(FileEntity file) {
+        return original != null && original.getId() != null && original.getId().equals(file.getId());
+    }
+}
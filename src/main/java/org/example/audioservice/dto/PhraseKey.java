@@ -0,0 +1,19 @@
+package org.example.audioservice.dto;
+
+/**
+ * A user's phrase, used as cache key and rendered as {@code userId:phraseId} in redis.
+ */
+public record PhraseKey(Long userId, Long phraseId) {
+
+    public String asString() {
+        return userId + ":" + phraseId;
+    }
+
+    public static PhraseKey parse(String value) {
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid phrase key: " + value);
+        }
+        return new PhraseKey(Long.valueOf(value.substring(0, separator)), Long.valueOf(value.substring(separator + 1)));
+    }
+}
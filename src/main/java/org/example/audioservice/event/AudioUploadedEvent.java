@@ -0,0 +1,9 @@
+package org.example.audioservice.event;
+
+import org.example.audioservice.model.FileEntity;
+
+/**
+ * Published once the original file of a new upload group has been stored and saved.
+ */
+public record AudioUploadedEvent(FileEntity file) {
+}
@@ -0,0 +1,15 @@
+package org.example.audioservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class ConversionRejectedException extends BaseException {
+
+    private final long retryAfterSeconds;
+
+    public ConversionRejectedException(String message, HttpStatus status, long retryAfterSeconds) {
+        super(message, status);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
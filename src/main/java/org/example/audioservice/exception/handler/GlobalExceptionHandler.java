@@ -1,8 +1,10 @@
 package org.example.audioservice.exception.handler;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.audioservice.exception.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -67,7 +69,8 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler(StorageException.class)
-    public ResponseEntity<ErrorResponse> handleStorageException(StorageException ex) {
+    public ResponseEntity<ErrorResponse> handleStorageException(StorageException ex, HttpServletResponse httpResponse) {
+        rethrowIfCommitted(ex, httpResponse);
         ErrorResponse response = ErrorResponse.builder()
                 .status("error")
                 .errors(List.of(
@@ -80,6 +83,22 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, ex.getStatus());
     }
 
+    @ExceptionHandler(ConversionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleConversionRejectedException(ConversionRejectedException ex) {
+        ErrorResponse response = ErrorResponse.builder()
+                .status("error")
+                .errors(List.of(
+                        ErrorResponse.ErrorDetail.builder()
+                                .message(ex.getMessage())
+                                .build()
+                ))
+                .message("Conversion capacity exceeded, retry later")
+                .build();
+
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
 
     @ExceptionHandler(UnsupportedFileFormatException.class)
     public ResponseEntity<ErrorResponse> handleUnsupportedFileFormatException(UnsupportedFileFormatException ex) {
@@ -113,7 +132,9 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler(InvalidDataAccessResourceUsageException.class)
-    public ResponseEntity<ErrorResponse> handleInvalidDataAccessResourceUsageExceptionException(InvalidDataAccessResourceUsageException ex) {
+    public ResponseEntity<ErrorResponse> handleInvalidDataAccessResourceUsageExceptionException(InvalidDataAccessResourceUsageException ex,
+                                                                                                HttpServletResponse httpResponse) {
+        rethrowIfCommitted(ex, httpResponse);
         ErrorResponse response = ErrorResponse.builder()
                 .status("error")
                 .message("Invalid data access")
@@ -144,7 +165,8 @@ public class GlobalExceptionHandler {
 
     // for other unexpected errors
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
+    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex, HttpServletResponse httpResponse) throws Exception {
+        rethrowIfCommitted(ex, httpResponse);
         ErrorResponse response = ErrorResponse.builder()
                 .status("error")
                 .errors(List.of(
@@ -157,4 +179,13 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    // a conversion streamed to the client failed after part of the body went out. An error
+    // body would be appended to the audio and end it cleanly, rethrown instead the container
+    // closes the connection and the client sees an incomplete transfer
+    private static <E extends Exception> void rethrowIfCommitted(E ex, HttpServletResponse httpResponse) throws E {
+        if (httpResponse.isCommitted()) {
+            throw ex;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package org.example.audioservice.health;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Up when the ffmpeg binary conversions fork can be run. The probe starts a process,
+ * so its result is kept for a while instead of running on every health request.
+ */
+@Component
+public class FfmpegHealthIndicator implements HealthIndicator {
+
+    private static final Logger Log = LoggerFactory.getLogger(FfmpegHealthIndicator.class);
+
+    private final String executable;
+    private final long cacheTtlNanos;
+
+    private volatile Health cached;
+    private volatile long checkedAt;
+
+    public FfmpegHealthIndicator(@Value("${audio.ffmpeg.path:}") String ffmpegPath,
+                                 @Value("${audio.health.ffmpeg.cache-ttl:60s}") Duration cacheTtl) {
+        // same binary the conversions run
+        this.executable = ffmpegPath == null || ffmpegPath.isBlank() ? "ffmpeg" : Paths.get(ffmpegPath, "ffmpeg").toString();
+        this.cacheTtlNanos = cacheTtl.toNanos();
+    }
+
+    @Override
+    public Health health() {
+        Health current = cached;
+        if (current == null || System.nanoTime() - checkedAt > cacheTtlNanos) {
+            current = probe();
+            cached = current;
+            checkedAt = System.nanoTime();
+        }
+        return current;
+    }
+
+    private Health probe() {
+        try {
+            Process process = new ProcessBuilder(executable, "-version").redirectErrorStream(true).start();
+            String version;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                version = reader.readLine();
+                // the rest of the banner is read too, closing the pipe early fails ffmpeg's writes
+                reader.transferTo(Writer.nullWriter());
+            }
+            // onExit parks instead of Process.waitFor's monitor wait, which pins a virtual thread
+            try {
+                process.onExit().get(5, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                process.destroyForcibly();
+                return Health.down().withDetail("error", "ffmpeg -version timed out").build();
+            }
+            return process.exitValue() == 0
+                    ? Health.up().withDetail("version", version).build()
+                    : Health.down().withDetail("exitCode", process.exitValue()).build();
+        } catch (Exception e) {
+            Log.warn("ffmpeg_health|probe failed executable={}, error={}", executable, e.getMessage());
+            return Health.down(e).withDetail("executable", executable).build();
+        }
+    }
+}
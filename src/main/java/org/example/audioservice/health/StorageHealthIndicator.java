@@ -0,0 +1,45 @@
+package org.example.audioservice.health;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Up when the upload directory can be written and has room for more uploads.
+ */
+@Component
+public class StorageHealthIndicator implements HealthIndicator {
+
+    private final Path uploadDir;
+    private final DataSize minFree;
+
+    public StorageHealthIndicator(@Value("${file.upload-dir}") String uploadDir,
+                                  @Value("${audio.health.storage.min-free:100MB}") DataSize minFree) {
+        this.uploadDir = Paths.get(uploadDir);
+        this.minFree = minFree;
+    }
+
+    @Override
+    public Health health() {
+        try {
+            Files.createDirectories(uploadDir);
+            long usable = Files.getFileStore(uploadDir).getUsableSpace();
+            Health.Builder builder = Files.isWritable(uploadDir) && usable >= minFree.toBytes() ? Health.up() : Health.down();
+            return builder
+                    .withDetail("path", uploadDir.toString())
+                    .withDetail("writable", Files.isWritable(uploadDir))
+                    .withDetail("free", usable)
+                    .withDetail("threshold", minFree.toBytes())
+                    .build();
+        } catch (IOException e) {
+            return Health.down(e).withDetail("path", uploadDir.toString()).build();
+        }
+    }
+}
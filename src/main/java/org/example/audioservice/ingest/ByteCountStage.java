@@ -0,0 +1,28 @@
+package org.example.audioservice.ingest;
+
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+/**
+ * Counts the uploaded bytes and aborts the upload as soon as it goes over the limit.
+ */
+public class ByteCountStage implements IngestStage {
+
+    private final long maxBytes;
+    private long count;
+
+    public ByteCountStage(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        count += length;
+        if (maxBytes > 0 && count > maxBytes) {
+            throw new MaxUploadSizeExceededException(maxBytes);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
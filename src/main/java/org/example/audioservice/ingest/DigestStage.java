@@ -0,0 +1,40 @@
+package org.example.audioservice.ingest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Hashes the upload, SHA-256 unless told otherwise.
+ */
+public class DigestStage implements IngestStage {
+
+    private final MessageDigest digest;
+    private String hex;
+
+    public DigestStage() {
+        this("SHA-256");
+    }
+
+    public DigestStage(String algorithm) {
+        try {
+            this.digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        digest.update(buffer, offset, length);
+    }
+
+    @Override
+    public void complete() {
+        hex = HexFormat.of().formatHex(digest.digest());
+    }
+
+    public String getHex() {
+        return hex;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.audioservice.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Detects the container from the first bytes of the upload, independent of the declared content type.
+ */
+public class HeaderSniffStage implements IngestStage {
+
+    private static final int HEADER_SIZE = 64;
+
+    private final byte[] header = new byte[HEADER_SIZE];
+    private int headerLength;
+    private String format;
+
+    @Override
+    public void update(byte[] buffer, int offset, int length) {
+        if (headerLength < HEADER_SIZE) {
+            int copied = Math.min(length, HEADER_SIZE - headerLength);
+            System.arraycopy(buffer, offset, header, headerLength, copied);
+            headerLength += copied;
+        }
+    }
+
+    @Override
+    public void complete() {
+        format = sniff(Arrays.copyOf(header, headerLength));
+    }
+
+    // null when the header does not look like any supported format
+    public String getFormat() {
+        return format;
+    }
+
+    static String sniff(byte[] header) {
+        if (startsWith(header, 0, "RIFF") && startsWith(header, 8, "WAVE")) {
+            return "wav";
+        }
+        if (startsWith(header, 0, "fLaC")) {
+            return "flac";
+        }
+        if (startsWith(header, 0, "OggS")) {
+            // the first page carries the codec identification header
+            return startsWith(header, 28, "OpusHead") ? "opus" : "ogg";
+        }
+        if (startsWith(header, 0, "ID3")) {
+            return "mp3";
+        }
+        if (header.length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0) {
+            // mpeg frame sync, layer bits 00 mean adts aac
+            return (header[1] & 0x06) == 0 ? "aac" : "mp3";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int offset, String magic) {
+        byte[] expected = magic.getBytes(StandardCharsets.US_ASCII);
+        if (header.length < offset + expected.length) {
+            return false;
+        }
+        return Arrays.equals(header, offset, offset + expected.length, expected, 0, expected.length);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.audioservice.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams an upload once from the request into its final storage path. Every buffer is
+ * handed to the stages and written to a temp file next to the target, which is synced
+ * once and atomically renamed when the body is complete.
+ */
+@Component
+public class IngestPipeline {
+
+    private static final Logger Log = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private final int bufferSize;
+
+    public IngestPipeline(@Value("${audio.ingest.buffer-size:65536}") int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Writes the body to the target path and returns the number of bytes written.
+     * On any failure the partial file is removed and nothing exists at the target.
+     */
+    public long ingest(InputStream body, Path target, List<IngestStage> stages) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tempPath = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".part");
+
+        long written = 0;
+        try {
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[bufferSize];
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    for (IngestStage stage : stages) {
+                        stage.update(buffer, 0, read);
+                    }
+                    wrapped.clear().limit(read);
+                    while (wrapped.hasRemaining()) {
+                        channel.write(wrapped);
+                    }
+                    written += read;
+                }
+                for (IngestStage stage : stages) {
+                    stage.complete();
+                }
+                // the only sync of the upload, data and size must be durable before the rename
+                channel.force(true);
+            }
+            Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+            Log.info("ingest|stored path={}, bytes={}", target, written);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            Log.error("ingest|fail|path={}, bytes={}, error={}", target, written, e.getMessage());
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.audioservice.ingest;
+
+/**
+ * Observes an upload while it is streamed to storage. Stages see every buffer exactly once,
+ * in order, and must not keep a reference to it after {@link #update} returns.
+ */
+public interface IngestStage {
+
+    void update(byte[] buffer, int offset, int length);
+
+    // called once after the last buffer, before the file is moved into place
+    default void complete() {
+    }
+}
@@ -1,52 +1,167 @@
 package org.example.audioservice.library;
 
+import com.github.kokorin.jaffree.ffmpeg.BaseOutput;
 import com.github.kokorin.jaffree.ffmpeg.FFmpeg;
+import com.github.kokorin.jaffree.ffmpeg.PipeOutput;
 import com.github.kokorin.jaffree.ffmpeg.UrlInput;
 import com.github.kokorin.jaffree.ffmpeg.UrlOutput;
 import org.example.audioservice.constant.AudioFormatConstants;
 import org.example.audioservice.controller.FileController;
 import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.util.TeeOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
 
 @Component
 public class FFmpegWrapper {
 
     private static final Logger Log = LoggerFactory.getLogger(FileController.class);
+    // formats whose muxer needs no seeking back, mapped to the muxer name used on a pipe
+    private static final Map<String, String> STREAMABLE_MUXERS = Map.of(
+            "mp3", "mp3",
+            "ogg", "ogg",
+            "opus", "opus",
+            "aac", "adts"
+    );
+    private static final int PIPE_BUFFER_SIZE = 16 * 1024;
     private final AudioFormatConstants audioFormatConstants;
+    private final PcmWavTranscoder pcmWavTranscoder;
+    private final boolean pcmFastPath;
+    private final AudioMetrics audioMetrics;
+    // directory holding the ffmpeg binary, null to look it up on the PATH
+    private final Path ffmpegDir;
 
-    public FFmpegWrapper(AudioFormatConstants audioFormatConstants) {
+    public FFmpegWrapper(AudioFormatConstants audioFormatConstants, PcmWavTranscoder pcmWavTranscoder,
+                         @Value("${audio.conversion.pcm-fast-path.enabled:true}") boolean pcmFastPath,
+                         AudioMetrics audioMetrics,
+                         @Value("${audio.ffmpeg.path:}") String ffmpegPath) {
         this.audioFormatConstants = audioFormatConstants;
+        this.pcmWavTranscoder = pcmWavTranscoder;
+        this.pcmFastPath = pcmFastPath;
+        this.audioMetrics = audioMetrics;
+        this.ffmpegDir = ffmpegPath == null || ffmpegPath.isBlank() ? null : Paths.get(ffmpegPath);
     }
 
     public File convertAudio(File inputFile, String outputFormat) {
-        String outputFileName = inputFile.getName().replaceAll("\\.[^.]+$", "") + "." + outputFormat;
-        Path outputPath = inputFile.toPath().getParent().resolve(outputFileName);
+        return convertAudio(inputFile, outputFormat, null, null);
+    }
+
+    /**
+     * Converts into the output path, next to the input when it is null. When a progressive
+     * stream is given the format must be {@link #isStreamable streamable}, the encoder output
+     * is then piped into it as it is produced while the file is written.
+     */
+    public File convertAudio(File inputFile, String outputFormat, Path outputPath, OutputStream progressiveOut) {
+        return convertAudio(inputFile, outputFormat, audioFormatConstants.getConfig(outputFormat), outputPath, progressiveOut);
+    }
+
+    /**
+     * Converts into the output path with encoder settings other than the format's own, e.g. for
+     * a mezzanine.
+     */
+    public File convertAudio(File inputFile, String outputFormat, AudioFormatConstants.AudioConfig config,
+                             Path outputPath, OutputStream progressiveOut) {
+        return run(inputFile, outputFormat, config, outputPath, progressiveOut, false);
+    }
+
+    /**
+     * Copies the audio stream into the output format's container without decoding it. Only valid
+     * when the format's {@link AudioFormatConstants.AudioConfig#accepts settings accept} the stream.
+     */
+    public File remux(File inputFile, String outputFormat, Path outputPath, OutputStream progressiveOut) {
+        return run(inputFile, outputFormat, audioFormatConstants.getConfig(outputFormat), outputPath, progressiveOut, true);
+    }
+
+    private File run(File inputFile, String outputFormat, AudioFormatConstants.AudioConfig config,
+                     Path outputPath, OutputStream progressiveOut, boolean streamCopy) {
+        if (outputPath == null) {
+            String baseName = inputFile.getName().replaceAll("\\.[^.]+$", "");
+            outputPath = inputFile.toPath().getParent().resolve(baseName + "." + outputFormat);
+        }
+        String baseName = outputPath.getFileName().toString().replaceAll("\\.[^.]+$", "");
+        // ffmpeg writes to a temp file next to the target, keeping the extension so the muxer can be guessed
+        Path tempPath = outputPath.resolveSibling("." + baseName + "." + UUID.randomUUID() + ".part." + outputFormat);
 
-        Log.info("Starting conversion to format: {}", outputFormat);
+        Log.info("Starting conversion to format: {}, progressive: {}, stream copy: {}", outputFormat, progressiveOut != null, streamCopy);
 
+        String sourceFormat = inputFile.getName().contains(".")
+                ? inputFile.getName().substring(inputFile.getName().lastIndexOf('.') + 1).toLowerCase() : "unknown";
+        String engine = (streamCopy ? "copy" : "ffmpeg") + (progressiveOut != null ? "-pipe" : "");
+        long start = System.nanoTime();
         try {
-            AudioFormatConstants.AudioConfig config = audioFormatConstants.getConfig(outputFormat);
+            Files.createDirectories(outputPath.getParent());
 
-            FFmpeg.atPath()
-                    .addInput(UrlInput.fromPath(inputFile.toPath()))
-                    .addOutput(setAudioEncoding(UrlOutput.toPath(outputPath), config))
-                    .execute();
+            // pcm wav to wav or flac needs no codec library, convert in process instead of forking ffmpeg
+            PcmWavTranscoder.WavFormat pcmSource = !streamCopy && progressiveOut == null && pcmFastPath
+                    && pcmWavTranscoder.supportsTarget(config) ? pcmWavTranscoder.probe(inputFile.toPath()) : null;
 
+            if (pcmSource != null && pcmWavTranscoder.supports(pcmSource, config)) {
+                engine = "pcm";
+                pcmWavTranscoder.transcode(inputFile.toPath(), pcmSource, tempPath, config);
+            } else if (progressiveOut == null) {
+                FFmpeg.atPath(ffmpegDir)
+                        .addInput(UrlInput.fromPath(inputFile.toPath()))
+                        .addOutput(setAudioEncoding(UrlOutput.toPath(tempPath), config, streamCopy))
+                        .execute();
+            } else {
+                try (TeeOutputStream tee = new TeeOutputStream(Files.newOutputStream(tempPath, StandardOpenOption.CREATE_NEW), progressiveOut)) {
+                    FFmpeg.atPath(ffmpegDir)
+                            .addInput(UrlInput.fromPath(inputFile.toPath()))
+                            .addOutput(setAudioEncoding(PipeOutput.pumpTo(tee, PIPE_BUFFER_SIZE), config, streamCopy)
+                                    .setFormat(STREAMABLE_MUXERS.get(outputFormat)))
+                            .execute();
+                }
+            }
+
+            // readers only ever see a missing or a complete file
+            Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            audioMetrics.recordConversion(sourceFormat, outputFormat, engine, start, true);
             Log.info("Converted file saved to: {}", outputPath.toString());
             return outputPath.toFile();
 
         } catch (Exception e) {
+            audioMetrics.recordConversion(sourceFormat, outputFormat, engine, start, false);
             Log.error("FFmpeg conversion failed: {}", e.getMessage());
+            deleteQuietly(tempPath);
             throw new StorageException("Failed to convert file: " + e.getMessage());
         }
     }
 
-    private UrlOutput setAudioEncoding(UrlOutput output, AudioFormatConstants.AudioConfig config) {
+    /**
+     * Whether the format can be written to a pipe and played while it is being produced.
+     */
+    public static boolean isStreamable(String format) {
+        return STREAMABLE_MUXERS.containsKey(format);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Log.warn("Failed to delete temp file: {}, error: {}", path, e.getMessage());
+        }
+    }
+
+    private <T extends BaseOutput<T>> T setAudioEncoding(T output, AudioFormatConstants.AudioConfig config, boolean streamCopy) {
+        if (streamCopy) {
+            // the audio stream as it is, without cover art or other streams the container may not take
+            return output.addArguments("-map", "0:a:0").addArguments("-c:a", "copy");
+        }
         output.addArguments("-c:a", config.getCodec());
         if (config.getBitrate() != null) {
             output.addArguments("-b:a", config.getBitrate());
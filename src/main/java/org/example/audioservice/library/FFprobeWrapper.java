@@ -0,0 +1,73 @@
+package org.example.audioservice.library;
+
+import com.github.kokorin.jaffree.StreamType;
+import com.github.kokorin.jaffree.ffprobe.FFprobe;
+import com.github.kokorin.jaffree.ffprobe.FFprobeResult;
+import com.github.kokorin.jaffree.ffprobe.Format;
+import com.github.kokorin.jaffree.ffprobe.Stream;
+import org.example.audioservice.dto.AudioStreamInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Reads the audio stream of a local file with the ffprobe next to the ffmpeg binary. Probing
+ * only parses the container headers, it is run once per upload.
+ */
+@Component
+public class FFprobeWrapper {
+
+    private static final Logger Log = LoggerFactory.getLogger(FFprobeWrapper.class);
+
+    private final boolean enabled;
+    // directory holding the ffprobe binary, null to look it up on the PATH
+    private final Path ffprobeDir;
+
+    public FFprobeWrapper(@Value("${audio.probe.enabled:true}") boolean enabled,
+                          @Value("${audio.ffmpeg.path:}") String ffmpegPath) {
+        this.enabled = enabled;
+        this.ffprobeDir = ffmpegPath == null || ffmpegPath.isBlank() ? null : Paths.get(ffmpegPath);
+    }
+
+    /**
+     * The first audio stream of the file, empty when probing is disabled, fails, or the file
+     * has no audio stream.
+     */
+    public Optional<AudioStreamInfo> probe(Path file) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            FFprobeResult result = FFprobe.atPath(ffprobeDir)
+                    .setShowStreams(true)
+                    .setShowFormat(true)
+                    .setSelectStreams(StreamType.AUDIO)
+                    .setInput(file)
+                    .execute();
+
+            if (result.getStreams() == null || result.getStreams().isEmpty()) {
+                Log.warn("probe_audio|no audio stream in file={}", file);
+                return Optional.empty();
+            }
+            Stream stream = result.getStreams().get(0);
+            Format format = result.getFormat();
+
+            // raw and ogg streams often carry no bitrate or duration of their own, the container's is close enough
+            Long bitrate = stream.getBitRate() != null ? Long.valueOf(stream.getBitRate())
+                    : format != null ? format.getBitRate() : null;
+            Float seconds = stream.getDuration() != null ? stream.getDuration()
+                    : format != null ? format.getDuration() : null;
+
+            return Optional.of(new AudioStreamInfo(stream.getCodecName(), stream.getSampleRate(), stream.getChannels(),
+                    bitrate, seconds != null ? Math.round(seconds * 1000d) : null));
+        } catch (RuntimeException e) {
+            Log.warn("probe_audio|fail|file={}, error={}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
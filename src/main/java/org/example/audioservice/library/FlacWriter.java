@@ -0,0 +1,317 @@
+package org.example.audioservice.library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Writes interleaved 16 bit PCM as a FLAC stream. Every channel of a fixed size block is coded
+ * with the fixed predictor leaving the smallest residual, in a single rice partition, or
+ * verbatim when that is smaller. Compresses less than ffmpeg's LPC encoder but needs no fork.
+ * The stream info carries the MD5 of the samples, so decoders can verify the stream.
+ */
+final class FlacWriter {
+
+    static final int BLOCK_SIZE = 4096;
+
+    private static final int BITS_PER_SAMPLE = 16;
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_RICE_PARAMETER = 14;
+    // "fLaC", the last-block STREAMINFO header and its 34 bytes
+    private static final int STREAMINFO_END = 4 + 4 + 34;
+    private static final int[] CRC8 = crcTable(0x07, 8);
+    private static final int[] CRC16 = crcTable(0x8005, 16);
+
+    private final FileChannel channel;
+    private final int channels;
+    private final int sampleRate;
+    private final int[][] block;
+    private final long[] orderCost = new long[MAX_FIXED_ORDER + 1];
+    private final BitWriter frame = new BitWriter();
+    private final MessageDigest md5;
+    private int blockFill;
+    private long frameNumber;
+    private long totalSamples;
+    private int minFrameSize = Integer.MAX_VALUE;
+    private int maxFrameSize;
+
+    FlacWriter(FileChannel channel, int channels, int sampleRate) throws IOException {
+        this.channel = channel;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.block = new int[channels][BLOCK_SIZE];
+        try {
+            this.md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+        // the stream info is written once the sample count and frame sizes are known
+        channel.position(STREAMINFO_END);
+    }
+
+    /**
+     * Consumes the little endian interleaved samples between position and limit of a heap buffer.
+     */
+    void write(ByteBuffer samples) throws IOException {
+        md5.update(samples.array(), samples.arrayOffset() + samples.position(), samples.remaining());
+        while (samples.remaining() >= channels * 2) {
+            for (int c = 0; c < channels; c++) {
+                block[c][blockFill] = samples.getShort();
+            }
+            if (++blockFill == BLOCK_SIZE) {
+                writeFrame();
+            }
+        }
+    }
+
+    void finish() throws IOException {
+        if (blockFill > 0) {
+            writeFrame();
+        }
+        ByteBuffer header = ByteBuffer.allocate(STREAMINFO_END);
+        header.putInt(0x664C6143); // "fLaC"
+        header.putInt(0x80000000 | 34); // last metadata block, STREAMINFO
+        header.putShort((short) BLOCK_SIZE).putShort((short) BLOCK_SIZE);
+        putInt24(header, frameNumber > 0 ? minFrameSize : 0);
+        putInt24(header, maxFrameSize);
+        header.putLong(((long) sampleRate << 44) | ((long) (channels - 1) << 41)
+                | ((long) (BITS_PER_SAMPLE - 1) << 36) | totalSamples);
+        header.put(md5.digest());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private void writeFrame() throws IOException {
+        int size = blockFill;
+        boolean fullBlock = size == BLOCK_SIZE;
+        int rateCode = sampleRateCode(sampleRate);
+
+        frame.reset();
+        frame.write(0b11111111111110, 14); // sync code
+        frame.write(0, 2); // reserved, fixed block size
+        frame.write(fullBlock ? 0b1100 : 0b0111, 4); // 4096, or 16 bit size - 1 after the frame number
+        frame.write(rateCode, 4);
+        frame.write(channels - 1, 4); // independent channels
+        frame.write(0b100, 3); // 16 bit samples
+        frame.write(0, 1);
+        writeFrameNumber(frameNumber);
+        if (!fullBlock) {
+            frame.write(size - 1, 16);
+        }
+        frame.write(crc(CRC8, 8, frame.bytes(), frame.length()), 8);
+
+        for (int c = 0; c < channels; c++) {
+            writeSubframe(block[c], size);
+        }
+        frame.alignToByte();
+        frame.write(crc(CRC16, 16, frame.bytes(), frame.length()), 16);
+
+        ByteBuffer encoded = ByteBuffer.wrap(frame.bytes(), 0, frame.length());
+        while (encoded.hasRemaining()) {
+            channel.write(encoded);
+        }
+        minFrameSize = Math.min(minFrameSize, frame.length());
+        maxFrameSize = Math.max(maxFrameSize, frame.length());
+        totalSamples += size;
+        frameNumber++;
+        blockFill = 0;
+    }
+
+    private void writeSubframe(int[] samples, int size) {
+        boolean constant = true;
+        for (int i = 1; i < size && constant; i++) {
+            constant = samples[i] == samples[0];
+        }
+        if (constant) {
+            frame.write(0, 8); // zero pad, constant, no wasted bits
+            frame.write(samples[0], BITS_PER_SAMPLE);
+            return;
+        }
+
+        int order = size > MAX_FIXED_ORDER ? bestOrder(samples, size) : -1;
+        int riceParameter = 0;
+        long residualBits = Long.MAX_VALUE;
+        if (order >= 0) {
+            long sum = 0;
+            for (int i = order; i < size; i++) {
+                sum += zigZag(residual(samples, i, order));
+            }
+            long mean = sum / (size - order);
+            riceParameter = mean > 0 ? Math.min(MAX_RICE_PARAMETER, 63 - Long.numberOfLeadingZeros(mean)) : 0;
+            // each residual takes a stop bit and the parameter's low bits, the rest is unary
+            residualBits = (long) (size - order) * (riceParameter + 1) + (sum >> riceParameter);
+        }
+
+        if (residualBits >= (long) (size - Math.max(order, 0)) * BITS_PER_SAMPLE) {
+            frame.write(0b00000010, 8); // zero pad, verbatim, no wasted bits
+            for (int i = 0; i < size; i++) {
+                frame.write(samples[i], BITS_PER_SAMPLE);
+            }
+            return;
+        }
+
+        frame.write((0b001000 | order) << 1, 8); // zero pad, fixed predictor of the order, no wasted bits
+        for (int i = 0; i < order; i++) {
+            frame.write(samples[i], BITS_PER_SAMPLE); // warm-up
+        }
+        frame.write(0, 2); // rice coding with 4 bit parameters
+        frame.write(0, 4); // a single partition
+        frame.write(riceParameter, 4);
+        for (int i = order; i < size; i++) {
+            long value = zigZag(residual(samples, i, order));
+            frame.writeUnary(value >>> riceParameter);
+            frame.write(value, riceParameter);
+        }
+    }
+
+    private int bestOrder(int[] samples, int size) {
+        Arrays.fill(orderCost, 0);
+        for (int i = MAX_FIXED_ORDER; i < size; i++) {
+            for (int order = 0; order <= MAX_FIXED_ORDER; order++) {
+                orderCost[order] += Math.abs(residual(samples, i, order));
+            }
+        }
+        int best = 0;
+        for (int order = 1; order <= MAX_FIXED_ORDER; order++) {
+            if (orderCost[order] < orderCost[best]) {
+                best = order;
+            }
+        }
+        return best;
+    }
+
+    private static long residual(int[] s, int i, int order) {
+        return switch (order) {
+            case 0 -> s[i];
+            case 1 -> (long) s[i] - s[i - 1];
+            case 2 -> (long) s[i] - 2L * s[i - 1] + s[i - 2];
+            case 3 -> (long) s[i] - 3L * s[i - 1] + 3L * s[i - 2] - s[i - 3];
+            default -> (long) s[i] - 4L * s[i - 1] + 6L * s[i - 2] - 4L * s[i - 3] + s[i - 4];
+        };
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    // the frame number in the extended utf-8 coding of the frame header
+    private void writeFrameNumber(long number) {
+        if (number < 0x80) {
+            frame.write(number, 8);
+            return;
+        }
+        int continuation = number < 0x800 ? 1 : number < 0x10000 ? 2 : number < 0x200000 ? 3 : number < 0x4000000 ? 4 : 5;
+        int lead = (0xFF00 >> (continuation + 1)) & 0xFF;
+        frame.write(lead | (number >>> (6 * continuation)), 8);
+        for (int i = continuation - 1; i >= 0; i--) {
+            frame.write(0x80 | ((number >>> (6 * i)) & 0x3F), 8);
+        }
+    }
+
+    private static int sampleRateCode(int sampleRate) {
+        return switch (sampleRate) {
+            case 88200 -> 0b0001;
+            case 176400 -> 0b0010;
+            case 192000 -> 0b0011;
+            case 8000 -> 0b0100;
+            case 16000 -> 0b0101;
+            case 22050 -> 0b0110;
+            case 24000 -> 0b0111;
+            case 32000 -> 0b1000;
+            case 44100 -> 0b1001;
+            case 48000 -> 0b1010;
+            case 96000 -> 0b1011;
+            default -> 0b0000; // taken from the stream info
+        };
+    }
+
+    private static void putInt24(ByteBuffer buffer, int value) {
+        buffer.put((byte) (value >>> 16)).put((byte) (value >>> 8)).put((byte) value);
+    }
+
+    private static int crc(int[] table, int width, byte[] bytes, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc = width == 8
+                    ? table[(crc ^ bytes[i]) & 0xFF]
+                    : ((crc << 8) ^ table[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    private static int[] crcTable(int polynomial, int width) {
+        int topBit = 1 << (width - 1);
+        int mask = (1 << width) - 1;
+        int[] table = new int[256];
+        for (int i = 0; i < 256; i++) {
+            int crc = i << (width - 8);
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & topBit) != 0 ? (crc << 1) ^ polynomial : crc << 1;
+            }
+            table[i] = crc & mask;
+        }
+        return table;
+    }
+
+    /**
+     * Most significant bit first writer over a reused byte array.
+     */
+    private static final class BitWriter {
+
+        private byte[] bytes = new byte[BLOCK_SIZE * 4];
+        private int length;
+        private long pending;
+        private int pendingBits;
+
+        void reset() {
+            length = 0;
+            pending = 0;
+            pendingBits = 0;
+        }
+
+        // the low count bits of the value, count at most 32
+        void write(long value, int count) {
+            if (count == 0) {
+                return;
+            }
+            pending = (pending << count) | (value & ((1L << count) - 1));
+            pendingBits += count;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                bytes[length++] = (byte) (pending >>> pendingBits);
+            }
+        }
+
+        // zeros followed by a one
+        void writeUnary(long zeros) {
+            while (zeros >= 32) {
+                write(0, 32);
+                zeros -= 32;
+            }
+            write(1, (int) zeros + 1);
+        }
+
+        void alignToByte() {
+            if (pendingBits > 0) {
+                write(0, 8 - pendingBits);
+            }
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        // whole bytes written so far
+        int length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.example.audioservice.library;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts PCM WAV files to {@code pcm_s16le} WAV or 16 bit FLAC in the JVM, resampling
+ * linearly and mixing channels, so these conversions do not fork ffmpeg. Works on reused
+ * primitive buffers, the per-sample path does not allocate.
+ */
+@Component
+public class PcmWavTranscoder {
+
+    private static final Logger Log = LoggerFactory.getLogger(PcmWavTranscoder.class);
+
+    public static final String TARGET_CODEC = "pcm_s16le";
+    public static final String FLAC_CODEC = "flac";
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int HEADER_SIZE = 44;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Layout of the PCM samples of a WAV file.
+     */
+    public record WavFormat(int channels, int sampleRate, int bitsPerSample, long dataOffset, long dataLength) {
+
+        int frameSize() {
+            return channels * (bitsPerSample / 8);
+        }
+    }
+
+    /**
+     * Whether the target settings are produced by this transcoder, for some sources.
+     */
+    public boolean supportsTarget(AudioFormatConstants.AudioConfig config) {
+        return TARGET_CODEC.equals(config.getCodec()) || FLAC_CODEC.equals(config.getCodec());
+    }
+
+    /**
+     * Whether the probed source converts to the target here. flac is lossless, so it is only
+     * written from sources that lose nothing on the way: at most 16 bit, at the target rate and
+     * with no more channels than the target.
+     */
+    public boolean supports(WavFormat source, AudioFormatConstants.AudioConfig target) {
+        if (FLAC_CODEC.equals(target.getCodec())) {
+            return source.bitsPerSample() <= 16 && source.sampleRate() == target.getSampleRate()
+                    && source.channels() <= target.getChannels();
+        }
+        return TARGET_CODEC.equals(target.getCodec());
+    }
+
+    /**
+     * Reads the WAV header, returns null when the file is not integer PCM this class can decode.
+     */
+    public WavFormat probe(Path input) {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            if (readFully(channel, header, 0) < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {
+                return null; // not RIFF....WAVE
+            }
+
+            long size = channel.size();
+            long position = 12;
+            ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+            Integer channels = null, sampleRate = null, bits = null;
+            while (position + 8 <= size) {
+                chunk.clear().limit(8);
+                readFully(channel, chunk, position);
+                int id = chunk.getInt(0);
+                long length = Integer.toUnsignedLong(chunk.getInt(4));
+                long body = position + 8;
+
+                if (id == 0x20746d66) { // "fmt "
+                    chunk.clear().limit((int) Math.min(length, 40));
+                    if (length < 16 || readFully(channel, chunk, body) < 16) {
+                        return null;
+                    }
+                    int formatTag = chunk.getShort(0) & 0xFFFF;
+                    if (formatTag == WAVE_FORMAT_EXTENSIBLE && length >= 26) {
+                        formatTag = chunk.getShort(24) & 0xFFFF; // first bytes of the sub format guid
+                    }
+                    if (formatTag != WAVE_FORMAT_PCM) {
+                        return null;
+                    }
+                    channels = chunk.getShort(2) & 0xFFFF;
+                    sampleRate = chunk.getInt(4);
+                    bits = chunk.getShort(14) & 0xFFFF;
+                } else if (id == 0x61746164) { // "data"
+                    if (channels == null || channels == 0 || sampleRate <= 0 || (bits != 8 && bits != 16 && bits != 24 && bits != 32)) {
+                        return null;
+                    }
+                    // streamed files may carry a placeholder length
+                    long dataLength = Math.min(length, size - body);
+                    long frameSize = (long) channels * (bits / 8);
+                    return new WavFormat(channels, sampleRate, bits, body, dataLength - dataLength % frameSize);
+                }
+                position = body + length + (length & 1);
+            }
+            return null;
+        } catch (IOException e) {
+            Log.info("pcm_wav_transcoder|probe failed path={}, error={}", input, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the input, described by its probed format, as 16 bit WAV or FLAC, by the target's
+     * codec, with the target rate and channels.
+     */
+    public void transcode(Path input, WavFormat source, Path output, AudioFormatConstants.AudioConfig target) throws IOException {
+        try (FileChannel writer = FileChannel.open(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            if (FLAC_CODEC.equals(target.getCodec())) {
+                FlacWriter flac = new FlacWriter(writer, target.getChannels(), target.getSampleRate());
+                resample(input, source, target, flac::write);
+                flac.finish();
+            } else {
+                writer.position(HEADER_SIZE);
+                long outFrames = resample(input, source, target, samples -> writeFully(writer, samples));
+                writer.write(header(target.getChannels(), target.getSampleRate(), outFrames * target.getChannels() * 2), 0);
+            }
+            writer.force(true);
+        }
+    }
+
+    // takes the interleaved 16 bit output, draining the buffer between its position and limit
+    private interface SampleSink {
+        void write(ByteBuffer samples) throws IOException;
+    }
+
+    // returns the number of output frames passed to the sink
+    private long resample(Path input, WavFormat source, AudioFormatConstants.AudioConfig target, SampleSink sink) throws IOException {
+        int inChannels = source.channels();
+        int outChannels = target.getChannels();
+        int bytesPerSample = source.bitsPerSample() / 8;
+        int inFrameSize = source.frameSize();
+        float[][] mix = mixMatrix(inChannels, outChannels);
+        // input frames advanced per output frame
+        double step = (double) source.sampleRate() / target.getSampleRate();
+
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE - BUFFER_SIZE % inFrameSize).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        float[] inFrame = new float[inChannels];
+        float[] previous = new float[outChannels];
+        float[] current = new float[outChannels];
+
+        try (FileChannel reader = FileChannel.open(input, StandardOpenOption.READ)) {
+            long frameIndex = 0;
+            double nextOutput = 0;
+            long outFrames = 0;
+            long position = source.dataOffset();
+            long end = source.dataOffset() + source.dataLength();
+
+            while (position < end) {
+                in.clear().limit((int) Math.min(in.capacity(), end - position));
+                int read = readFully(reader, in, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                in.flip();
+
+                while (in.remaining() >= inFrameSize) {
+                    for (int c = 0; c < inChannels; c++) {
+                        inFrame[c] = readSample(in, bytesPerSample);
+                    }
+                    float[] swap = previous;
+                    previous = current;
+                    current = swap;
+                    for (int o = 0; o < outChannels; o++) {
+                        float value = 0;
+                        for (int c = 0; c < inChannels; c++) {
+                            value += mix[o][c] * inFrame[c];
+                        }
+                        current[o] = value;
+                    }
+                    if (frameIndex == 0) {
+                        System.arraycopy(current, 0, previous, 0, outChannels);
+                    }
+
+                    // emit every output frame that falls between the previous and this input frame
+                    while (nextOutput <= frameIndex) {
+                        float fraction = (float) (nextOutput - (frameIndex - 1));
+                        if (out.remaining() < outChannels * 2) {
+                            drain(sink, out);
+                        }
+                        for (int o = 0; o < outChannels; o++) {
+                            float value = previous[o] + (current[o] - previous[o]) * fraction;
+                            out.putShort(toShort(value));
+                        }
+                        outFrames++;
+                        nextOutput = outFrames * step;
+                    }
+                    frameIndex++;
+                }
+            }
+            drain(sink, out);
+
+            Log.info("pcm_wav_transcoder|converted frames in={}, out={}, rate {}->{}, channels {}->{}, codec={}",
+                    frameIndex, outFrames, source.sampleRate(), target.getSampleRate(), inChannels, outChannels, target.getCodec());
+            return outFrames;
+        }
+    }
+
+    private static void drain(SampleSink sink, ByteBuffer out) throws IOException {
+        out.flip();
+        sink.write(out);
+        out.clear();
+    }
+
+    private static float readSample(ByteBuffer in, int bytesPerSample) {
+        return switch (bytesPerSample) {
+            case 1 -> ((in.get() & 0xFF) - 128) / 128f; // 8 bit wav is unsigned
+            case 2 -> in.getShort() / 32768f;
+            case 3 -> ((in.get() & 0xFF) | ((in.get() & 0xFF) << 8) | (in.get() << 16)) / 8388608f;
+            default -> in.getInt() / 2147483648f;
+        };
+    }
+
+    private static short toShort(float value) {
+        int sample = Math.round(value * 32768f);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+    }
+
+    /**
+     * Weight of every input channel in every output channel. Mono is copied to all outputs,
+     * folding to mono averages all inputs, otherwise inputs are averaged round robin.
+     */
+    static float[][] mixMatrix(int inChannels, int outChannels) {
+        float[][] mix = new float[outChannels][inChannels];
+        for (int o = 0; o < outChannels; o++) {
+            if (inChannels == 1) {
+                mix[o][0] = 1f;
+                continue;
+            }
+            int sources = 0;
+            for (int c = o % inChannels; c < inChannels; c += outChannels) {
+                sources++;
+            }
+            for (int c = o % inChannels; c < inChannels; c += outChannels) {
+                mix[o][c] = 1f / sources;
+            }
+        }
+        return mix;
+    }
+
+    private static ByteBuffer header(int channels, int sampleRate, long dataLength) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952).putInt((int) (36 + dataLength)).putInt(0x45564157); // RIFF....WAVE
+        header.putInt(0x20746d66).putInt(16) // "fmt "
+                .putShort((short) WAVE_FORMAT_PCM)
+                .putShort((short) channels)
+                .putInt(sampleRate)
+                .putInt(sampleRate * channels * 2)
+                .putShort((short) (channels * 2))
+                .putShort((short) 16);
+        header.putInt(0x61746164).putInt((int) dataLength); // "data"
+        return header.flip();
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.audioservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the upload, lookup, conversion and serve stages. Tag values are kept to
+ * formats and fixed words so series stay bounded.
+ */
+@Component
+public class AudioMetrics {
+
+    public static final String UPLOAD_STAGE = "audio.upload.stage";
+    public static final String CONVERSION = "audio.conversion";
+    public static final String LOOKUP = "audio.lookup";
+    public static final String SERVED_BYTES = "audio.served.bytes";
+    public static final String EVICTED_BYTES = "audio.derivative.evicted.bytes";
+
+    private final MeterRegistry registry;
+
+    public AudioMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Upload stage duration, {@code write} for storing the bytes and {@code db} for the insert.
+     */
+    public void recordUploadStage(String stage, long startNanos, boolean success) {
+        Timer.builder(UPLOAD_STAGE)
+                .description("Time spent in each upload stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome(success))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Conversion duration by source and target format and the engine that produced it.
+     */
+    public void recordConversion(String sourceFormat, String targetFormat, String engine, long startNanos, boolean success) {
+        Timer.builder(CONVERSION)
+                .description("Time to convert a file into another format")
+                .tag("source", sourceFormat)
+                .tag("target", targetFormat)
+                .tag("engine", engine)
+                .tag("outcome", outcome(success))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * How a download was resolved, {@code hit} for an existing file, {@code converted} or
+     * {@code streamed} for a conversion on the miss.
+     */
+    public void recordLookup(String format, String result) {
+        Counter.builder(LOOKUP)
+                .description("Downloads by how the requested format was resolved")
+                .tag("format", format)
+                .tag("result", result)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordServedBytes(String format, long bytes) {
+        Counter.builder(SERVED_BYTES)
+                .description("Bytes of audio sent to clients")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .register(registry)
+                .increment(bytes);
+    }
+
+    /**
+     * Bytes of converted files deleted to keep the derivatives under their disk budget.
+     */
+    public void recordEviction(String policy, long bytes) {
+        Counter.builder(EVICTED_BYTES)
+                .description("Bytes of converted files evicted from storage")
+                .baseUnit("bytes")
+                .tag("policy", policy)
+                .register(registry)
+                .increment(bytes);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "failure";
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.audioservice.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.audioservice.cache.HotClipCache;
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.service.ConversionScheduler;
+import org.example.audioservice.service.PretranscodeService;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Exposes the state the services already keep: conversion queue, phrase files cache,
+ * hot clip cache and pre-transcode outcomes.
+ */
+@Component
+public class AudioServiceMeterBinder implements MeterBinder {
+
+    private final ConversionScheduler conversionScheduler;
+    private final PhraseFilesCache phraseFilesCache;
+    private final PretranscodeService pretranscodeService;
+    private final HotClipCache hotClipCache;
+
+    public AudioServiceMeterBinder(ConversionScheduler conversionScheduler, PhraseFilesCache phraseFilesCache,
+                                   PretranscodeService pretranscodeService, HotClipCache hotClipCache) {
+        this.conversionScheduler = conversionScheduler;
+        this.phraseFilesCache = phraseFilesCache;
+        this.pretranscodeService = pretranscodeService;
+        this.hotClipCache = hotClipCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audio.conversion.queued", conversionScheduler, ConversionScheduler::getQueued)
+                .description("Conversions waiting for a worker")
+                .register(registry);
+        Gauge.builder("audio.conversion.running", conversionScheduler, ConversionScheduler::getRunning)
+                .description("Conversions running on a worker")
+                .register(registry);
+
+        CaffeineCacheMetrics.monitor(registry, phraseFilesCache.getLocalCache(), "phrase_files");
+        // hit ratio from the cache.gets counts, memory held outside the heap from the gauge
+        CaffeineCacheMetrics.monitor(registry, hotClipCache.getCache(), "hot_clips");
+        Gauge.builder("audio.cache.clips.bytes", hotClipCache, HotClipCache::weightedSize)
+                .description("Bytes of file content held by the hot clip cache")
+                .baseUnit("bytes")
+                .register(registry);
+
+        bindPretranscode(registry, "submitted", PretranscodeService::getSubmitted);
+        bindPretranscode(registry, "completed", PretranscodeService::getCompleted);
+        bindPretranscode(registry, "failed", PretranscodeService::getFailed);
+        bindPretranscode(registry, "rejected", PretranscodeService::getRejected);
+    }
+
+    private void bindPretranscode(MeterRegistry registry, String outcome,
+                                  ToDoubleFunction<PretranscodeService> count) {
+        FunctionCounter.builder("audio.pretranscode", pretranscodeService, count)
+                .description("Background conversions after upload")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
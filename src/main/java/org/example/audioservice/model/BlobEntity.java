@@ -0,0 +1,55 @@
+package org.example.audioservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A stored file shared by every {@link FileEntity} with the same content. Originals are keyed
+ * by the SHA-256 of their bytes, derivatives by their source hash and encoder settings.
+ * Derivatives, the rows with a source hash, are a cache that is evicted above its disk budget.
+ * The lossless mezzanine of an original is kept as long as the original.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "blob_tab", indexes = {
+        @Index(name = "idx_source_hash_last_accessed_at", columnList = "source_hash, last_accessed_at")
+})
+public class BlobEntity {
+
+    public static final String ROLE_MEZZANINE = "mezzanine";
+
+    @Id
+    @Column(name = "blob_key", length = 64)
+    private String blobKey;
+
+    @Column(nullable = false)
+    private String filePath;
+
+    @Column(nullable = false)
+    private Long size;
+
+    // number of file rows pointing at this blob, the file is deleted when it drops to zero
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Long createdAt;
+
+    // read statistics of derivatives, flushed from memory in batches, null for rows stored before they were kept
+    @Column(name = "last_accessed_at")
+    private Long lastAccessedAt;
+
+    @Column(name = "hit_count")
+    private Long hitCount;
+
+    // null for originals and served derivatives, ROLE_MEZZANINE for the lossless decode source of an original
+    @Column(length = 16)
+    private String role;
+}
@@ -0,0 +1,85 @@
+package org.example.audioservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * A conversion of one derivative, queued in the database. There is one row per derivative,
+ * a node runs it while it holds the lease and the row records the outcome. Clients of the
+ * async mode poll it by id, the row is shared by every node so any of them can answer.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "conversion_job_tab", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_phrase_group_format", columnNames = {"user_id", "phrase_id", "group_id", "format"})
+}, indexes = {
+        @Index(name = "idx_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_status_lease_until", columnList = "status, lease_until")
+})
+public class ConversionJobEntity {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED;
+        }
+    }
+
+    @Id
+    @Column(name = "job_id", length = 36)
+    private String jobId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "phrase_id", nullable = false)
+    private Long phraseId;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(nullable = false)
+    private String format;
+
+    // a plain varchar rather than a database enum, so new statuses need no schema change
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // converted file, set once the job is done
+    @Column(name = "file_id")
+    private Long fileId;
+
+    // error of the last failed attempt, kept while the job waits for its retry
+    @Column(length = 512)
+    private String error;
+
+    // attempts started, a lease that ran out counts as one
+    @Column(nullable = false)
+    private Integer attempts;
+
+    // a queued job is not claimed before this time, pushed back after every failed attempt
+    @Column(name = "next_attempt_at", nullable = false)
+    private Long nextAttemptAt;
+
+    // node running the job, its lease is extended while the conversion runs
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Long leaseUntil;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Long createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Long updatedAt;
+}
@@ -14,12 +14,18 @@ import java.time.LocalDateTime;
 @Table(name = "file_tab", indexes = {
         @Index(name = "idx_user_phrase_created_at", columnList = "user_id, phrase_id, created_at DESC"),
         @Index(name = "idx_user_phrase_format_group", columnList = "user_id, phrase_id, format, group_id"),
-        @Index(name = "idx_user_phrase_group", columnList = "user_id, phrase_id, group_id")
+        @Index(name = "idx_user_phrase_group", columnList = "user_id, phrase_id, group_id"),
+        @Index(name = "idx_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_blob_key", columnList = "blob_key")
 })
 public class FileEntity {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // ids come from a pooled sequence rather than IDENTITY, so hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_tab_seq")
+    @SequenceGenerator(name = "file_tab_seq", sequenceName = "file_tab_seq", allocationSize = FileEntity.ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -42,4 +48,29 @@ public class FileEntity {
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private Long createdAt;
+
+    // SHA-256 of the uploaded bytes, for a converted file the hash of the original it was made from
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // shared blob holding the bytes, null for files stored before content addressing
+    @Column(name = "blob_key", length = 64)
+    private String blobKey;
+
+    // audio stream probed at upload, null for files stored before probing or that failed it
+    @Column(name = "codec", length = 32)
+    private String codec;
+
+    @Column(name = "sample_rate")
+    private Integer sampleRate;
+
+    @Column(name = "channels")
+    private Integer channels;
+
+    // bits per second
+    @Column(name = "bitrate")
+    private Long bitrate;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
 }
@@ -0,0 +1,42 @@
+package org.example.audioservice.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores a format to file id map as a compact string, e.g. {@code mp3:12,wav:15}.
+ */
+@Converter
+public class FormatFileIdsConverter implements AttributeConverter<Map<String, Long>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, Long> formatFileIds) {
+        if (formatFileIds == null || formatFileIds.isEmpty()) {
+            return "";
+        }
+        StringBuilder column = new StringBuilder();
+        formatFileIds.forEach((format, fileId) -> {
+            if (!column.isEmpty()) {
+                column.append(',');
+            }
+            column.append(format).append(':').append(fileId);
+        });
+        return column.toString();
+    }
+
+    @Override
+    public Map<String, Long> convertToEntityAttribute(String column) {
+        Map<String, Long> formatFileIds = new LinkedHashMap<>();
+        if (column == null || column.isBlank()) {
+            return formatFileIds;
+        }
+        for (String entry : column.split(",")) {
+            int separator = entry.indexOf(':');
+            formatFileIds.put(entry.substring(0, separator), Long.valueOf(entry.substring(separator + 1)));
+        }
+        return formatFileIds;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.audioservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row per user phrase pointing at its current upload group, so a download
+ * resolves with primary key reads instead of scanning {@code file_tab}.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(PhraseManifestId.class)
+@Table(name = "phrase_manifest_tab")
+public class PhraseManifest {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "phrase_id")
+    private Long phraseId;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "original_file_id", nullable = false)
+    private Long originalFileId;
+
+    // file id of every format available in the group
+    @Convert(converter = FormatFileIdsConverter.class)
+    @Column(name = "formats", nullable = false, length = 512)
+    private Map<String, Long> formatFileIds;
+
+    @Column(name = "updated_at", nullable = false)
+    private Long updatedAt;
+
+    @Version
+    private Long version;
+
+    public void putFormat(String format, Long fileId) {
+        // replace rather than mutate, so the converted column is seen as dirty
+        Map<String, Long> updated = new LinkedHashMap<>(formatFileIds == null ? Map.of() : formatFileIds);
+        updated.put(format, fileId);
+        this.formatFileIds = updated;
+    }
+
+    public void removeFormat(String format) {
+        Map<String, Long> updated = new LinkedHashMap<>(formatFileIds == null ? Map.of() : formatFileIds);
+        updated.remove(format);
+        this.formatFileIds = updated;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.audioservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class PhraseManifestId implements Serializable {
+    private Long userId;
+    private Long phraseId;
+}
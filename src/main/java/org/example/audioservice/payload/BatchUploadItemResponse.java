@@ -0,0 +1,35 @@
+package org.example.audioservice.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import org.example.audioservice.dto.BatchUploadResult;
+
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchUploadItemResponse {
+    private String part;
+    private Long phraseId;
+    private String status;
+    private Integer code;
+    private Long fileId;
+    private String fileName;
+    private String filePath;
+    private Long durationMs;
+    private String message;
+
+    public static BatchUploadItemResponse from(BatchUploadResult result) {
+        return BatchUploadItemResponse.builder()
+                .part(result.getPartName())
+                .phraseId(result.getPhraseId())
+                .status(result.isSuccess() ? "success" : "error")
+                .code(result.getStatus().value())
+                .fileId(result.getFileId())
+                .fileName(result.getFileName())
+                .filePath(result.getFilePath())
+                .durationMs(result.getDurationMs())
+                .message(result.getError())
+                .build();
+    }
+}
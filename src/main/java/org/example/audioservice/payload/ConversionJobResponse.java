@@ -0,0 +1,39 @@
+package org.example.audioservice.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+import org.example.audioservice.model.ConversionJobEntity;
+
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConversionJobResponse {
+    private String jobId;
+    // queued, running, done or failed
+    private String status;
+    private Long userId;
+    private Long phraseId;
+    private String format;
+    private Long fileId;
+    private String error;
+    // attempts started, more than one after a retry
+    private Integer attempts;
+    private Long createdAt;
+    private Long updatedAt;
+
+    public static ConversionJobResponse from(ConversionJobEntity job) {
+        return ConversionJobResponse.builder()
+                .jobId(job.getJobId())
+                .status(job.getStatus().name().toLowerCase())
+                .userId(job.getUserId())
+                .phraseId(job.getPhraseId())
+                .format(job.getFormat())
+                .fileId(job.getFileId())
+                .error(job.getError())
+                .attempts(job.getAttempts())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
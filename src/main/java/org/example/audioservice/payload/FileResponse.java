@@ -10,12 +10,14 @@ public class FileResponse {
     private Long fileId;
     private String fileName;
     private String filePath;
+    private Long durationMs;
 
     public static FileResponse from(FileDTO dto) {
         return FileResponse.builder()
                 .fileId(dto.getFileId())
                 .fileName(dto.getFileName())
                 .filePath(dto.getFilePath())
+                .durationMs(dto.getDurationMs())
                 .build();
     }
 }
@@ -0,0 +1,42 @@
+package org.example.audioservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.audioservice.model.BlobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BlobRepository extends JpaRepository<BlobEntity, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from BlobEntity b where b.blobKey = :blobKey")
+    Optional<BlobEntity> findForUpdate(@Param("blobKey") String blobKey);
+
+    @Modifying
+    @Query("update BlobEntity b set b.hitCount = coalesce(b.hitCount, 0) + :hits, " +
+            "b.lastAccessedAt = case when b.lastAccessedAt is null or b.lastAccessedAt < :accessedAt then :accessedAt else b.lastAccessedAt end " +
+            "where b.blobKey = :blobKey")
+    int recordAccess(@Param("blobKey") String blobKey, @Param("hits") long hits, @Param("accessedAt") long accessedAt);
+
+    // derivatives are the blobs made from a source, originals have no source hash, mezzanines stay with their original
+    @Query("select coalesce(sum(b.size), 0) from BlobEntity b where b.sourceHash is not null and b.role is null")
+    long sumDerivativeSize();
+
+    @Query("select b from BlobEntity b where b.sourceHash is not null and b.role is null " +
+            "and coalesce(b.lastAccessedAt, b.createdAt) < :idleSince " +
+            "order by coalesce(b.lastAccessedAt, b.createdAt) asc")
+    List<BlobEntity> findLeastRecentlyUsedDerivatives(@Param("idleSince") long idleSince, Pageable pageable);
+
+    @Query("select b from BlobEntity b where b.sourceHash is not null and b.role is null " +
+            "and coalesce(b.lastAccessedAt, b.createdAt) < :idleSince " +
+            "order by coalesce(b.hitCount, 0) asc, coalesce(b.lastAccessedAt, b.createdAt) asc")
+    List<BlobEntity> findLeastFrequentlyUsedDerivatives(@Param("idleSince") long idleSince, Pageable pageable);
+}
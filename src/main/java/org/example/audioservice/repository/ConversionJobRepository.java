@@ -0,0 +1,82 @@
+package org.example.audioservice.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversionJobRepository extends JpaRepository<ConversionJobEntity, String> {
+
+    // a lock timeout of -2 is hibernate's SKIP_LOCKED, rows locked by another claimer are left out
+    String SKIP_LOCKED = "-2";
+
+    Optional<ConversionJobEntity> findByUserIdAndPhraseIdAndGroupIdAndFormat(Long userId, Long phraseId, Long groupId, String format);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("select j from ConversionJobEntity j where j.jobId = :jobId")
+    Optional<ConversionJobEntity> findForClaim(@Param("jobId") String jobId);
+
+    // queued jobs due for an attempt and running jobs whose node stopped renewing the lease, oldest first
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("select j from ConversionJobEntity j where " +
+            "(j.status = org.example.audioservice.model.ConversionJobEntity.Status.QUEUED and j.nextAttemptAt <= :now) " +
+            "or (j.status = org.example.audioservice.model.ConversionJobEntity.Status.RUNNING and j.leaseUntil < :now) " +
+            "order by j.nextAttemptAt asc")
+    List<ConversionJobEntity> findClaimable(@Param("now") long now, Pageable pageable);
+
+    // a finished job of the derivative is queued again, for a derivative evicted since or a new try after a failure
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update ConversionJobEntity j set j.status = org.example.audioservice.model.ConversionJobEntity.Status.QUEUED, " +
+            "j.attempts = 0, j.nextAttemptAt = :now, j.fileId = null, j.error = null, j.updatedAt = :now " +
+            "where j.userId = :userId and j.phraseId = :phraseId and j.groupId = :groupId and j.format = :format " +
+            "and j.status in (org.example.audioservice.model.ConversionJobEntity.Status.DONE, " +
+            "org.example.audioservice.model.ConversionJobEntity.Status.FAILED)")
+    int requeueFinished(@Param("userId") Long userId, @Param("phraseId") Long phraseId, @Param("groupId") Long groupId,
+                        @Param("format") String format, @Param("now") long now);
+
+    @Transactional
+    @Modifying
+    @Query("update ConversionJobEntity j set j.leaseUntil = :leaseUntil, j.updatedAt = :now " +
+            "where j.jobId in :jobIds and j.leaseOwner = :owner " +
+            "and j.status = org.example.audioservice.model.ConversionJobEntity.Status.RUNNING")
+    int renewLeases(@Param("jobIds") Collection<String> jobIds, @Param("owner") String owner,
+                    @Param("leaseUntil") long leaseUntil, @Param("now") long now);
+
+    // hands a job back to the queue, only while the node still holds its lease
+    @Transactional
+    @Modifying
+    @Query("update ConversionJobEntity j set j.status = org.example.audioservice.model.ConversionJobEntity.Status.QUEUED, " +
+            "j.attempts = j.attempts - :refund, j.nextAttemptAt = :nextAttemptAt, j.error = :error, " +
+            "j.leaseOwner = null, j.leaseUntil = null, j.updatedAt = :now " +
+            "where j.jobId = :jobId and j.leaseOwner = :owner " +
+            "and j.status = org.example.audioservice.model.ConversionJobEntity.Status.RUNNING")
+    int requeueLeased(@Param("jobId") String jobId, @Param("owner") String owner, @Param("refund") int refund,
+                      @Param("nextAttemptAt") long nextAttemptAt, @Param("error") String error, @Param("now") long now);
+
+    // records the outcome only while the node still holds the lease, a node that lost it to
+    // another claim must not finish the job under the new owner
+    @Transactional
+    @Modifying
+    @Query("update ConversionJobEntity j set j.status = :status, j.fileId = :fileId, j.error = :error, j.updatedAt = :updatedAt, " +
+            "j.leaseOwner = null, j.leaseUntil = null " +
+            "where j.jobId = :jobId and j.leaseOwner = :owner " +
+            "and j.status = org.example.audioservice.model.ConversionJobEntity.Status.RUNNING")
+    int updateStatus(@Param("jobId") String jobId, @Param("owner") String owner, @Param("status") ConversionJobEntity.Status status,
+                     @Param("fileId") Long fileId, @Param("error") String error, @Param("updatedAt") long updatedAt);
+}
@@ -1,9 +1,13 @@
 package org.example.audioservice.repository;
 
+import org.example.audioservice.dto.PhraseKey;
 import org.example.audioservice.model.FileEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +15,11 @@ public interface FileRepository extends JpaRepository<FileEntity, Long> {
     Optional<FileEntity> findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(Long userId, Long phraseId);
     Optional<FileEntity> findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(Long userId, Long phraseId, String format, Long groupId);
     Optional<FileEntity> findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(Long userId, Long phraseId, Long groupId);
+    List<FileEntity> findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(Long userId, Long phraseId, Long groupId);
+    List<FileEntity> findByBlobKey(String blobKey);
+
+    // phrases uploaded before the manifest table existed
+    @Query("select distinct new org.example.audioservice.dto.PhraseKey(f.userId, f.phraseId) from FileEntity f " +
+            "where not exists (select m from PhraseManifest m where m.userId = f.userId and m.phraseId = f.phraseId)")
+    List<PhraseKey> findPhrasesWithoutManifest(Pageable pageable);
 }
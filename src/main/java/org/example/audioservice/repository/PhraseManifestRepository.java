@@ -0,0 +1,28 @@
+package org.example.audioservice.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.audioservice.model.PhraseManifest;
+import org.example.audioservice.model.PhraseManifestId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PhraseManifestRepository extends JpaRepository<PhraseManifest, PhraseManifestId> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from PhraseManifest m where m.userId = :userId and m.phraseId = :phraseId")
+    Optional<PhraseManifest> findForUpdate(@Param("userId") Long userId, @Param("phraseId") Long phraseId);
+
+    List<PhraseManifest> findByUserIdAndPhraseIdIn(Long userId, Collection<Long> phraseIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from PhraseManifest m where m.userId = :userId and m.phraseId in :phraseIds")
+    List<PhraseManifest> findAllForUpdate(@Param("userId") Long userId, @Param("phraseIds") Collection<Long> phraseIds);
+}
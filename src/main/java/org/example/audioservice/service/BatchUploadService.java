@@ -0,0 +1,178 @@
+package org.example.audioservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.audioservice.dto.BatchUploadPart;
+import org.example.audioservice.dto.BatchUploadResult;
+import org.example.audioservice.exception.BaseException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads many phrases of one user in a single request. The parts are written to storage in
+ * parallel, then every stored part is saved in one transaction whose inserts are batched.
+ * Each part gets its own result, a failing part does not fail the others.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger Log = LoggerFactory.getLogger(BatchUploadService.class);
+
+    private final FileService fileService;
+    private final PhraseManifestService phraseManifestService;
+    private final BlobStore blobStore;
+    private final AudioMetrics audioMetrics;
+    private final int maxParts;
+    private final ExecutorService writers;
+
+    public BatchUploadService(FileService fileService, PhraseManifestService phraseManifestService, BlobStore blobStore,
+                              AudioMetrics audioMetrics,
+                              @Value("${audio.upload.batch.max-parts:50}") int maxParts,
+                              @Value("${audio.upload.batch.parallelism:4}") int parallelism) {
+        this.fileService = fileService;
+        this.phraseManifestService = phraseManifestService;
+        this.blobStore = blobStore;
+        this.audioMetrics = audioMetrics;
+        this.maxParts = maxParts;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-upload-writer-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<BatchUploadResult> saveAudioFiles(Long userId, List<BatchUploadPart> parts) {
+        Log.info("save_audio_files|start|userId={}, parts={}", userId, parts.size());
+
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("Batch upload contains no files");
+        }
+        if (parts.size() > maxParts) {
+            throw new IllegalArgumentException("Batch upload contains " + parts.size() + " files, the limit is " + maxParts);
+        }
+        fileService.checkUser(userId);
+
+        // write every valid part to storage, in parallel
+        BatchUploadResult[] results = new BatchUploadResult[parts.size()];
+        List<CompletableFuture<FileService.StagedUpload>> writes = new ArrayList<>(parts.size());
+        Set<Long> phraseIds = new HashSet<>();
+        for (int i = 0; i < parts.size(); i++) {
+            BatchUploadPart part = parts.get(i);
+            Long phraseId = parsePhraseId(part.name());
+            CompletableFuture<FileService.StagedUpload> write = null;
+            if (phraseId == null) {
+                results[i] = failure(part, null, HttpStatus.BAD_REQUEST, "Part name must be a phrase id");
+            } else if (!phraseIds.add(phraseId)) {
+                results[i] = failure(part, phraseId, HttpStatus.BAD_REQUEST, "Duplicate phrase in batch upload");
+            } else {
+                write = CompletableFuture.supplyAsync(() -> {
+                    fileService.checkPhrase(phraseId);
+                    return fileService.stageUpload(part.file(), userId, phraseId);
+                }, writers);
+            }
+            writes.add(write);
+        }
+
+        List<Integer> stagedIndexes = new ArrayList<>();
+        List<FileService.StagedUpload> staged = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            if (writes.get(i) == null) {
+                continue;
+            }
+            try {
+                staged.add(writes.get(i).join());
+                stagedIndexes.add(i);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                Log.info("save_audio_files|part failed name={}, error={}", parts.get(i).name(), cause.getMessage());
+                results[i] = failure(parts.get(i), parsePhraseId(parts.get(i).name()), statusOf(cause), cause.getMessage());
+            }
+        }
+
+        // one transaction for all stored parts, the rows go out in jdbc batches
+        if (!staged.isEmpty()) {
+            long stageStart = System.nanoTime();
+            List<FileEntity> saved = null;
+            try {
+                saved = phraseManifestService.recordUploads(userId, staged.stream().map(FileService.StagedUpload::file).toList());
+                audioMetrics.recordUploadStage("db", stageStart, true);
+            } catch (RuntimeException e) {
+                audioMetrics.recordUploadStage("db", stageStart, false);
+                Log.error("save_audio_files|fail|failed to save batch userId={}, files={}, error={}", userId, staged.size(), e.getMessage());
+                for (int j = 0; j < staged.size(); j++) {
+                    // the rows were never written, give back their references
+                    blobStore.release(staged.get(j).blob().getBlobKey());
+                    int index = stagedIndexes.get(j);
+                    results[index] = failure(parts.get(index), staged.get(j).file().getPhraseId(),
+                            HttpStatus.INTERNAL_SERVER_ERROR, "Failed to save file: " + e.getMessage());
+                }
+            }
+
+            for (int j = 0; saved != null && j < saved.size(); j++) {
+                FileEntity savedFile = saved.get(j);
+                int index = stagedIndexes.get(j);
+                fileService.uploadSaved(savedFile);
+                results[index] = BatchUploadResult.builder()
+                        .partName(parts.get(index).name())
+                        .phraseId(savedFile.getPhraseId())
+                        .status(HttpStatus.OK)
+                        .fileId(savedFile.getId())
+                        .fileName(savedFile.getFileName())
+                        .filePath(savedFile.getFilePath())
+                        .durationMs(savedFile.getDurationMs())
+                        .build();
+            }
+        }
+
+        long failed = Arrays.stream(results).filter(result -> !result.isSuccess()).count();
+        Log.info("save_audio_files|end|userId={}, saved={}, failed={}", userId, parts.size() - failed, failed);
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+    }
+
+    private static Long parsePhraseId(String name) {
+        try {
+            return name == null ? null : Long.valueOf(name.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static HttpStatus statusOf(Throwable error) {
+        if (error instanceof BaseException baseException) {
+            return baseException.getStatus();
+        }
+        return error instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    private static BatchUploadResult failure(BatchUploadPart part, Long phraseId, HttpStatus status, String error) {
+        return BatchUploadResult.builder()
+                .partName(part.name())
+                .phraseId(phraseId)
+                .status(status)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.exception.UnsupportedFileFormatException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Serves many phrases of a user in one format. All phrases are resolved with one manifest
+ * query, files that exist are handed out first, missing derivatives are converted through
+ * the shared conversion path a few at a time and handed out in the order they complete.
+ */
+@Service
+public class BulkDownloadService {
+
+    private static final Logger Log = LoggerFactory.getLogger(BulkDownloadService.class);
+
+    private final FileService fileService;
+    private final PhraseManifestService phraseManifestService;
+    private final AudioMetrics audioMetrics;
+    private final int maxPhrases;
+    // conversions one request keeps queued, below the per-user queue capacity of the scheduler
+    private final int conversionWindow;
+
+    private record Completion(ConversionKey key, FileEntity file, Throwable error) {
+    }
+
+    public BulkDownloadService(FileService fileService, PhraseManifestService phraseManifestService, AudioMetrics audioMetrics,
+                               @Value("${audio.download.bulk.max-phrases:100}") int maxPhrases,
+                               @Value("${audio.download.bulk.conversion-window:4}") int conversionWindow) {
+        this.fileService = fileService;
+        this.phraseManifestService = phraseManifestService;
+        this.audioMetrics = audioMetrics;
+        this.maxPhrases = maxPhrases;
+        this.conversionWindow = conversionWindow;
+    }
+
+    public void getAudioFiles(Long userId, List<Long> phraseIds, String format, BulkDownloadSink sink) throws IOException {
+        Log.info("get_audio_files|start|userId={}, phrases={}, format={}", userId, phraseIds.size(), format);
+
+        format = format.toLowerCase();
+        if (FileUtils.getMimeTypeFromExtension(format) == null) {
+            Log.info("get_audio_files|fail|format not supported={}", format);
+            throw new UnsupportedFileFormatException("Unsupported format: " + format);
+        }
+        List<Long> phrases = new ArrayList<>(new LinkedHashSet<>(phraseIds));
+        if (phrases.isEmpty()) {
+            throw new IllegalArgumentException("No phrase ids given");
+        }
+        if (phrases.size() > maxPhrases) {
+            throw new IllegalArgumentException("Too many phrases: " + phrases.size() + ", the limit is " + maxPhrases);
+        }
+
+        Map<Long, PhraseFiles> resolved = phraseManifestService.resolveAll(userId, phrases);
+
+        List<Long> missing = new ArrayList<>();
+        List<PhraseFiles> ready = new ArrayList<>();
+        Deque<ConversionKey> pending = new ArrayDeque<>();
+        for (Long phraseId : phrases) {
+            PhraseFiles phraseFiles = resolved.get(phraseId);
+            if (phraseFiles == null) {
+                missing.add(phraseId);
+            } else if (phraseFiles.getFile(format) != null) {
+                ready.add(phraseFiles);
+            } else {
+                pending.add(new ConversionKey(userId, phraseId, phraseFiles.getGroupId(), format));
+            }
+        }
+        Log.info("get_audio_files|resolved userId={}, ready={}, to convert={}, missing={}", userId, ready.size(), pending.size(), missing.size());
+
+        // conversions run while the ready files are written
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        int inFlight = startConversions(pending, completions, conversionWindow);
+
+        for (Long phraseId : missing) {
+            sink.failed(phraseId, "No file available");
+        }
+        for (PhraseFiles phraseFiles : ready) {
+            FileEntity file = phraseFiles.getFile(format);
+            if (deliver(file, format, "hit", sink)) {
+                continue;
+            }
+            if (phraseFiles.isOriginal(file)) {
+                sink.failed(file.getPhraseId(), "Missing file");
+            } else {
+                // evicted derivative, converted again like any other miss
+                pending.add(new ConversionKey(userId, file.getPhraseId(), phraseFiles.getGroupId(), format));
+            }
+        }
+        inFlight += startConversions(pending, completions, conversionWindow - inFlight);
+
+        while (inFlight > 0) {
+            Completion completion = take(completions);
+            inFlight--;
+            if (completion.error() == null) {
+                if (!deliver(completion.file(), format, "converted", sink)) {
+                    sink.failed(completion.key().phraseId(), "Missing file");
+                }
+            } else if (completion.error() instanceof ConversionRejectedException && inFlight > 0) {
+                // the scheduler queue is full, try again once one of ours has finished
+                pending.addFirst(completion.key());
+                continue;
+            } else {
+                Log.info("get_audio_files|conversion failed phraseId={}, error={}", completion.key().phraseId(), completion.error().getMessage());
+                sink.failed(completion.key().phraseId(), completion.error().getMessage());
+            }
+            inFlight += startConversions(pending, completions, conversionWindow - inFlight);
+        }
+        for (ConversionKey key : pending) {
+            sink.failed(key.phraseId(), "Conversion capacity exceeded, retry later");
+        }
+
+        Log.info("get_audio_files|end|userId={}, phrases={}, format={}", userId, phrases.size(), format);
+    }
+
+    private int startConversions(Deque<ConversionKey> pending, BlockingQueue<Completion> completions, int slots) {
+        int started = 0;
+        while (started < slots && !pending.isEmpty()) {
+            ConversionKey key = pending.pollFirst();
+            fileService.requestConversion(key)
+                    .whenComplete((file, error) -> completions.add(new Completion(key, file, error)));
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * Writes the file to the sink, or reports it as failed when it cannot be read. Returns
+     * false, leaving the phrase to the caller, when the file is gone.
+     */
+    private boolean deliver(FileEntity file, String format, String result, BulkDownloadSink sink) throws IOException {
+        FileDownloadDTO download;
+        try {
+            download = fileService.findDownload(file);
+        } catch (StorageException e) {
+            sink.failed(file.getPhraseId(), e.getMessage());
+            return true;
+        }
+        if (download == null) {
+            return false;
+        }
+        audioMetrics.recordLookup(format, result);
+        sink.file(file.getPhraseId(), download);
+        return true;
+    }
+
+    private static Completion take(BlockingQueue<Completion> completions) throws IOException {
+        try {
+            return completions.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for conversions");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.FileDownloadDTO;
+
+import java.io.IOException;
+
+/**
+ * Receives the files of a bulk download one by one, as soon as each is available.
+ */
+public interface BulkDownloadSink {
+
+    void file(Long phraseId, FileDownloadDTO file) throws IOException;
+
+    void failed(Long phraseId, String reason) throws IOException;
+}
@@ -0,0 +1,64 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.config.ReadRouting;
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.exception.ResourceNotFoundException;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.example.audioservice.repository.ConversionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Conversions requested in async mode. The request queues the derivative's job and returns
+ * it right away, the conversion queue workers of any node run it and record its outcome on
+ * the job row, which clients poll on any node. A client retrying a miss gets the job already
+ * converting it instead of a second conversion.
+ */
+@Service
+public class ConversionJobService {
+
+    private static final Logger Log = LoggerFactory.getLogger(ConversionJobService.class);
+
+    private final ConversionJobRepository jobRepository;
+    private final ConversionQueue conversionQueue;
+    private final ConversionQueueWorker conversionQueueWorker;
+    private final PhraseFilesCache phraseFilesCache;
+
+    public ConversionJobService(ConversionJobRepository jobRepository, ConversionQueue conversionQueue,
+                                ConversionQueueWorker conversionQueueWorker, PhraseFilesCache phraseFilesCache) {
+        this.jobRepository = jobRepository;
+        this.conversionQueue = conversionQueue;
+        this.conversionQueueWorker = conversionQueueWorker;
+        this.phraseFilesCache = phraseFilesCache;
+    }
+
+    /**
+     * Queues the conversion of the phrase's current group into the format, or returns the
+     * unfinished job already doing it.
+     */
+    public ConversionJobEntity submit(Long userId, Long phraseId, String format) {
+        String checkedFormat = format.toLowerCase();
+        PhraseFiles phraseFiles = phraseFilesCache.get(userId, phraseId)
+                .orElseThrow(() -> new ResourceNotFoundException("No file available for userId: " + userId + ", phraseId: " + phraseId + ", format: " + format));
+        ConversionKey key = new ConversionKey(userId, phraseId, phraseFiles.getGroupId(), checkedFormat);
+
+        ConversionJobEntity job = conversionQueue.enqueue(key);
+        Log.info("conversion_job|job={} status={} for userId={}, phraseId={}, group={}, format={}",
+                job.getJobId(), job.getStatus(), userId, phraseId, key.groupId(), checkedFormat);
+        if (job.getStatus() == ConversionJobEntity.Status.QUEUED) {
+            // claimed here when this node has room, by the next poll of any node otherwise
+            conversionQueueWorker.wakeUp();
+        }
+        return job;
+    }
+
+    public ConversionJobEntity getJob(String jobId) {
+        // a job polled right after it was queued may not be on the replica yet
+        return jobRepository.findById(jobId)
+                .or(() -> ReadRouting.onPrimary(() -> jobRepository.findById(jobId)))
+                .orElseThrow(() -> new ResourceNotFoundException("No conversion job: " + jobId));
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.config.ReadRouting;
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.exception.BaseException;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.example.audioservice.exception.ResourceNotFoundException;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.example.audioservice.repository.ConversionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Conversions queued in {@code conversion_job_tab}, shared by every node. A derivative has
+ * one job row, so any number of requests and nodes asking for it queue one conversion. A
+ * node claims a job with {@code SELECT ... FOR UPDATE SKIP LOCKED} and holds a lease on it
+ * while it converts, renewed by {@link ConversionQueueWorker}. A job whose node died is
+ * claimed again once its lease runs out, a failed attempt is retried with an exponential
+ * backoff until {@code audio.conversion.queue.max-attempts}.
+ */
+@Service
+public class ConversionQueue {
+
+    private static final Logger Log = LoggerFactory.getLogger(ConversionQueue.class);
+
+    // longest error message kept on the job row
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private record Watch(String jobId, int attempts, long deadline, CompletableFuture<Long> done) {
+    }
+
+    private final ConversionJobRepository jobRepository;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long maxRetryBackoffMillis;
+    private final long waitTimeoutMillis;
+    private final long retryAfterSeconds;
+    // jobs this node holds the lease of
+    private final Set<String> leased = ConcurrentHashMap.newKeySet();
+    // requests waiting on a job leased by another node, by job id
+    private final ConcurrentMap<String, Watch> watches = new ConcurrentHashMap<>();
+
+    public ConversionQueue(ConversionJobRepository jobRepository,
+                           @Value("${audio.conversion.queue.node-id:}") String nodeId,
+                           @Value("${audio.conversion.queue.lease:30s}") Duration lease,
+                           @Value("${audio.conversion.queue.max-attempts:5}") int maxAttempts,
+                           @Value("${audio.conversion.queue.retry-backoff:5s}") Duration retryBackoff,
+                           @Value("${audio.conversion.queue.max-retry-backoff:5m}") Duration maxRetryBackoff,
+                           @Value("${audio.conversion.queue.wait-timeout:60s}") Duration waitTimeout,
+                           @Value("${audio.conversion.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.jobRepository = jobRepository;
+        // a restarted node gets a new id, the leases of its previous run just expire
+        this.nodeId = nodeId == null || nodeId.isBlank() ? hostName() + "-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+        this.leaseMillis = lease.toMillis();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.maxRetryBackoffMillis = maxRetryBackoff.toMillis();
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * The job of the derivative, queued when there is none. A finished job is queued again,
+     * the caller only asks for a derivative it could not find.
+     */
+    public ConversionJobEntity enqueue(ConversionKey key) {
+        long now = System.currentTimeMillis();
+        if (jobRepository.requeueFinished(key.userId(), key.phraseId(), key.groupId(), key.format(), now) > 0) {
+            Log.info("conversion_queue|queued again finished job of group={}, format={}", key.groupId(), key.format());
+        }
+
+        Optional<ConversionJobEntity> existing = findJob(key);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            ConversionJobEntity job = jobRepository.saveAndFlush(ConversionJobEntity.builder()
+                    .jobId(UUID.randomUUID().toString())
+                    .userId(key.userId())
+                    .phraseId(key.phraseId())
+                    .groupId(key.groupId())
+                    .format(key.format())
+                    .status(ConversionJobEntity.Status.QUEUED)
+                    .attempts(0)
+                    .nextAttemptAt(now)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+            Log.info("conversion_queue|queued job={} userId={}, phraseId={}, group={}, format={}",
+                    job.getJobId(), key.userId(), key.phraseId(), key.groupId(), key.format());
+            return job;
+        } catch (DataIntegrityViolationException e) {
+            // another request or node queued it first
+            return findJob(key).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Takes the lease of the job when it is queued, whatever its backoff, or its lease ran out.
+     * Empty when another node holds it, or when the job failed because its lease ran out on
+     * the last attempt.
+     */
+    @Transactional
+    public Optional<ConversionJobEntity> claim(String jobId) {
+        long now = System.currentTimeMillis();
+        return jobRepository.findForClaim(jobId)
+                .filter(job -> job.getStatus() == ConversionJobEntity.Status.QUEUED
+                        || job.getStatus() == ConversionJobEntity.Status.RUNNING && job.getLeaseUntil() != null && job.getLeaseUntil() < now)
+                .filter(job -> !failedOnLastAttempt(job, now))
+                .map(job -> lease(job, now));
+    }
+
+    /**
+     * Takes the lease of up to {@code limit} jobs due for an attempt, oldest first. Jobs
+     * locked by a claim on another node are skipped rather than waited for.
+     */
+    @Transactional
+    public List<ConversionJobEntity> claimReady(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<ConversionJobEntity> claimed = new ArrayList<>();
+        for (ConversionJobEntity job : jobRepository.findClaimable(now, PageRequest.of(0, limit))) {
+            if (!failedOnLastAttempt(job, now)) {
+                claimed.add(lease(job, now));
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Extends the leases of the jobs this node is converting.
+     */
+    public void renewLeases() {
+        if (leased.isEmpty()) {
+            return;
+        }
+        List<String> jobIds = List.copyOf(leased);
+        long now = System.currentTimeMillis();
+        int renewed = jobRepository.renewLeases(jobIds, nodeId, now + leaseMillis, now);
+        if (renewed < jobIds.size()) {
+            // claimed by another node after a missed heartbeat, that node records the outcome
+            Log.warn("conversion_queue|renewed leases={} of held={} on node={}", renewed, jobIds.size(), nodeId);
+        }
+    }
+
+    /**
+     * Records the converted file of a job this node leased.
+     */
+    public void complete(ConversionJobEntity job, Long fileId) {
+        leased.remove(job.getJobId());
+        try {
+            if (jobRepository.updateStatus(job.getJobId(), nodeId, ConversionJobEntity.Status.DONE, fileId, null, System.currentTimeMillis()) > 0) {
+                Log.info("conversion_queue|job={} done, fileId={}, attempt={}", job.getJobId(), fileId, job.getAttempts());
+            } else {
+                // the new owner finds the converted file and records it
+                Log.warn("conversion_queue|job={} not completed, node={} lost its lease", job.getJobId(), nodeId);
+            }
+        } catch (RuntimeException e) {
+            // the lease runs out and the job is claimed again, which finds the converted file
+            Log.error("conversion_queue|failed to complete job={}, error={}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Records that the conversion workers turned away a job a request claimed. The request
+     * answers with the rejection, so the job fails instead of going back to the queue, where
+     * a queue worker would convert it past the limits. The next request for the derivative
+     * queues it again.
+     */
+    public void reject(ConversionJobEntity job, ConversionRejectedException rejection) {
+        leased.remove(job.getJobId());
+        try {
+            jobRepository.updateStatus(job.getJobId(), nodeId, ConversionJobEntity.Status.FAILED, null,
+                    truncate(rejection.getMessage()), System.currentTimeMillis());
+            Log.info("conversion_queue|job={} rejected on node={}, status={}", job.getJobId(), nodeId, rejection.getStatus().value());
+        } catch (RuntimeException e) {
+            Log.error("conversion_queue|failed to record rejection of job={}, error={}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Records a failed attempt of a job this node leased. A queued job the conversion workers
+     * rejected never started and goes back to the queue at once, a client error fails the job, anything else
+     * is retried after a backoff until the attempts run out.
+     */
+    public void fail(ConversionJobEntity job, Throwable error) {
+        leased.remove(job.getJobId());
+        String message = truncate(error.getMessage());
+        long now = System.currentTimeMillis();
+        try {
+            if (error instanceof ConversionRejectedException) {
+                jobRepository.requeueLeased(job.getJobId(), nodeId, 1, now, job.getError(), now);
+                Log.info("conversion_queue|job={} handed back, node={} is full", job.getJobId(), nodeId);
+            } else if (job.getAttempts() >= maxAttempts
+                    || error instanceof BaseException base && base.getStatus().is4xxClientError()) {
+                jobRepository.updateStatus(job.getJobId(), nodeId, ConversionJobEntity.Status.FAILED, null, message, now);
+                Log.warn("conversion_queue|job={} failed after attempts={}, error={}", job.getJobId(), job.getAttempts(), message);
+            } else {
+                long backoff = backoffMillis(job.getAttempts());
+                jobRepository.requeueLeased(job.getJobId(), nodeId, 0, now + backoff, message, now);
+                Log.warn("conversion_queue|job={} attempt={} failed, retrying in ms={}, error={}",
+                        job.getJobId(), job.getAttempts(), backoff, message);
+            }
+        } catch (RuntimeException e) {
+            Log.error("conversion_queue|failed to record failure of job={}, error={}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Completes with the converted file id once the job, leased by another node, is done.
+     * Fails when the job fails, when the attempt running at the time of the call fails, or
+     * with a {@link ConversionRejectedException} after {@code audio.conversion.queue.wait-timeout}.
+     * The outcome is checked by {@link #pollWatches}.
+     */
+    public CompletableFuture<Long> awaitDone(ConversionJobEntity job) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        return watches.computeIfAbsent(job.getJobId(),
+                jobId -> new Watch(jobId, job.getAttempts(), deadline, new CompletableFuture<>())).done();
+    }
+
+    /**
+     * Settles the waits whose job finished, with one lookup for all of them.
+     */
+    public void pollWatches() {
+        if (watches.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // a job finished by another node may not be on the replica yet
+        Map<String, ConversionJobEntity> jobs = ReadRouting.onPrimary(() -> jobRepository.findAllById(List.copyOf(watches.keySet())))
+                .stream()
+                .collect(Collectors.toMap(ConversionJobEntity::getJobId, Function.identity()));
+
+        for (Watch watch : watches.values()) {
+            ConversionJobEntity job = jobs.get(watch.jobId());
+            if (job == null) {
+                watch.done().completeExceptionally(new ResourceNotFoundException("No conversion job: " + watch.jobId()));
+            } else if (job.getStatus() == ConversionJobEntity.Status.DONE) {
+                watch.done().complete(job.getFileId());
+            } else if (job.getStatus() == ConversionJobEntity.Status.FAILED
+                    || job.getStatus() == ConversionJobEntity.Status.QUEUED && job.getAttempts() > watch.attempts()) {
+                // a queued job with more attempts failed the one waited for, its retry is not waited for
+                watch.done().completeExceptionally(new StorageException("Conversion failed: " + job.getError()));
+            } else if (now > watch.deadline()) {
+                watch.done().completeExceptionally(new ConversionRejectedException("Conversion is still running on another node",
+                        HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds));
+            } else {
+                continue;
+            }
+            watches.remove(watch.jobId(), watch);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    private ConversionJobEntity lease(ConversionJobEntity job, long now) {
+        job.setStatus(ConversionJobEntity.Status.RUNNING);
+        job.setAttempts(job.getAttempts() + 1);
+        job.setLeaseOwner(nodeId);
+        job.setLeaseUntil(now + leaseMillis);
+        job.setUpdatedAt(now);
+        leased.add(job.getJobId());
+        Log.info("conversion_queue|claimed job={} attempt={}, group={}, format={}, node={}",
+                job.getJobId(), job.getAttempts(), job.getGroupId(), job.getFormat(), nodeId);
+        return job;
+    }
+
+    // fails a locked job whose lease ran out while its last attempt was running
+    private boolean failedOnLastAttempt(ConversionJobEntity job, long now) {
+        if (job.getStatus() != ConversionJobEntity.Status.RUNNING || job.getAttempts() < maxAttempts) {
+            return false;
+        }
+        // the node running its last attempt is gone
+        Log.warn("conversion_queue|job={} failed, lease of node={} expired on its last attempt", job.getJobId(), job.getLeaseOwner());
+        job.setStatus(ConversionJobEntity.Status.FAILED);
+        job.setError("Conversion lease expired after " + job.getAttempts() + " attempts");
+        job.setLeaseOwner(null);
+        job.setLeaseUntil(null);
+        job.setUpdatedAt(now);
+        return true;
+    }
+
+    private Optional<ConversionJobEntity> findJob(ConversionKey key) {
+        return jobRepository.findByUserIdAndPhraseIdAndGroupIdAndFormat(key.userId(), key.phraseId(), key.groupId(), key.format());
+    }
+
+    private long backoffMillis(int attempts) {
+        return Math.min(maxRetryBackoffMillis, retryBackoffMillis << Math.min(Math.max(attempts - 1, 0), 20));
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static String hostName() {
+        try {
+            // leaves room for the suffix in lease_owner
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 48 ? host.substring(0, 48) : host;
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
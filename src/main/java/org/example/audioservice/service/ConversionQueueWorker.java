@@ -0,0 +1,118 @@
+package org.example.audioservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the conversion queue from every node, so conversion capacity grows with the nodes.
+ * Every {@code audio.conversion.queue.poll-interval} it claims the jobs due for an attempt,
+ * and the jobs whose node stopped renewing the lease, as many as this node has room for.
+ * The same thread renews the leases this node holds and settles requests waiting on a job
+ * held by another node. A node with work still queued on its own workers claims nothing.
+ */
+@Component
+public class ConversionQueueWorker {
+
+    private static final Logger Log = LoggerFactory.getLogger(ConversionQueueWorker.class);
+
+    private final ConversionQueue conversionQueue;
+    private final FileService fileService;
+    private final ConversionScheduler conversionScheduler;
+    private final int maxInFlight;
+    private final Duration pollInterval;
+    private final long heartbeatIntervalMillis;
+    // jobs claimed by this worker and not finished yet
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private long lastHeartbeat;
+    private ScheduledExecutorService scheduler;
+
+    public ConversionQueueWorker(ConversionQueue conversionQueue, FileService fileService, ConversionScheduler conversionScheduler,
+                                 @Value("${audio.conversion.queue.max-in-flight:0}") int maxInFlight,
+                                 @Value("${audio.conversion.queue.poll-interval:500ms}") Duration pollInterval,
+                                 @Value("${audio.conversion.queue.heartbeat-interval:10s}") Duration heartbeatInterval) {
+        this.conversionQueue = conversionQueue;
+        this.fileService = fileService;
+        this.conversionScheduler = conversionScheduler;
+        // 0 takes as many jobs as there are cores, like the conversion workers
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : Runtime.getRuntime().availableProcessors();
+        this.pollInterval = pollInterval;
+        this.heartbeatIntervalMillis = heartbeatInterval.toMillis();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversion-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Log.info("conversion_queue_worker|started node={}, maxInFlight={}", conversionQueue.getNodeId(), maxInFlight);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // leases still held run out and the jobs are claimed by the other nodes
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Polls right away instead of at the next interval, for a job just queued.
+     */
+    public void wakeUp() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    public void run() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastHeartbeat >= heartbeatIntervalMillis) {
+                conversionQueue.renewLeases();
+                lastHeartbeat = now;
+            }
+            conversionQueue.pollWatches();
+            claimReady();
+        } catch (RuntimeException e) {
+            // a throwing task would cancel the schedule
+            Log.error("conversion_queue_worker|aborted|error={}", e.getMessage());
+        }
+    }
+
+    private void claimReady() {
+        if (conversionScheduler.getQueued() > 0) {
+            return;
+        }
+        for (ConversionJobEntity job : conversionQueue.claimReady(maxInFlight - inFlight.get())) {
+            inFlight.incrementAndGet();
+            try {
+                fileService.runQueuedJob(job).whenComplete((converted, error) -> inFlight.decrementAndGet());
+            } catch (RuntimeException e) {
+                // rejected by the conversion workers, the job was handed back
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
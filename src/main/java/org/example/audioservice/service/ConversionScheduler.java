@@ -0,0 +1,233 @@
+package org.example.audioservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs audio conversions on a fixed set of worker threads instead of the request threads.
+ * Pending work is queued per user and drained round-robin, so one user with many
+ * conversions cannot starve the others. The queue is bounded, callers get a
+ * {@link ConversionRejectedException} (503, or 429 for a single user) when it is full.
+ */
+@Component
+public class ConversionScheduler {
+
+    private static final Logger Log = LoggerFactory.getLogger(ConversionScheduler.class);
+
+    private final int queueCapacity;
+    private final int perUserQueueCapacity;
+    private final long retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Long, ArrayDeque<Task<?>>> userQueues = new HashMap<>();
+    // users with pending work, in the order they get their next turn
+    private final ArrayDeque<Long> readyUsers = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private int queued;
+    private int running;
+    private boolean shutdown;
+
+    public ConversionScheduler(@Value("${audio.conversion.max-concurrency:0}") int maxConcurrency,
+                               @Value("${audio.conversion.queue-capacity:64}") int queueCapacity,
+                               @Value("${audio.conversion.per-user-queue-capacity:8}") int perUserQueueCapacity,
+                               @Value("${audio.conversion.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.queueCapacity = queueCapacity;
+        this.perUserQueueCapacity = perUserQueueCapacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // 0 sizes the pool to the cores, ffmpeg is cpu bound. Workers stay platform threads even
+        // with virtual request threads: jaffree blocks in Process.waitFor, which pins a carrier
+        int concurrency = maxConcurrency > 0 ? maxConcurrency : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(this::runWorker, "conversion-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        Log.info("conversion_scheduler|started workers={}, queueCapacity={}, perUserQueueCapacity={}",
+                concurrency, queueCapacity, perUserQueueCapacity);
+    }
+
+    /**
+     * Queues the task for the user and returns a future completed by a worker thread.
+     */
+    public <T> CompletableFuture<T> submit(Long userId, Supplier<T> work) {
+        Task<T> task = new Task<>(userId, work);
+
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new ConversionRejectedException("Conversion scheduler is shutting down",
+                        HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+            }
+            if (queued >= queueCapacity) {
+                Log.warn("conversion_scheduler|queue full queued={}, userId={}", queued, userId);
+                throw new ConversionRejectedException("Conversion queue is full",
+                        HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+            }
+
+            ArrayDeque<Task<?>> userQueue = userQueues.get(userId);
+            if (userQueue != null && userQueue.size() >= perUserQueueCapacity) {
+                Log.warn("conversion_scheduler|user queue full userId={}, queued={}", userId, userQueue.size());
+                throw new ConversionRejectedException("Too many pending conversions for user: " + userId,
+                        HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds);
+            }
+
+            if (userQueue == null) {
+                userQueue = new ArrayDeque<>();
+                userQueues.put(userId, userQueue);
+                readyUsers.addLast(userId);
+            }
+            userQueue.addLast(task);
+            queued++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        return task.future;
+    }
+
+    /**
+     * Submits the task and blocks the caller until it completes.
+     */
+    public <T> T execute(Long userId, Supplier<T> work) {
+        try {
+            return submit(userId, work).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Task<?>> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            userQueues.values().forEach(pending::addAll);
+            userQueues.clear();
+            readyUsers.clear();
+            queued = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        pending.forEach(task -> task.future.completeExceptionally(new ConversionRejectedException(
+                "Conversion scheduler is shutting down", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds)));
+        workers.forEach(Thread::interrupt);
+        Log.info("conversion_scheduler|stopped, rejected pending={}", pending.size());
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task<?> task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == null) {
+                return;
+            }
+
+            try {
+                task.run();
+            } finally {
+                lock.lock();
+                try {
+                    running--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // next task in round-robin order over users, null once shut down
+    private Task<?> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (readyUsers.isEmpty() && !shutdown) {
+                notEmpty.await();
+            }
+            if (shutdown) {
+                return null;
+            }
+
+            Long userId = readyUsers.pollFirst();
+            ArrayDeque<Task<?>> userQueue = userQueues.get(userId);
+            Task<?> task = userQueue.pollFirst();
+            if (userQueue.isEmpty()) {
+                userQueues.remove(userId);
+            } else {
+                readyUsers.addLast(userId);
+            }
+            queued--;
+            running++;
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Task<T> {
+        private final Long userId;
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Long userId, Supplier<T> work) {
+            this.userId = userId;
+            this.work = work;
+        }
+
+        private void run() {
+            try {
+                future.complete(work.get());
+            } catch (Throwable e) {
+                Log.error("conversion_scheduler|task failed userId={}, error={}", userId, e.getMessage());
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
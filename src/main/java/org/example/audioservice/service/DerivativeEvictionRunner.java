@@ -0,0 +1,176 @@
+package org.example.audioservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.example.audioservice.storage.DerivativeAccessTracker;
+import org.example.audioservice.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps converted files under their disk budget. Periodically flushes the counted reads, and
+ * while the derivatives take more than {@code audio.derivatives.max-size} evicts the least
+ * recently ({@code lru}) or least frequently ({@code lfu}) read ones. Originals are never
+ * evicted, an evicted format is converted again on its next request. Several nodes may run
+ * it at once, every blob is evicted under its row lock.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.derivatives.eviction.enabled", havingValue = "true", matchIfMissing = true)
+public class DerivativeEvictionRunner {
+
+    private static final Logger Log = LoggerFactory.getLogger(DerivativeEvictionRunner.class);
+
+    private final BlobRepository blobRepository;
+    private final DerivativeEvictionService evictionService;
+    private final DerivativeAccessTracker accessTracker;
+    private final PhraseFilesCache phraseFilesCache;
+    private final AudioMetrics audioMetrics;
+    private final StorageBackend storageBackend;
+    private final long maxBytes;
+    private final String policy;
+    private final Duration interval;
+    // derivatives read more recently are kept even above the budget, they may still be in use
+    private final Duration minIdle;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    public DerivativeEvictionRunner(BlobRepository blobRepository, DerivativeEvictionService evictionService,
+                                    DerivativeAccessTracker accessTracker, PhraseFilesCache phraseFilesCache,
+                                    AudioMetrics audioMetrics, StorageBackend storageBackend,
+                                    @Value("${audio.derivatives.max-size:10GB}") DataSize maxSize,
+                                    @Value("${audio.derivatives.eviction.policy:lru}") String policy,
+                                    @Value("${audio.derivatives.eviction.interval:1m}") Duration interval,
+                                    @Value("${audio.derivatives.eviction.min-idle:10m}") Duration minIdle,
+                                    @Value("${audio.derivatives.eviction.batch-size:100}") int batchSize) {
+        this.blobRepository = blobRepository;
+        this.evictionService = evictionService;
+        this.accessTracker = accessTracker;
+        this.phraseFilesCache = phraseFilesCache;
+        this.audioMetrics = audioMetrics;
+        this.storageBackend = storageBackend;
+        this.maxBytes = maxSize.toBytes();
+        this.policy = policy.toLowerCase();
+        if (!"lru".equals(this.policy) && !"lfu".equals(this.policy)) {
+            throw new IllegalArgumentException("Unknown derivative eviction policy: " + policy + ", expected lru or lfu");
+        }
+        this.interval = interval;
+        this.minIdle = minIdle;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "derivative-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // keep the reads counted since the last run
+        try {
+            accessTracker.flush();
+        } catch (RuntimeException e) {
+            Log.warn("derivative_eviction|failed to flush reads on shutdown, error={}", e.getMessage());
+        }
+    }
+
+    public void run() {
+        try {
+            accessTracker.flush();
+            evictOverBudget();
+        } catch (RuntimeException e) {
+            // a throwing task would cancel the schedule
+            Log.error("derivative_eviction|aborted|error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Evicts derivatives until they fit the budget, returns the number of bytes freed.
+     */
+    public long evictOverBudget() {
+        long used = blobRepository.sumDerivativeSize();
+        if (used <= maxBytes) {
+            return 0;
+        }
+        Log.info("derivative_eviction|start|used={}, budget={}, policy={}", used, maxBytes, policy);
+
+        long idleSince = System.currentTimeMillis() - minIdle.toMillis();
+        long freed = 0;
+        int evicted = 0;
+        while (used - freed > maxBytes) {
+            List<BlobEntity> candidates = "lfu".equals(policy)
+                    ? blobRepository.findLeastFrequentlyUsedDerivatives(idleSince, PageRequest.of(0, batchSize))
+                    : blobRepository.findLeastRecentlyUsedDerivatives(idleSince, PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                Log.warn("derivative_eviction|over budget by bytes={} but every derivative was read in the last {}",
+                        used - freed - maxBytes, minIdle);
+                break;
+            }
+
+            int progress = 0;
+            for (BlobEntity candidate : candidates) {
+                if (used - freed <= maxBytes) {
+                    break;
+                }
+                try {
+                    Optional<DerivativeEvictionService.EvictedDerivative> result = evictionService.evict(candidate.getBlobKey(), idleSince);
+                    progress++;
+                    if (result.isPresent()) {
+                        freed += removeEvicted(result.get());
+                        evicted++;
+                    }
+                } catch (RuntimeException e) {
+                    Log.error("derivative_eviction|fail|blob={}, error={}", candidate.getBlobKey(), e.getMessage());
+                }
+            }
+
+            if (progress == 0) {
+                Log.error("derivative_eviction|stopping, no progress on batch of size={}", candidates.size());
+                break;
+            }
+        }
+
+        Log.info("derivative_eviction|end|evicted={}, freed={}, used={}", evicted, freed, used - freed);
+        return freed;
+    }
+
+    private long removeEvicted(DerivativeEvictionService.EvictedDerivative evicted) {
+        BlobEntity blob = evicted.blob();
+        try {
+            storageBackend.delete(blob.getFilePath());
+        } catch (IOException e) {
+            Log.warn("derivative_eviction|failed to delete file of blob={} at path={}, error={}", blob.getBlobKey(), blob.getFilePath(), e.getMessage());
+        }
+        for (FileEntity file : evicted.files()) {
+            phraseFilesCache.invalidate(file.getUserId(), file.getPhraseId());
+        }
+        audioMetrics.recordEviction(policy, blob.getSize());
+        return blob.getSize();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.example.audioservice.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Removes one derivative blob together with every file row pointing at it. The blob row is
+ * locked first, so a conversion reusing the blob either finishes before and keeps it, or
+ * waits and finds it gone and converts again.
+ */
+@Service
+public class DerivativeEvictionService {
+
+    private static final Logger Log = LoggerFactory.getLogger(DerivativeEvictionService.class);
+
+    private final BlobRepository blobRepository;
+    private final FileRepository fileRepository;
+    private final PhraseManifestService phraseManifestService;
+
+    /**
+     * Blob removed from the database, its file is deleted by the caller after the commit.
+     */
+    public record EvictedDerivative(BlobEntity blob, List<FileEntity> files) {
+    }
+
+    public DerivativeEvictionService(BlobRepository blobRepository, FileRepository fileRepository,
+                                     PhraseManifestService phraseManifestService) {
+        this.blobRepository = blobRepository;
+        this.fileRepository = fileRepository;
+        this.phraseManifestService = phraseManifestService;
+    }
+
+    /**
+     * Evicts the derivative when it was not read since {@code idleSince}, empty when it is gone,
+     * is an original or a mezzanine, or was read again after it was picked.
+     */
+    @Transactional
+    public Optional<EvictedDerivative> evict(String blobKey, long idleSince) {
+        Optional<BlobEntity> locked = blobRepository.findForUpdate(blobKey);
+        if (locked.isEmpty() || locked.get().getSourceHash() == null || locked.get().getRole() != null) {
+            return Optional.empty();
+        }
+        BlobEntity blob = locked.get();
+        long lastAccessedAt = blob.getLastAccessedAt() != null ? blob.getLastAccessedAt() : blob.getCreatedAt();
+        if (lastAccessedAt >= idleSince) {
+            Log.info("derivative_eviction|skip blob={} read at={}", blobKey, lastAccessedAt);
+            return Optional.empty();
+        }
+
+        List<FileEntity> files = fileRepository.findByBlobKey(blobKey);
+        phraseManifestService.deleteDerivatives(files);
+        blobRepository.delete(blob);
+        Log.info("derivative_eviction|evicted blob={}, bytes={}, files={}, hits={}", blobKey, blob.getSize(), files.size(), blob.getHitCount());
+        return Optional.of(new EvictedDerivative(blob, files));
+    }
+}
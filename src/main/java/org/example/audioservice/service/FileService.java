@@ -1,37 +1,102 @@
 package org.example.audioservice.service;
 
+import org.example.audioservice.cache.HotClipCache;
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.config.ReadRouting;
+import org.example.audioservice.constant.AudioFormatConstants;
 import org.example.audioservice.dto.*;
+import org.example.audioservice.event.AudioUploadedEvent;
 import org.example.audioservice.exception.*;
+import org.example.audioservice.ingest.ByteCountStage;
+import org.example.audioservice.ingest.DigestStage;
+import org.example.audioservice.ingest.HeaderSniffStage;
+import org.example.audioservice.ingest.IngestPipeline;
 import org.example.audioservice.library.FFmpegWrapper;
+import org.example.audioservice.library.FFprobeWrapper;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.ConversionJobEntity;
 import org.example.audioservice.model.FileEntity;
 import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.StorageBackend;
+import org.example.audioservice.storage.DerivativeAccessTracker;
+import org.example.audioservice.util.CountingOutputStream;
 import org.example.audioservice.util.FileUtils;
+import org.example.audioservice.util.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Service
 public class FileService {
-    @Value("${file.upload-dir}")
-    private String baseUploadDir;
+    @Value("${audio.upload.max-size:50MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${audio.conversion.progressive.enabled:true}")
+    private boolean progressiveEnabled;
 
     private final FileRepository fileRepository;
     private final FFmpegWrapper ffmpegWrapper;
-
-    public FileService(FileRepository fileRepository, FFmpegWrapper ffmpegWrapper) {
+    private final ConversionScheduler conversionScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PhraseFilesCache phraseFilesCache;
+    private final PhraseManifestService phraseManifestService;
+    private final IngestPipeline ingestPipeline;
+    private final BlobStore blobStore;
+    private final AudioMetrics audioMetrics;
+    private final DerivativeAccessTracker accessTracker;
+    private final StorageBackend storageBackend;
+    private final TranscodeSourcePlanner sourcePlanner;
+    private final FFprobeWrapper ffprobeWrapper;
+    private final AudioFormatConstants audioFormatConstants;
+    private final HotClipCache hotClips;
+    private final ConversionQueue conversionQueue;
+    private final SingleFlight<ConversionKey, FileEntity> conversions = new SingleFlight<>();
+
+    public FileService(FileRepository fileRepository, FFmpegWrapper ffmpegWrapper, ConversionScheduler conversionScheduler,
+                       ApplicationEventPublisher eventPublisher, PhraseFilesCache phraseFilesCache,
+                       PhraseManifestService phraseManifestService, IngestPipeline ingestPipeline,
+                       BlobStore blobStore, AudioMetrics audioMetrics, DerivativeAccessTracker accessTracker,
+                       StorageBackend storageBackend, TranscodeSourcePlanner sourcePlanner,
+                       FFprobeWrapper ffprobeWrapper, AudioFormatConstants audioFormatConstants,
+                       HotClipCache hotClips, ConversionQueue conversionQueue) {
         this.fileRepository = fileRepository;
         this.ffmpegWrapper = ffmpegWrapper;
+        this.conversionScheduler = conversionScheduler;
+        this.eventPublisher = eventPublisher;
+        this.phraseFilesCache = phraseFilesCache;
+        this.phraseManifestService = phraseManifestService;
+        this.ingestPipeline = ingestPipeline;
+        this.blobStore = blobStore;
+        this.audioMetrics = audioMetrics;
+        this.accessTracker = accessTracker;
+        this.storageBackend = storageBackend;
+        this.sourcePlanner = sourcePlanner;
+        this.ffprobeWrapper = ffprobeWrapper;
+        this.audioFormatConstants = audioFormatConstants;
+        this.hotClips = hotClips;
+        this.conversionQueue = conversionQueue;
     }
 
     private static final Logger Log = LoggerFactory.getLogger(FileService.class);
@@ -39,59 +104,125 @@ public class FileService {
     public FileDTO saveAudioFile(MultipartFile file, Long userId, Long phraseId) {
         Log.info("save_audio_file|start|userId={}, phraseId={}", userId, phraseId);
 
+        checkUserAndPhrase(userId, phraseId);
+
+        return saveStagedUpload(stageUpload(file, userId, phraseId));
+    }
+
+    /**
+     * Stores an upload sent as the raw request body, streamed straight to its storage path.
+     */
+    public FileDTO saveAudioFile(InputStream body, String contentType, String fileName, Long userId, Long phraseId) {
+        Log.info("save_audio_file|start|stream userId={}, phraseId={}", userId, phraseId);
+
+        checkUserAndPhrase(userId, phraseId);
+
+        String audioFileExt = FileUtils.validateAudioContentType(contentType).toLowerCase();
+        String originalFilename = fileName != null ? fileName : "audio." + audioFileExt;
+
+        return saveStagedUpload(stageUpload(body, audioFileExt, originalFilename, userId, phraseId));
+    }
+
+    private void checkUserAndPhrase(Long userId, Long phraseId) {
+        checkUser(userId);
+        checkPhrase(phraseId);
+    }
+
+    void checkUser(Long userId) {
         // only mock
         if (userId == 999) { // test UserNotFoundException manually
             Log.info("save_audio_file|fail|no userId={}", userId);
             throw new UserNotFoundException(String.format("User with id %d not found", userId));
         }
+    }
 
+    void checkPhrase(Long phraseId) {
         if (phraseId == 999) { // test PhraseNotFoundException manually
             Log.info("save_audio_file|fail|no phraseId={}", phraseId);
             throw new PhraseNotFoundException(String.format("Phrase with id %d not found", phraseId));
         }
+    }
+
+    /**
+     * Upload whose bytes are stored and whose blob is referenced, but whose row is not saved yet.
+     */
+    record StagedUpload(FileEntity file, BlobEntity blob) {
+    }
 
+    /**
+     * Validates a multipart upload and stores its bytes, see {@link #stageUpload(InputStream, String, String, Long, Long)}.
+     */
+    StagedUpload stageUpload(MultipartFile file, Long userId, Long phraseId) {
         String audioFileExt = FileUtils.validateAudioFile(file).toLowerCase();
 
+        try (InputStream body = file.getInputStream()) {
+            return stageUpload(body, audioFileExt, file.getOriginalFilename(), userId, phraseId);
+        } catch (IOException e) {
+            Log.error("save_audio_file|fail|failed to read uploaded part error={}", e.getMessage());
+            throw new StorageException("Failed to store file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the body into its blob and builds the row of the new upload group. The caller
+     * saves the row, or releases the blob when it cannot.
+     */
+    StagedUpload stageUpload(InputStream body, String audioFileExt, String originalFilename, Long userId, Long phraseId) {
+        // never let a client supplied name leave the upload directory
+        String fileName = StringUtils.getFilename(StringUtils.cleanPath(originalFilename));
         Path filePath = null;
 
+        long stageStart = System.nanoTime();
         try {
-            // Create date-based directory
-            String dateFolder = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            Path uploadPath = Paths.get(baseUploadDir, dateFolder);
-
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            // Stream the body to disk once, hashing and sniffing it on the way
+            filePath = blobStore.newIncomingPath(audioFileExt);
+            ByteCountStage byteCount = new ByteCountStage(maxUploadSize.toBytes());
+            DigestStage digest = new DigestStage();
+            HeaderSniffStage headerSniff = new HeaderSniffStage();
+            ingestPipeline.ingest(body, filePath, List.of(byteCount, digest, headerSniff));
+
+            if (byteCount.getCount() == 0) {
+                Files.deleteIfExists(filePath);
+                throw new StorageException("Uploaded File is empty");
+            }
+            if (headerSniff.getFormat() != null && !headerSniff.getFormat().equals(audioFileExt)) {
+                Log.warn("save_audio_file|declared format={} but content looks like format={}", audioFileExt, headerSniff.getFormat());
             }
 
-            // Generate a unique file name based on user, phrase ID, and time
-            Long time = System.currentTimeMillis();
-            String storedFileName = String.format("%d_%d_%d_%s", userId, phraseId, time, file.getOriginalFilename());
-            filePath = uploadPath.resolve(storedFileName);
+            // probed once while the bytes are still local, conversions and quotas read the row
+            long probeStart = System.nanoTime();
+            Optional<AudioStreamInfo> stream = ffprobeWrapper.probe(filePath);
+            audioMetrics.recordUploadStage("probe", probeStart, stream.isPresent());
+            stream.ifPresent(info -> Log.info("save_audio_file|probed codec={}, sampleRate={}, channels={}, bitrate={}, durationMs={}",
+                    info.codec(), info.sampleRate(), info.channels(), info.bitrate(), info.durationMillis()));
 
-            // Save file to disk
-            file.transferTo(filePath.toFile());
-            Log.info("save_audio_file|success|stored file at path={}", filePath.toString());
+            // identical bytes are stored once, whoever uploads them
+            String contentHash = digest.getHex();
+            BlobEntity blob = storeBlob(filePath, contentHash, audioFileExt, null);
+            audioMetrics.recordUploadStage("write", stageStart, true);
+            Log.info("save_audio_file|success|stored file at path={}, bytes={}, sha256={}",
+                    blob.getFilePath(), byteCount.getCount(), contentHash);
 
-            FileEntity fileEntity = FileEntity.builder()
+            Long time = System.currentTimeMillis();
+            FileEntity.FileEntityBuilder builder = FileEntity.builder()
                     .userId(userId)
                     .phraseId(phraseId)
-                    .fileName(file.getOriginalFilename())
-                    .filePath(filePath.toString())
+                    .fileName(fileName)
+                    // the blob's location, which need not be on the local disk
+                    .filePath(blob.getFilePath())
                     .format(audioFileExt)
                     .groupId(time)
                     .createdAt(time)
-                    .build();
-
-            FileEntity savedFile = fileRepository.save(fileEntity);
-
-            Log.info("save_audio_file|end|file saved to db path={}", filePath.toString());
-            return FileDTO.builder()
-                    .fileId(savedFile.getId()) // should use file_id
-                    .fileName(savedFile.getFileName())
-                    .filePath(savedFile.getFilePath())
-                    .build();
-
+                    .contentHash(contentHash)
+                    .blobKey(blob.getBlobKey());
+            FileEntity fileEntity = stream.map(info -> info.applyTo(builder)).orElse(builder).build();
+            return new StagedUpload(fileEntity, blob);
+
+        } catch (RuntimeException e) {
+            audioMetrics.recordUploadStage("write", stageStart, false);
+            throw e;
         } catch (IOException e) {
+            audioMetrics.recordUploadStage("write", stageStart, false);
             if (filePath != null) {
                 Log.error("save_audio_file|fail|failed to store file={} error={}", filePath.toString(), e.getMessage());
             } else {
@@ -101,115 +232,393 @@ public class FileService {
         }
     }
 
+    private FileDTO saveStagedUpload(StagedUpload staged) {
+        // saved together with the phrase manifest, committed once this returns
+        long stageStart = System.nanoTime();
+        FileEntity savedFile;
+        try {
+            savedFile = recordFile(() -> phraseManifestService.recordUpload(staged.file()), staged.blob());
+            audioMetrics.recordUploadStage("db", stageStart, true);
+        } catch (RuntimeException e) {
+            audioMetrics.recordUploadStage("db", stageStart, false);
+            throw e;
+        }
+        uploadSaved(savedFile);
+
+        Log.info("save_audio_file|end|file saved to db path={}", savedFile.getFilePath());
+        return FileDTO.builder()
+                .fileId(savedFile.getId()) // should use file_id
+                .fileName(savedFile.getFileName())
+                .filePath(savedFile.getFilePath())
+                .durationMs(savedFile.getDurationMs())
+                .build();
+    }
+
+    /**
+     * Makes a committed upload visible to readers and starts its background work.
+     */
+    void uploadSaved(FileEntity savedFile) {
+        phraseFilesCache.invalidate(savedFile.getUserId(), savedFile.getPhraseId());
+        hotClips.expireOlderGroups(savedFile.getUserId(), savedFile.getPhraseId(), savedFile.getGroupId());
+        eventPublisher.publishEvent(new AudioUploadedEvent(savedFile));
+    }
+
     public FileDownloadDTO getAudioFile(Long userId, Long phraseId, String format) {
+        return getAudioFile(userId, phraseId, format, null);
+    }
+
+    /**
+     * Resolves the file to serve. When the format has to be converted here and is streamable,
+     * the encoder output is streamed into the progressive body while it is cached, and null is
+     * returned as the response has already been written.
+     */
+    public FileDownloadDTO getAudioFile(Long userId, Long phraseId, String format, ProgressiveBody progressiveBody) {
         Log.info("get_audio_file|start|userId={}, phraseId={}, format={}", userId, phraseId, format);
 
-        format = format.toLowerCase();
+        format = checkFormat(format);
+
+        // current group of the phrase and the formats it already has, served from cache when hot
+        Optional<PhraseFiles> phraseFiles = phraseFilesCache.get(userId, phraseId);
+
+        if (phraseFiles.isEmpty()) {
+            Log.info("get_audio_file|fail|no available file, userId={}, phraseId={}", userId, phraseId);
+            throw new ResourceNotFoundException("No file available for userId: " + userId + ", phraseId: " + phraseId + ", format: " + format);
+        }
+
+        long groupId = phraseFiles.get().getGroupId();
+        // clips of a group replaced by an upload on another node are dropped on the first read here
+        hotClips.expireOlderGroups(userId, phraseId, groupId);
+
+        // try to find an existing file in the requested format within the latest group
+        FileEntity resultFileEntity = phraseFiles.get().getFile(format);
+        FileDownloadDTO download = resultFileEntity != null ? findDownload(resultFileEntity) : null;
+
+        if (download != null) {
+            Log.info("get_audio_file|success|serving existing file at path={}", resultFileEntity.getFilePath());
+            audioMetrics.recordLookup(format, "hit");
+        } else {
+            if (resultFileEntity == null) {
+                Log.info("get_audio_file|no existing file for group={}, format={}", groupId, format);
+            } else if (phraseFiles.get().isOriginal(resultFileEntity)) {
+                throw new StorageException("Missing file: " + resultFileEntity.getFilePath());
+            } else {
+                // evicted derivative, converted again like any other miss
+                Log.info("get_audio_file|converted file gone at path={}, converting again for group={}, format={}",
+                        resultFileEntity.getFilePath(), groupId, format);
+            }
+
+            // concurrent requests for the same derivative share a single conversion, on this
+            // node or whichever holds its job, and run on the bounded conversion workers
+            // rather than on this request thread
+            ConversionKey key = new ConversionKey(userId, phraseId, groupId, format);
+            ProgressiveBody streamTo = progressiveEnabled && FFmpegWrapper.isStreamable(format) ? progressiveBody : null;
+            // the response body once the encoder output is streamed into it
+            AtomicReference<CountingOutputStream> streamed = new AtomicReference<>();
+            resultFileEntity = conversions.execute(key, () -> startConversion(key, streamTo, streamed));
+
+            if (streamed.get() != null) {
+                Log.info("get_audio_file|end|streamed converted file={} for userId={}, phraseId={}, format={}",
+                        resultFileEntity.getFilePath(), userId, phraseId, format);
+                audioMetrics.recordLookup(format, "streamed");
+                // what reached the client, the tee keeps encoding for the cache after a disconnect
+                audioMetrics.recordServedBytes(format, streamed.get().getCount());
+                return null;
+            }
+            audioMetrics.recordLookup(format, "converted");
+            download = toDownload(resultFileEntity);
+        }
+
+        Log.info("get_audio_file|end|respond with file={}, path={} for userId={}, phraseId={}, format={}",
+                resultFileEntity.getFilePath(), resultFileEntity.getFileName(),
+                userId, phraseId, format
+        );
+        return download;
+    }
+
+    /**
+     * Current file of the phrase in the format, read from the phrase manifest only. Empty when
+     * the format has not been converted yet. The file on storage is not checked, so this is
+     * enough to answer conditional requests.
+     */
+    public Optional<FileEntity> findAudioFile(Long userId, Long phraseId, String format) {
+        String checkedFormat = checkFormat(format);
+        return phraseFilesCache.get(userId, phraseId).map(phraseFiles -> phraseFiles.getFile(checkedFormat));
+    }
 
-        // file format validation
-        if (FileUtils.getMimeTypeFromExtension(format.toLowerCase()) == null) {
+    /**
+     * A file row by id, its content never changes.
+     */
+    public FileEntity getFileById(Long fileId) {
+        // the replica may not have a file that was just converted
+        return fileRepository.findById(fileId)
+                .or(() -> ReadRouting.onPrimary(() -> fileRepository.findById(fileId)))
+                .orElseThrow(() -> new ResourceNotFoundException("No file available for fileId: " + fileId));
+    }
+
+    private static String checkFormat(String format) {
+        format = format.toLowerCase();
+        if (FileUtils.getMimeTypeFromExtension(format) == null) {
             Log.info("get_audio_file|fail|format not supported={}", format);
             throw new UnsupportedFileFormatException("Unsupported format: " + format);
         }
+        return format;
+    }
 
-        // get latest available file for the given user and phrase
-        Optional<FileEntity> latestFile = fileRepository
-                .findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(userId, phraseId);
+    /**
+     * Describes a stored file for serving, failing when the file is gone.
+     */
+    public FileDownloadDTO toDownload(FileEntity fileEntity) {
+        FileDownloadDTO download = findDownload(fileEntity);
+        if (download == null) {
+            throw new StorageException("Missing file: " + fileEntity.getFilePath());
+        }
+        return download;
+    }
 
-        if (latestFile.isEmpty()) {
-            Log.info("get_audio_file|fail|no available file, userId={}, phraseId={}", userId, phraseId);
-            throw new ResourceNotFoundException("No file available for userId: " + userId + ", phraseId: " + phraseId + ", format: " + format);
+    /**
+     * Describes a stored file for serving and counts the read, null when the file is gone.
+     * The stat doubles as the existence check. Hot files are served from memory without
+     * touching storage.
+     */
+    FileDownloadDTO findDownload(FileEntity fileEntity) {
+        String location = fileEntity.getFilePath();
+        HotClipCache.Clip clip = hotClips.get(fileEntity.getId());
+        if (clip == null) {
+            StorageBackend.StoredObject stored = stat(location, fileEntity.getUserId(), fileEntity.getPhraseId());
+            if (stored == null) {
+                return null;
+            }
+            StorageBackend.RangeReader reader = (offset, count) -> storageBackend.openRange(location, offset, count);
+            clip = hotClips.admit(fileEntity, stored.size(), stored.lastModified(), reader);
+            if (clip == null) {
+                accessTracker.recordAccess(fileEntity);
+                return download(fileEntity, storageBackend.localPath(location), reader, stored.size(), stored.lastModified());
+            }
         }
+        accessTracker.recordAccess(fileEntity);
+        return download(fileEntity, null, clip.reader(), clip.size(), clip.lastModified());
+    }
+
+    private FileDownloadDTO download(FileEntity fileEntity, Path file, StorageBackend.RangeReader reader,
+                                     long size, long storedLastModified) {
+        return FileDownloadDTO.builder()
+                .fileId(fileEntity.getId())
+                .fileName(fileEntity.getFileName())
+                .filePath(fileEntity.getFilePath())
+                .file(file)
+                .reader(reader)
+                .contentLength(size)
+                // the row's creation time, so validators come from metadata alone
+                .lastModified(fileEntity.getCreatedAt() != null ? fileEntity.getCreatedAt() : storedLastModified)
+                .etag(FileUtils.entityTag(fileEntity.getId(), fileEntity.getCreatedAt()))
+                .build();
+    }
 
-        long groupId = latestFile.get().getGroupId();
-        FileEntity resultFileEntity = null;
+    /**
+     * Converts the group's original into the key's format in the background, sharing
+     * any conversion of the same derivative that is already in flight.
+     */
+    public CompletableFuture<FileEntity> requestConversion(ConversionKey key) {
+        return conversions.submit(key, () -> startConversion(key, null, null));
+    }
+
+    /**
+     * Runs a job claimed from the conversion queue, recording its outcome on the job.
+     */
+    public CompletableFuture<FileEntity> runQueuedJob(ConversionJobEntity job) {
+        return runClaimed(job, true, null, null);
+    }
+
+    // every conversion goes through the derivative's job row: it runs here when this node
+    // gets the lease, otherwise the node holding it converts and this request waits for it
+    private CompletableFuture<FileEntity> startConversion(ConversionKey key, ProgressiveBody progressiveBody,
+                                                          AtomicReference<CountingOutputStream> streamed) {
+        ConversionJobEntity job = conversionQueue.enqueue(key);
+        Optional<ConversionJobEntity> claimed = conversionQueue.claim(job.getJobId());
+        if (claimed.isPresent()) {
+            return runClaimed(claimed.get(), false, progressiveBody, streamed);
+        }
 
-        // check if the latest file already matches the requested format
-        if (latestFile.get().getFormat().equalsIgnoreCase(format)) {
-            Path filePath = Paths.get(latestFile.get().getFilePath());
+        Log.info("convert_and_save|waiting for job={} of group={}, format={} held by node={}",
+                job.getJobId(), key.groupId(), key.format(), job.getLeaseOwner());
+        return conversionQueue.awaitDone(job).thenApply(fileId -> ReadRouting.onPrimary(() -> fileRepository.findById(fileId))
+                .orElseThrow(() -> new StorageException("Missing converted file id: " + fileId)));
+    }
 
-            if (Files.exists(filePath)) {
-                Log.info("get_audio_file|success|serving latest file at path={}", filePath);
-                resultFileEntity = latestFile.get();
+    private CompletableFuture<FileEntity> runClaimed(ConversionJobEntity job, boolean fromQueue,
+                                                     ProgressiveBody progressiveBody, AtomicReference<CountingOutputStream> streamed) {
+        ConversionKey key = ConversionKey.of(job);
+        CompletableFuture<FileEntity> conversion;
+        try {
+            conversion = conversionScheduler.submit(key.userId(), () -> convertAndSave(key, progressiveBody, streamed));
+        } catch (ConversionRejectedException e) {
+            if (fromQueue) {
+                // back to the queue for a node with room
+                conversionQueue.fail(job, e);
             } else {
-                Log.info("get_audio_file|fail|missing file at path={}", filePath);
-                throw new StorageException("File missing on disk: " + filePath.toString());
+                // the request answers 429/503, nothing converts it behind the limits
+                conversionQueue.reject(job, e);
             }
+            throw e;
         }
+        // the job is recorded before the callers see the outcome
+        return conversion.whenComplete((converted, error) -> {
+            if (error == null) {
+                conversionQueue.complete(job, converted.getId());
+            } else {
+                conversionQueue.fail(job, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+    }
 
-        // if the latest file is not available in the requested format
-        if (resultFileEntity == null) {
-            // try to find an existing file in the requested format within the same group
-            Optional<FileEntity> existingFile = fileRepository
-                    .findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(
-                            userId, phraseId, format.toLowerCase(), groupId);
+    private FileEntity convertAndSave(ConversionKey key, ProgressiveBody progressiveBody,
+                                      AtomicReference<CountingOutputStream> streamed) {
+        Long userId = key.userId();
+        Long phraseId = key.phraseId();
+        Long groupId = key.groupId();
+        String format = key.format();
+
+        // a conversion for this key may have been saved between our lookup and taking the flight
+        Optional<FileEntity> convertedFile = fileRepository
+                .findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(userId, phraseId, format, groupId);
+        if (convertedFile.isPresent() && storageBackend.exists(convertedFile.get().getFilePath())) {
+            Log.info("convert_and_save|already converted file id={} group={}, format={}", convertedFile.get().getId(), groupId, format);
+            return convertedFile.get();
+        }
 
-            if (existingFile.isPresent()) {
-                Path filePath = Paths.get(existingFile.get().getFilePath());
+        // find the original file, latest file created for this user, phrase and group
+        Optional<FileEntity> originalFile = fileRepository
+                .findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                        userId, phraseId, groupId);
 
-                if (Files.exists(filePath)) {
-                    Log.info("get_audio_file|success|serving existing file at path={}", filePath);
-                    resultFileEntity = existingFile.get();
-                } else {
-                    // file is missing on storage
-                    Log.info("get_audio_file|fail|missing file at path={}", filePath);
-                    throw new StorageException("Missing file: " + filePath.toString());
+        if (originalFile.isEmpty()) {
+            Log.info("get_audio_file|fail|no original file for userId={}, phraseId={}, group={}", userId, phraseId, groupId);
+            throw new ResourceNotFoundException("No original file available for userId: " + userId + ", phraseId: " + phraseId);
+        }
+
+        // convert from the latest original file when file with format not exist,
+        // or reuse the same derivative made for any identical upload
+        String sourceHash = originalFile.get().getContentHash();
+        BlobEntity blob = null;
+        String convertedFilePath;
+        if (sourceHash == null) {
+            // stored before content addressing, converted next to the original
+            convertedFilePath = convertAudioProcess(originalFile.get().getId(), Paths.get(originalFile.get().getFilePath()).toFile(),
+                    format, null, openProgressive(progressiveBody, originalFile.get().getFileName(), streamed), false).toString();
+        } else {
+            String blobKey = blobStore.derivativeKey(sourceHash, format);
+            blob = blobStore.acquire(blobKey).orElse(null);
+            if (blob == null) {
+                Path incoming = blobStore.newIncomingPath(format);
+                // decode the cheapest lossless file of the group when there is one
+                TranscodeSourcePlanner.TranscodeSource source = sourcePlanner.plan(originalFile.get(), groupFiles(userId, phraseId, groupId), format);
+                Log.info("convert_and_save|{} {} at path={} for group={}, format={}", source.streamCopy() ? "remuxing" : "decoding",
+                        source.kind(), source.location(), groupId, format);
+                // ffmpeg reads a local file, a remote source is copied down for the conversion
+                try (StorageBackend.LocalFile local = storageBackend.fetch(source.location())) {
+                    convertAudioProcess(originalFile.get().getId(), local.path().toFile(),
+                            format, incoming, openProgressive(progressiveBody, originalFile.get().getFileName(), streamed), source.streamCopy());
+                } catch (IOException e) {
+                    Log.error("convert_and_save|fail|cannot read source of id={}, error={}", originalFile.get().getId(), e.getMessage());
+                    throw new StorageException("Failed to read file: " + e.getMessage());
                 }
+                blob = storeBlob(incoming, blobKey, format, sourceHash);
             } else {
-                Log.info("get_audio_file|no existing file for group={}, format={}", groupId, format);
+                Log.info("convert_and_save|reusing derivative blob={} for group={}, format={}", blobKey, groupId, format);
+            }
+            convertedFilePath = blob.getFilePath();
+        }
+        Log.info("get_audio_file|success|converted file id={} userId={}, phraseId={}, group={}",
+                originalFile.get().getId(), userId, phraseId, groupId
+        );
+        FileEntity resultFileEntity = convertedStream(originalFile.get(), format).applyTo(FileEntity.builder())
+                .userId(userId)
+                .phraseId(phraseId)
+                .fileName(originalFile.get().getFileName()) // use the same filename
+                .filePath(convertedFilePath)
+                .format(format)
+                .groupId(groupId) // use the same groupId as original
+                .createdAt(System.currentTimeMillis())
+                .contentHash(sourceHash)
+                .blobKey(blob != null ? blob.getBlobKey() : null)
+                .build();
 
-                // find the original file, latest file created for this user, phrase and group
-                Optional<FileEntity> originalFile = fileRepository
-                        .findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
-                                userId, phraseId, groupId);
+        Log.info("get_audio_file|save converted file to db id={} userId={}, phraseId={}, group={}",
+                originalFile.get().getId(), userId, phraseId, groupId
+        );
+        FileEntity savedFile = recordFile(() -> phraseManifestService.recordConversion(resultFileEntity), blob);
+        phraseFilesCache.invalidate(userId, phraseId);
+        return savedFile;
+    }
 
-                if (originalFile.isEmpty()) {
-                    Log.info("get_audio_file|fail|no original file for userId={}, phraseId={}, group={}", userId, phraseId, groupId);
-                    throw new ResourceNotFoundException("No original file available for userId: " + userId + ", phraseId: " + phraseId);
-                }
+    // the stream a conversion of the original produces, the original's own when it is copied
+    private AudioStreamInfo convertedStream(FileEntity original, String format) {
+        AudioFormatConstants.AudioConfig config = audioFormatConstants.getConfig(format);
+        AudioStreamInfo source = AudioStreamInfo.of(original);
+        return config.accepts(source) ? source : config.encodedStream(original.getDurationMs());
+    }
 
-                // convert from the latest original file when file with format not exist
-                Path convertedFilePath = convertAudioProcess(originalFile.get().getId(), Paths.get(originalFile.get().getFilePath()).toFile(), format);
-                Log.info("get_audio_file|success|converted file id={} userId={}, phraseId={}, group={}",
-                        originalFile.get().getId(), userId, phraseId, groupId
-                );
-                resultFileEntity = FileEntity.builder()
-                        .userId(userId)
-                        .phraseId(phraseId)
-                        .fileName(originalFile.get().getFileName()) // use the same filename
-                        .filePath(convertedFilePath.toString())
-                        .format(format)
-                        .groupId(groupId) // use the same groupId as original
-                        .createdAt(System.currentTimeMillis())
-                        .build();
+    // the group's files by format from the phrase cache, empty once a newer group was uploaded
+    private Collection<FileEntity> groupFiles(Long userId, Long phraseId, Long groupId) {
+        return phraseFilesCache.get(userId, phraseId)
+                .filter(phraseFiles -> phraseFiles.getGroupId().equals(groupId))
+                .map(phraseFiles -> phraseFiles.getFiles().values())
+                .orElse(List.of());
+    }
 
-                Log.info("get_audio_file|save converted file to db id={} userId={}, phraseId={}, group={}",
-                        originalFile.get().getId(), userId, phraseId, groupId
-                );
-                fileRepository.save(resultFileEntity);
+    private OutputStream openProgressive(ProgressiveBody progressiveBody, String fileName,
+                                         AtomicReference<CountingOutputStream> streamed) {
+        if (progressiveBody == null) {
+            return null;
+        }
+        try {
+            CountingOutputStream body = new CountingOutputStream(progressiveBody.open(fileName));
+            streamed.set(body);
+            return body;
+        } catch (IOException e) {
+            // the client went away before anything was sent, still convert for the cache
+            Log.info("convert_and_save|progressive body unavailable, error={}", e.getMessage());
+            return null;
+        }
+    }
+
+    private BlobEntity storeBlob(Path incoming, String blobKey, String extension, String sourceHash) {
+        try {
+            return blobStore.store(incoming, blobKey, extension, sourceHash);
+        } catch (RuntimeException e) {
+            try {
+                Files.deleteIfExists(incoming);
+            } catch (IOException deleteEx) {
+                Log.error("store_blob|failed to delete incoming file={}, error={}", incoming, deleteEx.getMessage());
             }
+            throw e;
+        }
     }
 
-        Log.info("get_audio_file|end|respond with file={}, path={} for userId={}, phraseId={}, format={}",
-                resultFileEntity.getFilePath(), resultFileEntity.getFileName(),
-                userId, phraseId, format
-        );
-        // return converted file to user
-        Path filePath = Paths.get(resultFileEntity.getFilePath());
-        return FileDownloadDTO.builder()
-                .fileId(resultFileEntity.getId())
-                .fileName(resultFileEntity.getFileName())
-                .filePath(resultFileEntity.getFilePath())
-                .file(readFile(filePath))
-                .build();
+    private FileEntity recordFile(Supplier<FileEntity> save, BlobEntity blob) {
+        try {
+            return save.get();
+        } catch (RuntimeException e) {
+            // the row was never written, give back its reference
+            if (blob != null) {
+                blobStore.release(blob.getBlobKey());
+            }
+            throw e;
+        }
     }
 
-    private Path convertAudioProcess(Long id, File rawFile, String format) {
-        Log.info("convert_audio_process|start|fileId={}, format={}", id, format);
+    private Path convertAudioProcess(Long id, File rawFile, String format, Path outputPath, OutputStream progressiveOut, boolean streamCopy) {
+        Log.info("convert_audio_process|start|fileId={}, format={}, streamCopy={}", id, format, streamCopy);
 
         File convertedFile = null;
         try {
-            convertedFile = ffmpegWrapper.convertAudio(rawFile, format);
+            if (streamCopy) {
+                convertedFile = ffmpegWrapper.remux(rawFile, format, outputPath, progressiveOut);
+            } else {
+                convertedFile = outputPath == null && progressiveOut == null
+                        ? ffmpegWrapper.convertAudio(rawFile, format)
+                        : ffmpegWrapper.convertAudio(rawFile, format, outputPath, progressiveOut);
+            }
 
             if (convertedFile == null || !convertedFile.exists()) {
                 throw new StorageException("File conversion failed, file id: " + id);
@@ -230,13 +639,20 @@ public class FileService {
         }
     }
 
-    private byte[] readFile(Path filePath) {
+    private StorageBackend.StoredObject stat(String location, Long userId, Long phraseId) {
+        StorageBackend.StoredObject stored;
         try {
-            return Files.readAllBytes(filePath);
+            stored = storageBackend.stat(location);
         } catch (Exception e) {
-            Log.error("read_file|failed to read file: {}", filePath, e);
+            Log.error("read_file|failed to read file: {}", location, e);
             throw new StorageException("Failed to read file: " + e.getMessage());
         }
+        if (stored == null) {
+            // file is missing on storage, do not keep serving the stale record
+            Log.info("get_audio_file|missing file at path={}", location);
+            phraseFilesCache.invalidate(userId, phraseId);
+        }
+        return stored;
     }
 
     private void cleanupFile(File file, Long id) {
@@ -0,0 +1,76 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.PhraseKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the missing manifests of phrases uploaded before {@code phrase_manifest_tab} existed.
+ * Runs in the background after startup, several nodes may run it at once.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.manifest.backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class ManifestBackfillRunner {
+
+    private static final Logger Log = LoggerFactory.getLogger(ManifestBackfillRunner.class);
+
+    private final PhraseManifestService phraseManifestService;
+    private final int batchSize;
+
+    public ManifestBackfillRunner(PhraseManifestService phraseManifestService,
+                                  @Value("${audio.manifest.backfill.batch-size:500}") int batchSize) {
+        this.phraseManifestService = phraseManifestService;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread worker = new Thread(this::run, "manifest-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void run() {
+        long created = 0;
+        try {
+            while (true) {
+                List<PhraseKey> phrases = phraseManifestService.findPhrasesWithoutManifest(batchSize);
+                if (phrases.isEmpty()) {
+                    break;
+                }
+
+                int progress = 0;
+                for (PhraseKey phrase : phrases) {
+                    try {
+                        if (phraseManifestService.backfill(phrase)) {
+                            created++;
+                        }
+                        progress++;
+                    } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
+                        // created concurrently by an upload or another node
+                        progress++;
+                    } catch (RuntimeException e) {
+                        Log.error("manifest_backfill|fail|userId={}, phraseId={}, error={}", phrase.userId(), phrase.phraseId(), e.getMessage());
+                    }
+                }
+
+                if (progress == 0) {
+                    Log.error("manifest_backfill|stopping, no progress on batch of size={}", phrases.size());
+                    break;
+                }
+            }
+            Log.info("manifest_backfill|end|created={}", created);
+        } catch (RuntimeException e) {
+            Log.error("manifest_backfill|aborted|created={}, error={}", created, e.getMessage());
+        }
+    }
+}
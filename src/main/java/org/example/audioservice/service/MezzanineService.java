@@ -0,0 +1,108 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.event.AudioUploadedEvent;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.library.FFmpegWrapper;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Decodes every new lossy upload once into a lossless flac mezzanine, when enabled. Later
+ * conversions of the upload decode the mezzanine instead of the original, see
+ * {@link TranscodeSourcePlanner}. Lossless uploads are decode sources already and get none.
+ */
+@Service
+public class MezzanineService {
+
+    private static final Logger Log = LoggerFactory.getLogger(MezzanineService.class);
+
+    private static final String MEZZANINE_FORMAT = "flac";
+
+    private final ConversionScheduler conversionScheduler;
+    private final FFmpegWrapper ffmpegWrapper;
+    private final BlobStore blobStore;
+    private final StorageBackend storageBackend;
+    private final boolean enabled;
+    private final AudioFormatConstants.AudioConfig config;
+
+    public MezzanineService(ConversionScheduler conversionScheduler, FFmpegWrapper ffmpegWrapper,
+                            BlobStore blobStore, StorageBackend storageBackend,
+                            @Value("${audio.mezzanine.enabled:false}") boolean enabled,
+                            @Value("${audio.mezzanine.sample-rate:48000}") int sampleRate) {
+        this.conversionScheduler = conversionScheduler;
+        this.ffmpegWrapper = ffmpegWrapper;
+        this.blobStore = blobStore;
+        this.storageBackend = storageBackend;
+        this.enabled = enabled;
+        this.config = new AudioFormatConstants.AudioConfig(MEZZANINE_FORMAT, null, sampleRate, 2);
+    }
+
+    // runs after the upload is committed, fallback covers saves made outside a transaction
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAudioUploaded(AudioUploadedEvent event) {
+        FileEntity original = event.file();
+        if (!enabled || original.getContentHash() == null || TranscodeSourcePlanner.isLossless(original.getFormat())) {
+            return;
+        }
+
+        try {
+            conversionScheduler.submit(original.getUserId(), () -> produce(original)).whenComplete((mezzanine, error) -> {
+                if (error != null) {
+                    Log.error("mezzanine|fail|fileId={}, error={}", original.getId(), error.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            // conversions decode the original instead
+            Log.warn("mezzanine|skipped|fileId={}, error={}", original.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Makes the mezzanine of the original unless it is stored already, returns its blob.
+     */
+    BlobEntity produce(FileEntity original) {
+        String sourceHash = original.getContentHash();
+        Optional<BlobEntity> existing = blobStore.findMezzanine(sourceHash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Path incoming = blobStore.newIncomingPath(MEZZANINE_FORMAT);
+        try (StorageBackend.LocalFile source = storageBackend.fetch(original.getFilePath())) {
+            ffmpegWrapper.convertAudio(source.path().toFile(), MEZZANINE_FORMAT, config, incoming, null);
+        } catch (IOException e) {
+            throw new StorageException("Failed to read file: " + e.getMessage());
+        }
+
+        try {
+            BlobEntity mezzanine = blobStore.storeMezzanine(incoming, sourceHash, MEZZANINE_FORMAT);
+            Log.info("mezzanine|success|fileId={}, blob={}, bytes={}", original.getId(), mezzanine.getBlobKey(), mezzanine.getSize());
+            return mezzanine;
+        } catch (RuntimeException e) {
+            deleteQuietly(incoming);
+            throw e;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Log.warn("mezzanine|failed to delete incoming file={}, error={}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.model.PhraseManifest;
+import org.example.audioservice.model.PhraseManifestId;
+import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.repository.PhraseManifestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code phrase_manifest_tab} in step with {@code file_tab}. Every file row is saved
+ * together with its manifest update in one transaction, downloads read the manifest by
+ * primary key and fetch the referenced file rows by id.
+ */
+@Service
+public class PhraseManifestService {
+
+    private static final Logger Log = LoggerFactory.getLogger(PhraseManifestService.class);
+
+    private final FileRepository fileRepository;
+    private final PhraseManifestRepository manifestRepository;
+    private final TransactionTemplate transactions;
+
+    public PhraseManifestService(FileRepository fileRepository, PhraseManifestRepository manifestRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.fileRepository = fileRepository;
+        this.manifestRepository = manifestRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Returns the current group of the phrase, or empty when nothing was uploaded for it.
+     */
+    @Transactional(readOnly = true)
+    public Optional<PhraseFiles> resolve(Long userId, Long phraseId) {
+        Optional<PhraseManifest> manifest = manifestRepository.findById(new PhraseManifestId(userId, phraseId));
+        if (manifest.isEmpty()) {
+            // phrase not backfilled yet, fall back to scanning its files
+            return Optional.ofNullable(resolveFromFiles(userId, phraseId));
+        }
+
+        PhraseManifest current = manifest.get();
+        Set<Long> fileIds = new HashSet<>(current.getFormatFileIds().values());
+        fileIds.add(current.getOriginalFileId());
+        Map<Long, FileEntity> filesById = fileRepository.findAllById(fileIds).stream()
+                .collect(Collectors.toMap(FileEntity::getId, Function.identity()));
+
+        return Optional.of(toPhraseFiles(current, filesById));
+    }
+
+    /**
+     * Resolves many phrases of a user with one manifest query and one file query, phrases
+     * without any upload are left out of the result.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, PhraseFiles> resolveAll(Long userId, Collection<Long> phraseIds) {
+        List<PhraseManifest> manifests = manifestRepository.findByUserIdAndPhraseIdIn(userId, phraseIds);
+
+        Set<Long> fileIds = new HashSet<>();
+        manifests.forEach(manifest -> {
+            fileIds.addAll(manifest.getFormatFileIds().values());
+            fileIds.add(manifest.getOriginalFileId());
+        });
+        Map<Long, FileEntity> filesById = fileRepository.findAllById(fileIds).stream()
+                .collect(Collectors.toMap(FileEntity::getId, Function.identity()));
+
+        Map<Long, PhraseFiles> resolved = new LinkedHashMap<>();
+        manifests.forEach(manifest -> resolved.put(manifest.getPhraseId(), toPhraseFiles(manifest, filesById)));
+        for (Long phraseId : phraseIds) {
+            if (!resolved.containsKey(phraseId)) {
+                // phrase not backfilled yet, fall back to scanning its files
+                PhraseFiles phraseFiles = resolveFromFiles(userId, phraseId);
+                if (phraseFiles != null) {
+                    resolved.put(phraseId, phraseFiles);
+                }
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Saves the original of a new upload group and points the phrase's manifest at it, in a
+     * transaction of its own so a lost race to create the manifest can be retried.
+     */
+    public FileEntity recordUpload(FileEntity original) {
+        return inUploadTransaction(List.of(original), () -> {
+            FileEntity saved = fileRepository.save(original);
+
+            PhraseManifest manifest = manifestRepository.findForUpdate(saved.getUserId(), saved.getPhraseId())
+                    .orElseGet(() -> newManifest(saved));
+            pointAtUpload(manifest, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Saves the originals of several phrases of one user in one transaction. The manifests are
+     * locked up front, so the file rows and the manifest writes are flushed as JDBC batches.
+     */
+    public List<FileEntity> recordUploads(Long userId, List<FileEntity> originals) {
+        return inUploadTransaction(originals, () -> {
+            Set<Long> phraseIds = originals.stream().map(FileEntity::getPhraseId).collect(Collectors.toSet());
+            Map<Long, PhraseManifest> manifests = manifestRepository.findAllForUpdate(userId, phraseIds).stream()
+                    .collect(Collectors.toMap(PhraseManifest::getPhraseId, Function.identity()));
+
+            List<FileEntity> saved = fileRepository.saveAll(originals);
+            for (FileEntity file : saved) {
+                pointAtUpload(manifests.computeIfAbsent(file.getPhraseId(), phraseId -> newManifest(file)), file);
+            }
+            return saved;
+        });
+    }
+
+    /**
+     * Saves a converted file and adds its format to the manifest when its group is still current.
+     */
+    @Transactional
+    public FileEntity recordConversion(FileEntity converted) {
+        FileEntity saved = fileRepository.save(converted);
+
+        manifestRepository.findForUpdate(saved.getUserId(), saved.getPhraseId())
+                .filter(manifest -> manifest.getGroupId().equals(saved.getGroupId()))
+                .ifPresent(manifest -> {
+                    manifest.putFormat(saved.getFormat().toLowerCase(), saved.getId());
+                    manifest.setUpdatedAt(System.currentTimeMillis());
+                });
+        return saved;
+    }
+
+    /**
+     * Deletes evicted converted files and drops their format from the manifests still pointing at them.
+     */
+    @Transactional
+    public void deleteDerivatives(List<FileEntity> derivatives) {
+        for (FileEntity file : derivatives) {
+            manifestRepository.findForUpdate(file.getUserId(), file.getPhraseId())
+                    .filter(manifest -> file.getId().equals(manifest.getFormatFileIds().get(file.getFormat().toLowerCase())))
+                    .filter(manifest -> !file.getId().equals(manifest.getOriginalFileId()))
+                    .ifPresent(manifest -> {
+                        manifest.removeFormat(file.getFormat().toLowerCase());
+                        manifest.setUpdatedAt(System.currentTimeMillis());
+                    });
+        }
+        fileRepository.deleteAll(derivatives);
+    }
+
+    /**
+     * Creates the manifest of a phrase from its existing files, returns false when it already had one.
+     */
+    @Transactional
+    public boolean backfill(PhraseKey key) {
+        if (manifestRepository.existsById(new PhraseManifestId(key.userId(), key.phraseId()))) {
+            return false;
+        }
+
+        PhraseFiles phraseFiles = resolveFromFiles(key.userId(), key.phraseId());
+        if (phraseFiles == null) {
+            return false;
+        }
+
+        Map<String, Long> formatFileIds = new LinkedHashMap<>();
+        phraseFiles.getFiles().forEach((format, file) -> formatFileIds.put(format, file.getId()));
+        manifestRepository.save(PhraseManifest.builder()
+                .userId(key.userId())
+                .phraseId(key.phraseId())
+                .groupId(phraseFiles.getGroupId())
+                .originalFileId(phraseFiles.getOriginal().getId())
+                .formatFileIds(formatFileIds)
+                .updatedAt(System.currentTimeMillis())
+                .build());
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PhraseKey> findPhrasesWithoutManifest(int limit) {
+        return new ArrayList<>(fileRepository.findPhrasesWithoutManifest(PageRequest.of(0, limit)));
+    }
+
+    private <T> T inUploadTransaction(List<FileEntity> originals, Supplier<T> record) {
+        try {
+            return transactions.execute(status -> record.get());
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            // a concurrent first upload of the phrase created its manifest (or won the deadlock
+            // over the missing row), the retry finds that row and locks it
+            Log.info("phrase_manifest|retry after concurrent manifest insert, files={}, error={}", originals.size(), e.getMessage());
+            originals.forEach(original -> original.setId(null));
+            return transactions.execute(status -> record.get());
+        }
+    }
+
+    private PhraseFiles toPhraseFiles(PhraseManifest manifest, Map<Long, FileEntity> filesById) {
+        Map<String, FileEntity> files = new LinkedHashMap<>();
+        manifest.getFormatFileIds().forEach((format, fileId) -> {
+            FileEntity file = filesById.get(fileId);
+            if (file != null) {
+                files.put(format, file);
+            }
+        });
+
+        return PhraseFiles.builder()
+                .userId(manifest.getUserId())
+                .phraseId(manifest.getPhraseId())
+                .groupId(manifest.getGroupId())
+                .original(filesById.get(manifest.getOriginalFileId()))
+                .files(files)
+                .build();
+    }
+
+    private PhraseManifest newManifest(FileEntity file) {
+        return PhraseManifest.builder()
+                .userId(file.getUserId())
+                .phraseId(file.getPhraseId())
+                .build();
+    }
+
+    private void pointAtUpload(PhraseManifest manifest, FileEntity saved) {
+        // a slower concurrent upload of an older group must not win
+        if (manifest.getGroupId() == null || saved.getGroupId() >= manifest.getGroupId()) {
+            manifest.setGroupId(saved.getGroupId());
+            manifest.setOriginalFileId(saved.getId());
+            manifest.setFormatFileIds(new LinkedHashMap<>(Map.of(saved.getFormat().toLowerCase(), saved.getId())));
+            manifest.setUpdatedAt(System.currentTimeMillis());
+            manifestRepository.save(manifest);
+        }
+    }
+
+    private PhraseFiles resolveFromFiles(Long userId, Long phraseId) {
+        Optional<FileEntity> latestFile = fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(userId, phraseId);
+        if (latestFile.isEmpty()) {
+            return null;
+        }
+
+        Long groupId = latestFile.get().getGroupId();
+        List<FileEntity> groupFiles = fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(userId, phraseId, groupId);
+
+        // ordered by creation, later files of a format replace earlier ones
+        Map<String, FileEntity> files = new LinkedHashMap<>();
+        groupFiles.forEach(file -> files.put(file.getFormat().toLowerCase(), file));
+        files.putIfAbsent(latestFile.get().getFormat().toLowerCase(), latestFile.get());
+
+        Log.info("phrase_manifest|resolved from files userId={}, phraseId={}, group={}, formats={}", userId, phraseId, groupId, files.keySet());
+        return PhraseFiles.builder()
+                .userId(userId)
+                .phraseId(phraseId)
+                .groupId(groupId)
+                .original(groupFiles.isEmpty() ? latestFile.get() : groupFiles.get(0))
+                .files(files)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.event.AudioUploadedEvent;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces the configured derivatives of every new upload in the background,
+ * so the first download of those formats is served from the existing-file branch.
+ */
+@Service
+public class PretranscodeService {
+
+    private static final Logger Log = LoggerFactory.getLogger(PretranscodeService.class);
+
+    private final FileService fileService;
+    private final Set<String> formats = new LinkedHashSet<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PretranscodeService(FileService fileService,
+                               @Value("${audio.pretranscode.formats:}") List<String> formats) {
+        this.fileService = fileService;
+        for (String format : formats) {
+            String normalized = format.trim().toLowerCase();
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (FileUtils.getMimeTypeFromExtension(normalized) == null) {
+                Log.warn("pretranscode|ignoring unsupported format={}", normalized);
+                continue;
+            }
+            this.formats.add(normalized);
+        }
+        Log.info("pretranscode|configured formats={}", this.formats);
+    }
+
+    // runs after the upload is committed, fallback covers saves made outside a transaction
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAudioUploaded(AudioUploadedEvent event) {
+        FileEntity original = event.file();
+
+        for (String format : formats) {
+            if (format.equalsIgnoreCase(original.getFormat())) {
+                continue;
+            }
+
+            ConversionKey key = new ConversionKey(original.getUserId(), original.getPhraseId(), original.getGroupId(), format);
+            submitted.incrementAndGet();
+            try {
+                fileService.requestConversion(key).whenComplete((converted, error) -> {
+                    if (error == null) {
+                        completed.incrementAndGet();
+                        Log.info("pretranscode|success|fileId={}, group={}, format={}", converted.getId(), key.groupId(), format);
+                    } else if (error instanceof ConversionRejectedException) {
+                        // the first download converts it on demand instead
+                        rejected.incrementAndGet();
+                        Log.warn("pretranscode|rejected|group={}, format={}, error={}", key.groupId(), format, error.getMessage());
+                    } else {
+                        failed.incrementAndGet();
+                        Log.error("pretranscode|fail|group={}, format={}, error={}", key.groupId(), format, error.getMessage());
+                    }
+                });
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                Log.error("pretranscode|fail|group={}, format={}, error={}", key.groupId(), format, e.getMessage());
+            }
+        }
+    }
+
+    public Set<String> getFormats() {
+        return Set.copyOf(formats);
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
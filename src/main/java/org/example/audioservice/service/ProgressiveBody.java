@@ -0,0 +1,13 @@
+package org.example.audioservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Opens the response body a conversion is streamed into, at the moment the conversion starts.
+ */
+@FunctionalInterface
+public interface ProgressiveBody {
+
+    OutputStream open(String fileName) throws IOException;
+}
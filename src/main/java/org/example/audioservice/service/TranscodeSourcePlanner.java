@@ -0,0 +1,92 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.dto.AudioStreamInfo;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.StorageBackend;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Picks the file a conversion decodes. Re-encoding a lossy derivative would add a generation
+ * of loss, so only the original and lossless files made from it are considered, cheapest to
+ * decode first: a pcm wav original, the mezzanine, a flac original, then wav and flac
+ * derivatives of a lossy original, and finally the lossy original itself. An original whose
+ * probed stream already matches the target settings is not decoded at all, its stream is
+ * copied into the target container.
+ */
+@Component
+public class TranscodeSourcePlanner {
+
+    private static final Set<String> LOSSLESS_FORMATS = Set.of("wav", "flac");
+    // lossless derivatives in the order they decode fastest
+    private static final List<String> DERIVATIVE_SOURCES = List.of("wav", "flac");
+
+    private final BlobStore blobStore;
+    private final StorageBackend storageBackend;
+    private final AudioFormatConstants audioFormatConstants;
+
+    /**
+     * Where the chosen source is stored, what it is for the logs: original, mezzanine or
+     * derivative, and whether its stream is copied rather than re-encoded.
+     */
+    public record TranscodeSource(String location, String kind, boolean streamCopy) {
+
+        public TranscodeSource(String location, String kind) {
+            this(location, kind, false);
+        }
+    }
+
+    public TranscodeSourcePlanner(BlobStore blobStore, StorageBackend storageBackend, AudioFormatConstants audioFormatConstants) {
+        this.blobStore = blobStore;
+        this.storageBackend = storageBackend;
+        this.audioFormatConstants = audioFormatConstants;
+    }
+
+    public static boolean isLossless(String format) {
+        return format != null && LOSSLESS_FORMATS.contains(format.toLowerCase());
+    }
+
+    /**
+     * Picks the source of the target format among the original and the other files of its group.
+     */
+    public TranscodeSource plan(FileEntity original, Collection<FileEntity> groupFiles, String targetFormat) {
+        if (audioFormatConstants.getConfig(targetFormat).accepts(AudioStreamInfo.of(original))) {
+            // e.g. opus uploaded in ogg and requested as opus, only the container changes
+            return new TranscodeSource(original.getFilePath(), "original", true);
+        }
+
+        String originalFormat = original.getFormat().toLowerCase();
+        TranscodeSource fromOriginal = new TranscodeSource(original.getFilePath(), "original");
+        if ("wav".equals(originalFormat)) {
+            // nothing decodes faster than pcm, and nothing is closer to the upload
+            return fromOriginal;
+        }
+
+        if (original.getContentHash() != null) {
+            Optional<BlobEntity> mezzanine = blobStore.findMezzanine(original.getContentHash());
+            if (mezzanine.isPresent()) {
+                return new TranscodeSource(mezzanine.get().getFilePath(), BlobEntity.ROLE_MEZZANINE);
+            }
+        }
+        if (isLossless(originalFormat)) {
+            return fromOriginal;
+        }
+
+        for (String format : DERIVATIVE_SOURCES) {
+            for (FileEntity file : groupFiles) {
+                if (!file.getId().equals(original.getId()) && format.equalsIgnoreCase(file.getFormat())
+                        && storageBackend.exists(file.getFilePath())) {
+                    return new TranscodeSource(file.getFilePath(), "derivative");
+                }
+            }
+        }
+        return fromOriginal;
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.audioservice.storage;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Content addressed file storage. Identical uploads, and derivatives made from identical
+ * sources with the same encoder settings, are stored once under {@code blobs/ab/cd/<key>}
+ * and shared by reference count between the file rows pointing at them. The two levels of
+ * hash prefix spread the blobs evenly, on disk as well as over the key space of a bucket.
+ */
+@Service
+public class BlobStore {
+
+    private static final Logger Log = LoggerFactory.getLogger(BlobStore.class);
+
+    private final BlobRepository blobRepository;
+    private final AudioFormatConstants audioFormatConstants;
+    private final StorageBackend storageBackend;
+    private final Path incomingDir;
+    private final TransactionTemplate transactions;
+
+    public BlobStore(BlobRepository blobRepository, AudioFormatConstants audioFormatConstants,
+                     StorageBackend storageBackend, @Value("${file.upload-dir}") String baseUploadDir,
+                     PlatformTransactionManager transactionManager) {
+        this.blobRepository = blobRepository;
+        this.audioFormatConstants = audioFormatConstants;
+        this.storageBackend = storageBackend;
+        this.transactions = new TransactionTemplate(transactionManager);
+        // same file system as local blobs, so files can be renamed into place
+        this.incomingDir = Paths.get(baseUploadDir, "incoming");
+    }
+
+    /**
+     * Path to write new content to before its key is known.
+     */
+    public Path newIncomingPath(String extension) {
+        return incomingDir.resolve(UUID.randomUUID() + "." + extension);
+    }
+
+    /**
+     * Key of the derivative of the given source in the given format's current encoder settings.
+     */
+    public String derivativeKey(String sourceHash, String format) {
+        AudioFormatConstants.AudioConfig config = audioFormatConstants.getConfig(format);
+        return sha256(sourceHash + "/" + format + "/" + config.fingerprint());
+    }
+
+    /**
+     * Key of the lossless mezzanine of the given source. It does not depend on the mezzanine
+     * settings, a mezzanine made with older settings is still a lossless decode source.
+     */
+    public String mezzanineKey(String sourceHash) {
+        return sha256(sourceHash + "/" + BlobEntity.ROLE_MEZZANINE);
+    }
+
+    /**
+     * The mezzanine of the source when it is stored and its file still exists.
+     */
+    @Transactional(readOnly = true)
+    public Optional<BlobEntity> findMezzanine(String sourceHash) {
+        return blobRepository.findById(mezzanineKey(sourceHash))
+                .filter(blob -> storageBackend.exists(blob.getFilePath()));
+    }
+
+    /**
+     * Takes a reference to the blob when it is stored and its file still exists.
+     */
+    @Transactional
+    public Optional<BlobEntity> acquire(String blobKey) {
+        return blobRepository.findForUpdate(blobKey)
+                .filter(blob -> storageBackend.exists(blob.getFilePath()))
+                .map(blob -> {
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    // a reused derivative counts as read, so eviction does not pick it right away
+                    blob.setLastAccessedAt(System.currentTimeMillis());
+                    Log.info("blob_store|reused blob={}, refs={}", blobKey, blob.getRefCount());
+                    return blob;
+                });
+    }
+
+    /**
+     * Moves the incoming file into the blob for the key and takes a reference to it. When the
+     * blob is already stored the incoming file is dropped. The file is uploaded before the
+     * blob row is locked, so no row lock or connection is held while it is sent. Two first
+     * stores of the same key race on the insert, the loser references the winner's blob.
+     */
+    public BlobEntity store(Path incoming, String blobKey, String extension, String sourceHash) {
+        return store(incoming, blobKey, extension, sourceHash, null);
+    }
+
+    /**
+     * Stores the mezzanine of the source. It is not reference counted, it is deleted together
+     * with its original.
+     */
+    public BlobEntity storeMezzanine(Path incoming, String sourceHash, String extension) {
+        return store(incoming, mezzanineKey(sourceHash), extension, sourceHash, BlobEntity.ROLE_MEZZANINE);
+    }
+
+    private BlobEntity store(Path incoming, String blobKey, String extension, String sourceHash, String role) {
+        Optional<BlobEntity> stored = transactions.execute(status -> reference(blobKey, null));
+        if (stored.isPresent()) {
+            deleteIncoming(incoming);
+            Log.info("blob_store|deduplicated blob={}, refs={}", blobKey, stored.get().getRefCount());
+            return stored.get();
+        }
+
+        long size;
+        String location;
+        try {
+            size = Files.size(incoming);
+            location = storageBackend.put(objectKey(blobKey, extension), incoming);
+        } catch (IOException e) {
+            Log.error("blob_store|fail|blob={}, error={}", blobKey, e.getMessage());
+            throw new StorageException("Failed to store blob: " + e.getMessage());
+        }
+
+        try {
+            return transactions.execute(status -> reference(blobKey, location)
+                    .orElseGet(() -> record(blobKey, sourceHash, role, location, size)));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent first store of the key inserted the row first
+            Log.info("blob_store|lost insert race for blob={}, referencing the stored one", blobKey);
+            return transactions.execute(status -> reference(blobKey, location)).orElseThrow(() -> e);
+        }
+    }
+
+    // references the blob when it is stored and its file exists, an object uploaded for it
+    // under another location is deleted once that commits
+    private Optional<BlobEntity> reference(String blobKey, String uploaded) {
+        return blobRepository.findForUpdate(blobKey)
+                .filter(blob -> storageBackend.exists(blob.getFilePath()))
+                .map(blob -> {
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    if (uploaded != null && !uploaded.equals(blob.getFilePath())) {
+                        deleteAfterCommit(blobKey, uploaded);
+                    }
+                    return blob;
+                });
+    }
+
+    private BlobEntity record(String blobKey, String sourceHash, String role, String location, long size) {
+        // a row whose file went missing is healed by the new copy
+        BlobEntity blob = blobRepository.findById(blobKey).orElseGet(() -> BlobEntity.builder()
+                .blobKey(blobKey)
+                .sourceHash(sourceHash)
+                .refCount(0L)
+                .hitCount(0L)
+                .role(role)
+                .createdAt(System.currentTimeMillis())
+                .build());
+        blob.setFilePath(location);
+        blob.setLastAccessedAt(System.currentTimeMillis());
+        blob.setSize(size);
+        blob.setRefCount(blob.getRefCount() + 1);
+        Log.info("blob_store|stored blob={} at path={}, refs={}", blobKey, location, blob.getRefCount());
+        return blobRepository.save(blob);
+    }
+
+    /**
+     * Drops a reference, deleting the blob and its file when it was the last one. The
+     * mezzanine of an original is deleted with it. Files are deleted once the transaction
+     * commits, a rolled back release keeps them.
+     */
+    @Transactional
+    public void release(String blobKey) {
+        blobRepository.findForUpdate(blobKey).ifPresent(blob -> {
+            blob.setRefCount(blob.getRefCount() - 1);
+            if (blob.getRefCount() > 0) {
+                return;
+            }
+            delete(blob);
+            if (blob.getSourceHash() == null) {
+                blobRepository.findForUpdate(mezzanineKey(blobKey)).ifPresent(this::delete);
+            }
+        });
+    }
+
+    private void delete(BlobEntity blob) {
+        blobRepository.delete(blob);
+        deleteAfterCommit(blob.getBlobKey(), blob.getFilePath());
+    }
+
+    private void deleteAfterCommit(String blobKey, String location) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteObject(blobKey, location);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteObject(blobKey, location);
+            }
+        });
+    }
+
+    private void deleteObject(String blobKey, String location) {
+        try {
+            storageBackend.delete(location);
+            Log.info("blob_store|deleted blob={} at path={}", blobKey, location);
+        } catch (IOException e) {
+            Log.warn("blob_store|failed to delete blob={} at path={}, error={}", blobKey, location, e.getMessage());
+        }
+    }
+
+    private void deleteIncoming(Path incoming) {
+        try {
+            Files.deleteIfExists(incoming);
+        } catch (IOException e) {
+            Log.warn("blob_store|failed to delete incoming file={}, error={}", incoming, e.getMessage());
+        }
+    }
+
+    private static String objectKey(String blobKey, String extension) {
+        return "blobs/" + blobKey.substring(0, 2) + "/" + blobKey.substring(2, 4) + "/" + blobKey + "." + extension;
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
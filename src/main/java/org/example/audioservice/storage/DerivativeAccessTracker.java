@@ -0,0 +1,64 @@
+package org.example.audioservice.storage;
+
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts reads of derivative blobs in memory and writes them to {@code blob_tab} in batches,
+ * so serving a cached derivative costs no write. Counts not flushed when a node stops are
+ * lost, eviction only needs them to be roughly right.
+ */
+@Component
+public class DerivativeAccessTracker {
+
+    private final BlobRepository blobRepository;
+    private final Map<String, Access> pending = new ConcurrentHashMap<>();
+
+    private static final class Access {
+        private final LongAdder hits = new LongAdder();
+        private volatile long lastAccessedAt;
+    }
+
+    public DerivativeAccessTracker(BlobRepository blobRepository) {
+        this.blobRepository = blobRepository;
+    }
+
+    /**
+     * Whether the file is a converted file stored as a shared blob. An original points at the
+     * blob keyed by its own content hash, a derivative at one keyed by its source and settings.
+     */
+    public static boolean isDerivative(FileEntity file) {
+        return file.getBlobKey() != null && !file.getBlobKey().equals(file.getContentHash());
+    }
+
+    public void recordAccess(FileEntity file) {
+        if (!isDerivative(file)) {
+            return;
+        }
+        Access access = pending.computeIfAbsent(file.getBlobKey(), blobKey -> new Access());
+        access.hits.increment();
+        access.lastAccessedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the counted reads to the blob rows, returns the number of blobs updated.
+     */
+    @Transactional
+    public int flush() {
+        int flushed = 0;
+        for (String blobKey : pending.keySet()) {
+            // a read racing with the removal may land on the dropped entry, losing that hit
+            Access access = pending.remove(blobKey);
+            if (access != null) {
+                flushed += blobRepository.recordAccess(blobKey, access.hits.sum(), access.lastAccessedAt);
+            }
+        }
+        return flushed;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.audioservice.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Stores objects as files under the upload directory, the location is the absolute path.
+ * Keys are expected to be fanned out already, e.g. {@code blobs/ab/cd/<hash>.mp3}, so no
+ * directory grows with the number of files.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${file.upload-dir}") String baseUploadDir) {
+        this.root = Paths.get(baseUploadDir).toAbsolutePath();
+    }
+
+    @Override
+    public String put(String key, Path source) throws IOException {
+        Path target = root.resolve(key).normalize();
+        if (!target.startsWith(root)) {
+            throw new IllegalArgumentException("Storage key escapes the upload directory: " + key);
+        }
+        Files.createDirectories(target.getParent());
+        // same file system as the scratch files, so this is a rename
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target.toString();
+    }
+
+    @Override
+    public StoredObject stat(String location) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(location), BasicFileAttributes.class);
+            return new StoredObject(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Path localPath(String location) {
+        return Paths.get(location);
+    }
+
+    @Override
+    public InputStream openRange(String location, long offset, long count) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(location), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return new BoundedInputStream(in, count);
+    }
+
+    @Override
+    public LocalFile fetch(String location) {
+        return new LocalFile(Paths.get(location), false);
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        Files.deleteIfExists(Paths.get(location));
+    }
+}
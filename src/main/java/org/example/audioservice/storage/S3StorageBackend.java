@@ -0,0 +1,271 @@
+package org.example.audioservice.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.ContentStreamProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores objects in an S3 compatible bucket (AWS S3, MinIO, Ceph), the location is
+ * {@code s3://<bucket>/<key>}. Files above the part size are uploaded in parts, so no
+ * request carries more than one part. Locations without the scheme are files written before
+ * the bucket was configured and keep being read from the local disk.
+ */
+@Component
+@ConditionalOnProperty(name = "audio.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Logger Log = LoggerFactory.getLogger(S3StorageBackend.class);
+
+    private static final String SCHEME = "s3://";
+    // smallest part S3 accepts, every part but the last must be at least this large
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final long partSize;
+    private final Path scratchDir;
+    private final LocalStorageBackend local;
+
+    @Autowired
+    public S3StorageBackend(@Value("${audio.storage.s3.endpoint:}") String endpoint,
+                            @Value("${audio.storage.s3.region:us-east-1}") String region,
+                            @Value("${audio.storage.s3.bucket}") String bucket,
+                            @Value("${audio.storage.s3.prefix:}") String prefix,
+                            @Value("${audio.storage.s3.access-key:}") String accessKey,
+                            @Value("${audio.storage.s3.secret-key:}") String secretKey,
+                            @Value("${audio.storage.s3.path-style:true}") boolean pathStyle,
+                            @Value("${audio.storage.s3.part-size:8MB}") DataSize partSize,
+                            @Value("${file.upload-dir}") String baseUploadDir) {
+        this(client(endpoint, region, accessKey, secretKey, pathStyle), bucket, prefix, partSize.toBytes(), baseUploadDir);
+    }
+
+    S3StorageBackend(S3Client s3, String bucket, String prefix, long partSize, String baseUploadDir) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("S3 part size must be at least 5MB, got " + partSize);
+        }
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.partSize = partSize;
+        // fetched copies live next to the other scratch files
+        this.scratchDir = Paths.get(baseUploadDir, "incoming");
+        this.local = new LocalStorageBackend(baseUploadDir);
+    }
+
+    private static S3Client client(String endpoint, String region, String accessKey, String secretKey, boolean pathStyle) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                // MinIO and most self hosted stores do not resolve bucket subdomains
+                .forcePathStyle(pathStyle);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        // without keys the default chain applies: environment, profile, instance role
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void close() {
+        s3.close();
+    }
+
+    @Override
+    public String put(String key, Path source) throws IOException {
+        String objectKey = prefix + key;
+        long size = Files.size(source);
+        try {
+            if (size <= partSize) {
+                s3.putObject(PutObjectRequest.builder().bucket(bucket).key(objectKey).build(), RequestBody.fromFile(source));
+            } else {
+                putMultipart(objectKey, source, size);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + objectKey + " to bucket " + bucket + ": " + e.getMessage(), e);
+        }
+        Files.deleteIfExists(source);
+        Log.info("s3_storage|stored key={}, bytes={}", objectKey, size);
+        return SCHEME + bucket + "/" + objectKey;
+    }
+
+    private void putMultipart(String objectKey, Path source, long size) {
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(objectKey).build()).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                UploadPartRequest part = UploadPartRequest.builder()
+                        .bucket(bucket).key(objectKey).uploadId(uploadId)
+                        .partNumber(partNumber).contentLength(length)
+                        .build();
+                String eTag = s3.uploadPart(part,
+                        RequestBody.fromContentProvider(partOf(source, offset, length), length, "application/octet-stream")).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(objectKey).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            Log.info("s3_storage|multipart upload key={}, parts={}", objectKey, parts.size());
+        } catch (RuntimeException e) {
+            // uploaded parts are billed until the upload is aborted
+            try {
+                s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(objectKey).uploadId(uploadId).build());
+            } catch (RuntimeException abortError) {
+                e.addSuppressed(abortError);
+            }
+            throw e;
+        }
+    }
+
+    // a new stream per call, the client reopens the part when it retries
+    private static ContentStreamProvider partOf(Path source, long offset, long length) {
+        return () -> {
+            try {
+                FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+                channel.position(offset);
+                return new BoundedInputStream(Channels.newInputStream(channel), length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @Override
+    public StoredObject stat(String location) throws IOException {
+        if (!isRemote(location)) {
+            return local.stat(location);
+        }
+        ObjectRef ref = ObjectRef.parse(location);
+        try {
+            HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder().bucket(ref.bucket()).key(ref.key()).build());
+            return new StoredObject(head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to stat " + location + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Path localPath(String location) {
+        return isRemote(location) ? null : local.localPath(location);
+    }
+
+    @Override
+    public InputStream openRange(String location, long offset, long count) throws IOException {
+        if (!isRemote(location)) {
+            return local.openRange(location, offset, count);
+        }
+        if (count <= 0) {
+            return InputStream.nullInputStream();
+        }
+        ObjectRef ref = ObjectRef.parse(location);
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(ref.bucket()).key(ref.key())
+                    .range("bytes=" + offset + "-" + (offset + count - 1))
+                    .build());
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public LocalFile fetch(String location) throws IOException {
+        if (!isRemote(location)) {
+            return local.fetch(location);
+        }
+        ObjectRef ref = ObjectRef.parse(location);
+        // keep the extension, ffmpeg and the converter tell the format by it
+        String name = ref.key().substring(ref.key().lastIndexOf('/') + 1);
+        String extension = name.contains(".") ? name.substring(name.lastIndexOf('.')) : "";
+        Files.createDirectories(scratchDir);
+        Path copy = scratchDir.resolve(UUID.randomUUID() + extension);
+        try {
+            s3.getObject(GetObjectRequest.builder().bucket(ref.bucket()).key(ref.key()).build(), ResponseTransformer.toFile(copy));
+        } catch (SdkException e) {
+            Files.deleteIfExists(copy);
+            throw new IOException("Failed to fetch " + location + ": " + e.getMessage(), e);
+        }
+        return new LocalFile(copy, true);
+    }
+
+    @Override
+    public void delete(String location) throws IOException {
+        if (!isRemote(location)) {
+            local.delete(location);
+            return;
+        }
+        ObjectRef ref = ObjectRef.parse(location);
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(ref.bucket()).key(ref.key()).build());
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isRemote(String location) {
+        return location.startsWith(SCHEME);
+    }
+
+    private record ObjectRef(String bucket, String key) {
+
+        static ObjectRef parse(String location) {
+            String path = location.substring(SCHEME.length());
+            int slash = path.indexOf('/');
+            if (slash <= 0 || slash == path.length() - 1) {
+                throw new IllegalArgumentException("Invalid S3 location: " + location);
+            }
+            return new ObjectRef(path.substring(0, slash), path.substring(slash + 1));
+        }
+    }
+}
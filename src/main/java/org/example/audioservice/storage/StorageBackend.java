@@ -0,0 +1,74 @@
+package org.example.audioservice.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where stored files live. Objects are written once under a key and then addressed by the
+ * location returned for it, which is what file rows keep in {@code file_path}. New content
+ * is always produced in a local scratch file first and handed over with {@link #put}.
+ */
+public interface StorageBackend {
+
+    /**
+     * Size and modification time of a stored object.
+     */
+    record StoredObject(long size, long lastModified) {
+    }
+
+    /**
+     * Local file holding an object for tools that need a path, e.g. ffmpeg. Closing deletes
+     * it when it is a temporary copy.
+     */
+    record LocalFile(Path path, boolean temporary) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            if (temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Reads part of a stored object.
+     */
+    @FunctionalInterface
+    interface RangeReader {
+        InputStream open(long offset, long count) throws IOException;
+    }
+
+    /**
+     * Stores the local file under the key and returns its location. The source is consumed,
+     * it no longer exists once this returns.
+     */
+    String put(String key, Path source) throws IOException;
+
+    /**
+     * Returns null when nothing is stored at the location.
+     */
+    StoredObject stat(String location) throws IOException;
+
+    default boolean exists(String location) {
+        try {
+            return stat(location) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The file behind the location when it is on the local disk, so it can be sent without
+     * copying, null for remote objects.
+     */
+    Path localPath(String location);
+
+    InputStream openRange(String location, long offset, long count) throws IOException;
+
+    LocalFile fetch(String location) throws IOException;
+
+    void delete(String location) throws IOException;
+}
@@ -0,0 +1,40 @@
+package org.example.audioservice.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Writes an archive entry by entry straight to a stream, nothing but the entry being copied
+ * is buffered. {@link #finish} writes the trailer, the stream itself is left open.
+ */
+public interface ArchiveWriter {
+
+    /**
+     * Copies {@code size} bytes of the stream into a new entry, the stream is not closed.
+     */
+    void putFile(String name, InputStream content, long size, long lastModified) throws IOException;
+
+    void putBytes(String name, byte[] content) throws IOException;
+
+    void finish() throws IOException;
+
+    /**
+     * Returns the writer of the archive type, {@code zip} or {@code tar}.
+     */
+    static ArchiveWriter open(String type, OutputStream out) {
+        return switch (type.toLowerCase()) {
+            case "zip" -> new ZipArchiveWriter(out);
+            case "tar" -> new TarArchiveWriter(out);
+            default -> throw new IllegalArgumentException("Unsupported archive type: " + type);
+        };
+    }
+
+    static String contentType(String type) {
+        return switch (type.toLowerCase()) {
+            case "zip" -> "application/zip";
+            case "tar" -> "application/x-tar";
+            default -> throw new IllegalArgumentException("Unsupported archive type: " + type);
+        };
+    }
+}
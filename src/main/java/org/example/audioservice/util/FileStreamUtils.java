@@ -0,0 +1,191 @@
+package org.example.audioservice.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class FileStreamUtils {
+
+    // Private constructor to prevent instantiation
+    private FileStreamUtils() {}
+
+    private static final Logger Log = LoggerFactory.getLogger(FileStreamUtils.class);
+
+    // tomcat sendfile attributes, set when the connector supports zero-copy writes
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Prepares a 200 response whose body is produced while it is written, e.g. by an encoder,
+     * and returns its stream. The length is unknown so the body is chunked and ranges are not
+     * offered, later requests are served from the cached file with ranges.
+     */
+    public static OutputStream openProgressive(HttpServletResponse response, String fileName, MediaType mediaType) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.formData()
+                .name("attachment")
+                .filename(fileName)
+                .build()
+                .toString());
+        return response.getOutputStream();
+    }
+
+    /**
+     * Writes the file described by the dto to the response, honouring a single byte range
+     * ({@code Range} / {@code If-Range}). A local file never goes through the heap, it is either
+     * handed to the container's sendfile support or copied with {@link FileChannel#transferTo}.
+     * A remote object is copied from a ranged read of the storage backend.
+     * Returns the number of body bytes sent.
+     */
+    public static long writeFile(HttpServletRequest request, HttpServletResponse response,
+                                 FileDownloadDTO file, MediaType mediaType) throws IOException {
+        long length = file.getContentLength();
+
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.formData()
+                .name("attachment")
+                .filename(file.getFileName())
+                .build()
+                .toString());
+        if (file.getLastModified() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.getLastModified());
+        }
+        if (file.getEtag() != null) {
+            response.setHeader(HttpHeaders.ETAG, file.getEtag());
+        }
+
+        long start = 0;
+        long end = length - 1;
+
+        HttpRange range = resolveRange(request, file);
+        if (range != null) {
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                Log.info("write_file|unsatisfiable range={} size={}", request.getHeader(HttpHeaders.RANGE), length);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return 0;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || count <= 0) {
+            return 0;
+        }
+
+        if (file.getFile() == null) {
+            try (InputStream in = file.getReader().open(start, count)) {
+                long copied = in.transferTo(response.getOutputStream());
+                if (copied < count) {
+                    Log.warn("write_file|short read path={} remaining={}", file.getFilePath(), count - copied);
+                }
+            }
+            return count;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // the connector writes the region itself once the handler returns
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return count;
+        }
+
+        transfer(file.getFile(), start, count, response);
+        return count;
+    }
+
+    // returns the single range to serve, or null when the whole file should be sent
+    private static HttpRange resolveRange(HttpServletRequest request, FileDownloadDTO file) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !HttpMethod.GET.matches(request.getMethod())) {
+            return null;
+        }
+
+        if (!isIfRangeSatisfied(request, file)) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            Log.info("write_file|ignoring invalid range={}", rangeHeader);
+            return null;
+        }
+
+        // multipart/byteranges is not worth it for audio, serve the full body instead
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, FileDownloadDTO file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+
+        // If-Range needs a strong match, a weak tag never matches
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(file.getEtag());
+        }
+
+        long ifRangeDate;
+        try {
+            ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // http dates have second precision
+        return ifRangeDate != -1 && ifRangeDate / 1000 == file.getLastModified() / 1000;
+    }
+
+    private static void transfer(Path path, long start, long count, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    // file was truncated underneath us, nothing more to send
+                    Log.warn("write_file|short transfer path={} remaining={}", path, remaining);
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
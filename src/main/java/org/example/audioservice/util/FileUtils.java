@@ -45,13 +45,24 @@ public class FileUtils {
             throw new StorageException("Uploaded File is empty");
         }
 
-        String contentType = file.getContentType();
+        return validateAudioContentType(file.getContentType());
+    }
+
+    public static String validateAudioContentType(String contentType) {
         if (contentType == null || !MIME_TYPE_TO_EXTENSION.containsKey(contentType)) {
             throw new UnsupportedFileFormatException("Unsupported audio file format: " + contentType);
         }
         return MIME_TYPE_TO_EXTENSION.get(contentType);
     }
 
+    /**
+     * Strong entity tag of a stored file. A file row never changes its content, so its id and
+     * creation time identify the bytes without reading them.
+     */
+    public static String entityTag(Long fileId, Long createdAt) {
+        return "\"" + fileId + "-" + Long.toHexString(createdAt != null ? createdAt : 0) + "\"";
+    }
+
     public static MediaType getAudioMediaType(String format) {
         return switch (format.toLowerCase()) {
             case "mp3" -> MediaType.valueOf("audio/mpeg");
@@ -0,0 +1,64 @@
+package org.example.audioservice.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller starts the task,
+ * callers arriving while it is in flight share its future instead of starting another one.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the in-flight future for the key, or starts the task when there is none.
+     * The key is released as soon as the task completes.
+     */
+    public CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> task) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            task.get().whenComplete((result, error) -> {
+                inFlight.remove(key, flight);
+                if (error != null) {
+                    flight.completeExceptionally(unwrap(error));
+                } else {
+                    flight.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+        }
+        return flight;
+    }
+
+    /**
+     * Same as {@link #submit} but waits for the result, rethrowing the task's exception as is.
+     */
+    public V execute(K key, Supplier<CompletableFuture<V>> task) {
+        try {
+            return submit(key, task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
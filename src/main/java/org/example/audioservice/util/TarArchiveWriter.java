@@ -0,0 +1,102 @@
+package org.example.audioservice.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal ustar writer for regular files. Tar records the size before the content, which is
+ * known for stored files, so the content is copied as is without any checksum pass.
+ */
+public class TarArchiveWriter implements ArchiveWriter {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int MAX_NAME_LENGTH = 100;
+    // largest size the 11 octal digits of a ustar header hold
+    private static final long MAX_SIZE = 077777777777L;
+
+    private final OutputStream out;
+
+    public TarArchiveWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void putFile(String name, InputStream content, long size, long lastModified) throws IOException {
+        out.write(header(name, size, lastModified));
+        long copied = content.transferTo(out);
+        if (copied != size) {
+            // the header is already sent, the archive cannot be fixed up any more
+            throw new IOException("Entry " + name + " changed while archiving, expected " + size + " bytes but read " + copied);
+        }
+        pad(size);
+        out.flush();
+    }
+
+    @Override
+    public void putBytes(String name, byte[] content) throws IOException {
+        out.write(header(name, content.length, System.currentTimeMillis()));
+        out.write(content);
+        pad(content.length);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // end of archive, two zero blocks
+        out.write(new byte[2 * BLOCK_SIZE]);
+        out.flush();
+    }
+
+    private void pad(long size) throws IOException {
+        int remainder = (int) (size % BLOCK_SIZE);
+        if (remainder > 0) {
+            out.write(new byte[BLOCK_SIZE - remainder]);
+        }
+    }
+
+    private static byte[] header(String name, long size, long lastModified) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Tar entry name too long: " + name);
+        }
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Tar entry too large: " + name);
+        }
+
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(header, 100, 8, 0644);               // mode
+        octal(header, 108, 8, 0);                  // uid
+        octal(header, 116, 8, 0);                  // gid
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, lastModified / 1000);
+        header[156] = '0';                         // regular file
+        ascii(header, 257, "ustar\0");
+        ascii(header, 263, "00");
+
+        // the checksum is computed with its own field set to spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    // zero padded octal digits followed by a nul, filling the field
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        String padded = "0".repeat(length - 1 - digits.length()) + digits;
+        ascii(header, offset, padded);
+        header[offset + length - 1] = 0;
+    }
+
+    private static void ascii(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
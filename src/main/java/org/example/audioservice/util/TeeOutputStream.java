@@ -0,0 +1,61 @@
+package org.example.audioservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes every byte to a primary stream and a client stream. A failing client, e.g. a
+ * listener that went away, is detached and the primary keeps receiving the output.
+ */
+public class TeeOutputStream extends OutputStream {
+
+    private static final Logger Log = LoggerFactory.getLogger(TeeOutputStream.class);
+
+    private final OutputStream primary;
+    private OutputStream client;
+
+    public TeeOutputStream(OutputStream primary, OutputStream client) {
+        this.primary = primary;
+        this.client = client;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        primary.write(b, off, len);
+        if (client != null) {
+            try {
+                client.write(b, off, len);
+                // the point of teeing is to get bytes to the client as soon as they exist
+                client.flush();
+            } catch (IOException e) {
+                Log.info("tee_output|client detached, error={}", e.getMessage());
+                client = null;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        primary.flush();
+    }
+
+    /**
+     * Closes the primary only, the client stream belongs to its caller.
+     */
+    @Override
+    public void close() throws IOException {
+        primary.close();
+    }
+
+    public boolean isClientDetached() {
+        return client == null;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.audioservice.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip without compression, the audio is compressed already. Entries are deflated at level 0
+ * rather than stored, so sizes and checksums go in data descriptors and every file is read once.
+ */
+public class ZipArchiveWriter implements ArchiveWriter {
+
+    private final ZipOutputStream zip;
+
+    public ZipArchiveWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out);
+        this.zip.setLevel(Deflater.NO_COMPRESSION);
+    }
+
+    @Override
+    public void putFile(String name, InputStream content, long size, long lastModified) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setLastModifiedTime(FileTime.fromMillis(lastModified));
+        zip.putNextEntry(entry);
+        content.transferTo(zip);
+        zip.closeEntry();
+        zip.flush();
+    }
+
+    @Override
+    public void putBytes(String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        zip.finish();
+        zip.flush();
+    }
+}
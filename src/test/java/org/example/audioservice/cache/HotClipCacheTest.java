@@ -0,0 +1,78 @@
+package org.example.audioservice.cache;
+
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.StorageBackend;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotClipCacheTest {
+
+    private final HotClipCache cache = new HotClipCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(4), 2, Duration.ofMinutes(10));
+
+    @Test
+    void shouldLoadOnSecondRequestAndServeRangesFromMemory() throws Exception {
+        // GIVEN
+        byte[] content = {1, 2, 3, 4, 5, 6, 7, 8};
+        AtomicInteger storageReads = new AtomicInteger();
+        StorageBackend.RangeReader source = (offset, count) -> {
+            storageReads.incrementAndGet();
+            return new ByteArrayInputStream(content, (int) offset, (int) count);
+        };
+        FileEntity file = file(1L, 10L);
+
+        // WHEN
+        HotClipCache.Clip first = cache.admit(file, content.length, 0, source);
+        HotClipCache.Clip second = cache.admit(file, content.length, 0, source);
+
+        // THEN
+        assertNull(first);
+        assertNotNull(second);
+        assertSame(second, cache.get(1L));
+        assertEquals(1, storageReads.get());
+        try (InputStream in = cache.get(1L).reader().open(2, 3)) {
+            assertArrayEquals(new byte[]{3, 4, 5}, in.readAllBytes());
+        }
+        assertEquals(content.length, cache.weightedSize());
+    }
+
+    @Test
+    void shouldSkipLargeFilesAndExpireOlderGroups() {
+        // GIVEN
+        byte[] content = new byte[128];
+        Arrays.fill(content, (byte) 7);
+        StorageBackend.RangeReader source = (offset, count) -> new ByteArrayInputStream(content, (int) offset, (int) count);
+        FileEntity oldGroup = file(1L, 10L);
+        FileEntity newGroup = file(2L, 20L);
+        FileEntity large = file(3L, 20L);
+        for (int i = 0; i < 2; i++) {
+            cache.admit(oldGroup, content.length, 0, source);
+            cache.admit(newGroup, content.length, 0, source);
+            cache.admit(large, DataSize.ofKilobytes(8).toBytes(), 0, source);
+        }
+
+        // WHEN
+        cache.expireOlderGroups(100L, 200L, 20L);
+
+        // THEN
+        assertNull(cache.get(1L));
+        assertNotNull(cache.get(2L));
+        assertNull(cache.get(3L));
+    }
+
+    private FileEntity file(Long id, Long groupId) {
+        return FileEntity.builder()
+                .id(id)
+                .userId(100L)
+                .phraseId(200L)
+                .groupId(groupId)
+                .build();
+    }
+}
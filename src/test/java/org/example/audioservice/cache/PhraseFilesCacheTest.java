@@ -0,0 +1,82 @@
+package org.example.audioservice.cache;
+
+import org.example.audioservice.config.ReadRouting;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.service.PhraseManifestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhraseFilesCacheTest {
+
+    private final PhraseManifestService phraseManifestService = mock(PhraseManifestService.class);
+    private final RedisPhraseFilesStore redisStore = mock(RedisPhraseFilesStore.class);
+    private final PhraseFilesCache cache = new PhraseFilesCache(phraseManifestService, Optional.of(redisStore),
+            100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    @Test
+    void shouldCacheLoadWhenAnotherPhraseIsInvalidated() {
+        // GIVEN
+        when(redisStore.get(any())).thenReturn(new RedisPhraseFilesStore.Entry(null, "3"));
+        when(phraseManifestService.resolve(100L, 1L)).thenAnswer(invocation -> {
+            cache.evictLocal(new PhraseKey(100L, 2L));
+            return Optional.of(phraseFiles(1L));
+        });
+
+        // WHEN
+        cache.get(100L, 1L);
+        cache.get(100L, 1L);
+
+        // THEN
+        verify(phraseManifestService, times(1)).resolve(100L, 1L);
+        verify(redisStore).put(eq(new PhraseKey(100L, 1L)), any(), eq("3"));
+    }
+
+    @Test
+    void shouldNotCacheLoadThatRacedWithInvalidationOfItsPhrase() {
+        // GIVEN
+        when(redisStore.get(any())).thenReturn(new RedisPhraseFilesStore.Entry(null, "3"));
+        when(phraseManifestService.resolve(100L, 1L)).thenAnswer(invocation -> {
+            cache.evictLocal(new PhraseKey(100L, 1L));
+            return Optional.of(phraseFiles(1L));
+        });
+
+        // WHEN
+        Optional<PhraseFiles> loaded = cache.get(100L, 1L);
+
+        // THEN
+        assertTrue(loaded.isPresent());
+        assertNull(cache.getLocalCache().getIfPresent(new PhraseKey(100L, 1L)));
+        verify(redisStore, never()).put(any(), any(), any());
+    }
+
+    @Test
+    void shouldLoadFromPrimaryWhatIsSharedThroughRedis() {
+        // GIVEN
+        ThreadLocal<?> onPrimary = (ThreadLocal<?>) ReflectionTestUtils.getField(ReadRouting.class, "ON_PRIMARY");
+        when(redisStore.get(any())).thenReturn(new RedisPhraseFilesStore.Entry(null, "3"));
+        when(phraseManifestService.resolve(100L, 1L)).thenAnswer(invocation -> {
+            assertNotNull(onPrimary.get(), "a replica read must not fill redis");
+            return Optional.of(phraseFiles(1L));
+        });
+
+        // WHEN
+        cache.get(100L, 1L);
+
+        // THEN
+        verify(redisStore).put(eq(new PhraseKey(100L, 1L)), any(), eq("3"));
+    }
+
+    private PhraseFiles phraseFiles(Long phraseId) {
+        return PhraseFiles.builder().userId(100L).phraseId(phraseId).groupId(1L).files(Map.of()).build();
+    }
+}
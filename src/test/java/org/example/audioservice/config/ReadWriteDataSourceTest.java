@@ -0,0 +1,130 @@
+package org.example.audioservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two embedded databases stand in for the primary and the replica, each knows its own name.
+ */
+class ReadWriteDataSourceTest {
+
+    private final List<ReadWriteDataSource> dataSources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        dataSources.forEach(ReadWriteDataSource::destroy);
+    }
+
+    @Test
+    void shouldReadFromReplicaUntilTheThreadWrites() {
+        // Arrange
+        ReadWriteDataSource dataSource = dataSource("rw_primary", "rw_replica");
+        dataSource.setReplicaUsable(true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = transactions(dataSource, true);
+        TransactionTemplate readWrite = transactions(dataSource, false);
+
+        // Act
+        String firstRead = readOnly.execute(status -> whoami(jdbcTemplate));
+        String write = readWrite.execute(status -> {
+            jdbcTemplate.update("update whoami set name = name");
+            return whoami(jdbcTemplate);
+        });
+        String readAfterWrite = readOnly.execute(status -> whoami(jdbcTemplate));
+
+        // Assert
+        assertEquals("rw_replica", firstRead);
+        assertEquals("rw_primary", write);
+        assertEquals("rw_primary", readAfterWrite);
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhenForcedOrReplicaIsBehind() {
+        // Arrange
+        ReadWriteDataSource dataSource = dataSource("rw_primary_2", "rw_replica_2");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = transactions(dataSource, true);
+
+        // Act
+        String beforeLagCheck = readOnly.execute(status -> whoami(jdbcTemplate));
+        dataSource.setReplicaUsable(true);
+        String forced = ReadRouting.onPrimary(() -> readOnly.execute(status -> whoami(jdbcTemplate)));
+
+        // Assert
+        assertEquals("rw_primary_2", beforeLagCheck);
+        assertEquals("rw_primary_2", forced);
+    }
+
+    @Test
+    void shouldUseReplicaOnlyOnceItHasTheHeartbeat() {
+        // Arrange
+        ReadWriteDataSource detached = dataSource("rw_primary_3", "rw_replica_3");
+        ReadWriteDataSource caughtUp = dataSource("rw_primary_4", "rw_primary_4");
+
+        // Act
+        new ReplicaLagMonitor(detached, Duration.ofSeconds(2), Duration.ofSeconds(1)).check();
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(caughtUp, Duration.ofSeconds(2), Duration.ofSeconds(1));
+        monitor.check();
+
+        // Assert
+        assertFalse(detached.isReplicaUsable());
+        assertTrue(caughtUp.isReplicaUsable());
+        assertTrue(monitor.getLagMillis() >= 0);
+    }
+
+    @Test
+    void shouldIgnoreHeartbeatOfOtherNodes() {
+        // Arrange
+        ReadWriteDataSource detached = dataSource("rw_primary_5", "rw_replica_5");
+        JdbcTemplate replica = new JdbcTemplate(detached.getReplica());
+        replica.execute("create table if not exists replica_heartbeat_tab (node_id varchar(64) primary key, beat_at bigint not null)");
+        // a fresh beat of a node whose clock runs ahead, replicated before this node's first beat
+        replica.update("insert into replica_heartbeat_tab (node_id, beat_at) values (?, ?)", "other-node", System.currentTimeMillis() + 60_000);
+
+        // Act
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(detached, Duration.ofSeconds(2), Duration.ofSeconds(1));
+        monitor.check();
+
+        // Assert
+        assertFalse(detached.isReplicaUsable());
+        assertEquals(-1, monitor.getLagMillis());
+    }
+
+    private ReadWriteDataSource dataSource(String primaryName, String replicaName) {
+        ReadWriteDataSource dataSource = new ReadWriteDataSource(pool(primaryName), pool(replicaName), Duration.ofSeconds(5));
+        dataSources.add(dataSource);
+        return dataSource;
+    }
+
+    private HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.execute("create table if not exists whoami (name varchar(32))");
+        jdbcTemplate.update("delete from whoami");
+        jdbcTemplate.update("insert into whoami (name) values (?)", name);
+        return pool;
+    }
+
+    private TransactionTemplate transactions(ReadWriteDataSource dataSource, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private String whoami(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select name from whoami", String.class);
+    }
+}
@@ -1,13 +1,27 @@
 package org.example.audioservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import org.example.audioservice.dto.BatchUploadResult;
 import org.example.audioservice.dto.FileDTO;
 import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.exception.ConversionRejectedException;
 import org.example.audioservice.exception.PhraseNotFoundException;
 import org.example.audioservice.exception.ResourceNotFoundException;
+import org.example.audioservice.exception.StorageException;
 import org.example.audioservice.exception.UserNotFoundException;
 import org.example.audioservice.exception.handler.GlobalExceptionHandler;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.example.audioservice.model.FileEntity;
 import org.example.audioservice.payload.ApiResponse;
+import org.example.audioservice.service.BatchUploadService;
+import org.example.audioservice.service.BulkDownloadService;
+import org.example.audioservice.service.BulkDownloadSink;
+import org.example.audioservice.service.ConversionJobService;
 import org.example.audioservice.service.FileService;
+import org.example.audioservice.service.ProgressiveBody;
+import org.example.audioservice.storage.LocalStorageBackend;
 import org.example.audioservice.util.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,12 +29,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
@@ -28,9 +44,22 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.context.annotation.Import;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -45,21 +74,44 @@ class FileControllerTest {
     @Mock
     private FileService fileService;
 
+    @Mock
+    private BatchUploadService batchUploadService;
+
+    @Mock
+    private BulkDownloadService bulkDownloadService;
+
+    @Mock
+    private ConversionJobService conversionJobService;
+
+    @Mock
+    private AudioMetrics audioMetrics;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private FileController fileController;
 
     private FileDownloadDTO fileDownloadDTO;
 
     @BeforeEach
-    void setup() {
+    void setup() throws Exception {
         mockMvc = MockMvcBuilders
                 .standaloneSetup(fileController)
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
 
+        Path audioFile = Files.createTempFile("test-audio", ".mp3");
+        Files.write(audioFile, new byte[]{1, 2, 3, 4});
+        audioFile.toFile().deleteOnExit();
+
         fileDownloadDTO = FileDownloadDTO.builder()
                 .fileName("test-audio.mp3")
-                .file(new byte[]{1, 2, 3, 4})
+                .file(audioFile)
+                .reader((offset, count) -> new LocalStorageBackend(audioFile.getParent().toString())
+                        .openRange(audioFile.toString(), offset, count))
+                .contentLength(4)
+                .lastModified(Files.getLastModifiedTime(audioFile).toMillis())
                 .build();
     }
 
@@ -96,24 +148,190 @@ class FileControllerTest {
         verify(fileService).saveAudioFile(any(), eq(100L), eq(200L));
     }
 
+    // test for upload sent as the raw request body
+    @Test
+    void shouldUploadRawAudioBodySuccessfully() throws Exception {
+        // Arrange
+        FileDTO fileDTO = FileDTO.builder()
+                .fileId(2L)
+                .fileName("clip.wav")
+                .filePath("/path/to/clip.wav")
+                .build();
+
+        when(fileService.saveAudioFile(any(InputStream.class), eq("audio/wav"), eq("clip.wav"), eq(100L), eq(200L)))
+                .thenReturn(fileDTO);
+
+        // Act & Assert
+        mockMvc.perform(post("/v1/audio/user/100/phrase/200")
+                        .param("fileName", "clip.wav")
+                        .contentType("audio/wav")
+                        .content(new byte[]{1, 2, 3, 4}))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.data.fileId").value(2L));
+
+        verify(fileService).saveAudioFile(any(InputStream.class), eq("audio/wav"), eq("clip.wav"), eq(100L), eq(200L));
+    }
+
+    // test for a batch upload where one part fails
+    @Test
+    void shouldReportStatusOfEveryBatchPart() throws Exception {
+        // Arrange
+        MockMultipartFile first = new MockMultipartFile("201", "a.mp3", "audio/mpeg", new byte[]{1, 2});
+        MockMultipartFile second = new MockMultipartFile("202", "b.txt", "text/plain", new byte[]{3, 4});
+
+        when(batchUploadService.saveAudioFiles(eq(100L), argThat(parts -> parts.size() == 2
+                && parts.get(0).name().equals("201") && parts.get(1).name().equals("202"))))
+                .thenReturn(List.of(
+                        BatchUploadResult.builder().partName("201").phraseId(201L).status(HttpStatus.OK)
+                                .fileId(1L).fileName("a.mp3").filePath("/path/to/a.mp3").build(),
+                        BatchUploadResult.builder().partName("202").phraseId(202L).status(HttpStatus.BAD_REQUEST)
+                                .error("Unsupported file format").build()));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/v1/audio/user/100/phrases")
+                        .file(first)
+                        .file(second))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.status").value("partial"))
+                .andExpect(jsonPath("$.data[0].status").value("success"))
+                .andExpect(jsonPath("$.data[0].fileId").value(1L))
+                .andExpect(jsonPath("$.data[1].status").value("error"))
+                .andExpect(jsonPath("$.data[1].code").value(400))
+                .andExpect(jsonPath("$.data[1].message").value("Unsupported file format"));
+    }
+
+    // test for a bulk download streamed as a zip
+    @Test
+    void shouldStreamBulkDownloadAsZip() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            BulkDownloadSink sink = invocation.getArgument(3);
+            sink.file(201L, fileDownloadDTO);
+            sink.failed(202L, "No file available");
+            return null;
+        }).when(bulkDownloadService).getAudioFiles(eq(100L), eq(List.of(201L, 202L)), eq("mp3"), any());
+
+        // Act
+        byte[] body = mockMvc.perform(get("/v1/audio/user/100/phrases/mp3").param("phraseIds", "201,202"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("201.mp3", zip.getNextEntry().getName());
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, zip.readAllBytes());
+            assertEquals("errors.txt", zip.getNextEntry().getName());
+            assertEquals("202: No file available\n", new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
     // test for successful file download
     @Test
     void shouldDownloadFileSuccessfully() throws Exception {
         // Mock service call
-        when(fileService.getAudioFile(1L, 2L, "mp3")).thenReturn(fileDownloadDTO);
+        when(fileService.getAudioFile(eq(1L), eq(2L), eq("mp3"), any())).thenReturn(fileDownloadDTO);
 
         mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3"))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "audio/mpeg"))
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "form-data; name=\"attachment\"; filename=\"test-audio.mp3\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3, 4}));
+    }
+
+    // test for partial download with a byte range
+    @Test
+    void shouldServeRequestedByteRange() throws Exception {
+        when(fileService.getAudioFile(eq(1L), eq(2L), eq("mp3"), any())).thenReturn(fileDownloadDTO);
+
+        mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3")
+                        .header(HttpHeaders.RANGE, "bytes=1-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-2/4"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 2))
+                .andExpect(content().bytes(new byte[]{2, 3}));
+    }
+
+    // test for range outside of the file
+    @Test
+    void shouldReturn416ForUnsatisfiableRange() throws Exception {
+        when(fileService.getAudioFile(eq(1L), eq(2L), eq("mp3"), any())).thenReturn(fileDownloadDTO);
+
+        mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3")
+                        .header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */4"));
+    }
+
+    // test for stale If-Range, the full file is sent instead of the range
+    @Test
+    void shouldServeFullFileWhenIfRangeDoesNotMatch() throws Exception {
+        when(fileService.getAudioFile(eq(1L), eq(2L), eq("mp3"), any())).thenReturn(fileDownloadDTO);
+
+        mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3")
+                        .header(HttpHeaders.RANGE, "bytes=1-2")
+                        .header(HttpHeaders.IF_RANGE, "Wed, 21 Oct 2015 07:28:00 GMT"))
+                .andExpect(status().isOk())
                 .andExpect(content().bytes(new byte[]{1, 2, 3, 4}));
     }
 
+    // test for a replay answered from metadata, the file is not read
+    @Test
+    void shouldReturn304WhenEtagMatchesLatestFile() throws Exception {
+        FileEntity latest = FileEntity.builder().id(7L).format("mp3").createdAt(1_700_000_000_000L).build();
+        when(fileService.findAudioFile(1L, 2L, "mp3")).thenReturn(Optional.of(latest));
+
+        mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3")
+                        .header(HttpHeaders.IF_NONE_MATCH, FileUtils.entityTag(7L, 1_700_000_000_000L)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, FileUtils.entityTag(7L, 1_700_000_000_000L)))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        verify(fileService, never()).getAudioFile(any(), any(), any(), any());
+    }
+
+    // test for the redirect from the latest file to its immutable url
+    @Test
+    void shouldRedirectLatestFileToVersionedUrl() throws Exception {
+        FileEntity latest = FileEntity.builder().id(7L).format("mp3").createdAt(1L).build();
+        when(fileService.findAudioFile(1L, 2L, "mp3")).thenReturn(Optional.of(latest));
+
+        mockMvc.perform(get("/v1/audio/user/1/phrase/2/mp3").param("redirect", "true"))
+                .andExpect(status().isFound())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/v1/audio/file/7"));
+    }
+
+    // test for a file served by id, cacheable for good and resumable with its etag
+    @Test
+    void shouldServeFileByIdAsImmutable() throws Exception {
+        FileEntity file = FileEntity.builder().id(7L).format("mp3").createdAt(1L).build();
+        FileDownloadDTO download = FileDownloadDTO.builder()
+                .fileId(7L)
+                .fileName("test-audio.mp3")
+                .file(fileDownloadDTO.getFile())
+                .contentLength(4)
+                .lastModified(1L)
+                .etag(FileUtils.entityTag(7L, 1L))
+                .build();
+        when(fileService.getFileById(7L)).thenReturn(file);
+        when(fileService.toDownload(file)).thenReturn(download);
+
+        mockMvc.perform(get("/v1/audio/file/7")
+                        .header(HttpHeaders.RANGE, "bytes=1-2")
+                        .header(HttpHeaders.IF_RANGE, FileUtils.entityTag(7L, 1L)))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.ETAG, FileUtils.entityTag(7L, 1L)))
+                .andExpect(content().bytes(new byte[]{2, 3}));
+    }
+
     // test for unsupported file format
     @Test
     void shouldReturn400ForUnsupportedFormatOnDownload() throws Exception {
         // Arrange
-        when(fileService.getAudioFile(eq(100L), eq(200L), eq("xyz")))
+        when(fileService.getAudioFile(eq(100L), eq(200L), eq("xyz"), any()))
                 .thenThrow(new IllegalArgumentException("Unsupported format"));
 
         // Act & Assert
@@ -123,14 +341,14 @@ class FileControllerTest {
                 .andExpect(jsonPath("$.message").value("Unsupported format"));
 
         // Verify
-        verify(fileService).getAudioFile(eq(100L), eq(200L), eq("xyz"));
+        verify(fileService).getAudioFile(eq(100L), eq(200L), eq("xyz"), any());
     }
 
     // test for file not found on download
     @Test
     void shouldReturn404WhenFileNotFoundOnDownload() throws Exception {
         // Arrange
-        when(fileService.getAudioFile(eq(100L), eq(200L), eq("mp3")))
+        when(fileService.getAudioFile(eq(100L), eq(200L), eq("mp3"), any()))
                 .thenThrow(new ResourceNotFoundException("File not found"));
 
         // Act & Assert
@@ -139,6 +357,79 @@ class FileControllerTest {
                 .andExpect(jsonPath("$.message").value("File not found"));
 
         // Verify
-        verify(fileService).getAudioFile(eq(100L), eq(200L), eq("mp3"));
+        verify(fileService).getAudioFile(eq(100L), eq(200L), eq("mp3"), any());
+    }
+
+    // test for an encoder failure after the first bytes of a progressive download were sent
+    @Test
+    void shouldNotAppendErrorBodyWhenStreamedConversionFails() throws Exception {
+        // Arrange
+        when(fileService.getAudioFile(eq(100L), eq(200L), eq("mp3"), any())).thenAnswer(invocation -> {
+            ProgressiveBody body = invocation.getArgument(3);
+            OutputStream out = body.open("test-audio.mp3");
+            out.write(new byte[]{1, 2, 3});
+            out.flush();
+            throw new StorageException("Failed to convert file: encoder exited with code 1");
+        });
+
+        // Act
+        ServletException exception = assertThrows(ServletException.class,
+                () -> mockMvc.perform(get("/v1/audio/user/100/phrase/200/mp3")));
+
+        // Assert
+        // reaches the container, which drops the connection instead of ending the body
+        assertInstanceOf(StorageException.class, exception.getCause());
+    }
+
+    // test for conversion rejected when the conversion queue is full
+    @Test
+    void shouldReturn503WithRetryAfterWhenConversionQueueIsFull() throws Exception {
+        // Arrange
+        when(fileService.getAudioFile(eq(100L), eq(200L), eq("flac"), any()))
+                .thenThrow(new ConversionRejectedException("Conversion queue is full", HttpStatus.SERVICE_UNAVAILABLE, 5));
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/audio/user/100/phrase/200/flac"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                .andExpect(jsonPath("$.status").value("error"));
+    }
+
+    // test for a conversion miss answered with a job to poll in async mode
+    @Test
+    void shouldAcceptConversionJobWhenAsyncAndFormatIsMissing() throws Exception {
+        // Arrange
+        ConversionJobEntity job = ConversionJobEntity.builder()
+                .jobId("job-1").userId(100L).phraseId(200L).groupId(1L).format("flac")
+                .status(ConversionJobEntity.Status.QUEUED).createdAt(1L).updatedAt(1L)
+                .build();
+        when(conversionJobService.submit(100L, 200L, "flac")).thenReturn(job);
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/audio/user/100/phrase/200/flac").header("Prefer", "respond-async"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/v1/audio/jobs/job-1"))
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.data.jobId").value("job-1"))
+                .andExpect(jsonPath("$.data.status").value("queued"));
+
+        verify(fileService, never()).getAudioFile(any(), any(), any(), any());
+    }
+
+    // test for a finished conversion job redirecting to its file
+    @Test
+    void shouldRedirectDoneConversionJobToFile() throws Exception {
+        // Arrange
+        ConversionJobEntity job = ConversionJobEntity.builder()
+                .jobId("job-1").userId(100L).phraseId(200L).groupId(1L).format("flac")
+                .status(ConversionJobEntity.Status.DONE).fileId(7L).createdAt(1L).updatedAt(2L)
+                .build();
+        when(conversionJobService.getJob("job-1")).thenReturn(job);
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/audio/jobs/job-1"))
+                .andExpect(status().isSeeOther())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/v1/audio/file/7"))
+                .andExpect(jsonPath("$.data.status").value("done"));
     }
 }
@@ -0,0 +1,56 @@
+package org.example.audioservice.health;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FfmpegHealthIndicatorTest {
+
+    @TempDir
+    Path ffmpegDir;
+
+    @Test
+    void shouldBeUpWhenVersionOutputIsLongerThanThePipeBuffer() throws Exception {
+        // Arrange
+        // like the real banner, followed by more output than the pipe holds; a write to a closed pipe fails the script
+        Path ffmpeg = Files.writeString(ffmpegDir.resolve("ffmpeg"), """
+                #!/bin/sh
+                set -e
+                echo "ffmpeg version 7.1 test"
+                i=0
+                while [ $i -lt 5000 ]; do
+                  echo "configuration: --enable-libmp3lame --enable-libopus --enable-libvorbis $i"
+                  i=$((i + 1))
+                done
+                """);
+        Files.setPosixFilePermissions(ffmpeg, PosixFilePermissions.fromString("rwxr-xr-x"));
+        FfmpegHealthIndicator indicator = new FfmpegHealthIndicator(ffmpegDir.toString(), Duration.ofMinutes(1));
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("ffmpeg version 7.1 test", health.getDetails().get("version"));
+    }
+
+    @Test
+    void shouldBeDownWhenFfmpegCannotBeRun() {
+        // Arrange
+        FfmpegHealthIndicator indicator = new FfmpegHealthIndicator(ffmpegDir.resolve("missing").toString(), Duration.ofMinutes(1));
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.DOWN, health.getStatus());
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.audioservice.health;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StorageHealthIndicatorTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void shouldBeUpWhenUploadDirIsWritable() {
+        // Arrange
+        StorageHealthIndicator indicator = new StorageHealthIndicator(uploadDir.resolve("uploads").toString(), DataSize.ofBytes(1));
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(true, health.getDetails().get("writable"));
+    }
+
+    @Test
+    void shouldBeDownWhenFreeSpaceIsBelowThreshold() {
+        // Arrange
+        StorageHealthIndicator indicator = new StorageHealthIndicator(uploadDir.toString(), DataSize.ofTerabytes(1024));
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.DOWN, health.getStatus());
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.audioservice.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final IngestPipeline ingestPipeline = new IngestPipeline(16);
+
+    @Test
+    void shouldStoreBodyAndFeedEveryStage() throws Exception {
+        // Arrange
+        byte[] body = ("RIFF\0\0\0\0WAVEfmt " + "x".repeat(100)).getBytes(StandardCharsets.ISO_8859_1);
+        Path target = tempDir.resolve("2025-01-01").resolve("clip.wav");
+        ByteCountStage byteCount = new ByteCountStage(1024);
+        DigestStage digest = new DigestStage();
+        HeaderSniffStage headerSniff = new HeaderSniffStage();
+
+        // Act
+        long written = ingestPipeline.ingest(new ByteArrayInputStream(body), target, List.of(byteCount, digest, headerSniff));
+
+        // Assert
+        assertEquals(body.length, written);
+        assertArrayEquals(body, Files.readAllBytes(target));
+        assertEquals(body.length, byteCount.getCount());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body)), digest.getHex());
+        assertEquals("wav", headerSniff.getFormat());
+    }
+
+    @Test
+    void shouldLeaveNothingBehindWhenBodyIsTooLarge() throws Exception {
+        // Arrange
+        byte[] body = new byte[100];
+        Path target = tempDir.resolve("clip.wav");
+
+        // Act & Assert
+        assertThrows(MaxUploadSizeExceededException.class,
+                () -> ingestPipeline.ingest(new ByteArrayInputStream(body), target, List.of(new ByteCountStage(50))));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.audioservice.library;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PcmWavTranscoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PcmWavTranscoder transcoder = new PcmWavTranscoder();
+
+    @Test
+    void shouldResampleAndDownmixStereoWav() throws Exception {
+        // Arrange, one second of 48k stereo with a constant left and right level
+        Path input = writeWav(tempDir.resolve("in.wav"), 48000, 2, 48000, 8000, -4000);
+        Path output = tempDir.resolve("out.wav");
+        AudioFormatConstants.AudioConfig target = new AudioFormatConstants.AudioConfig("pcm_s16le", null, 44100, 1);
+
+        // Act
+        PcmWavTranscoder.WavFormat source = transcoder.probe(input);
+        transcoder.transcode(input, source, output, target);
+
+        // Assert
+        assertEquals(new PcmWavTranscoder.WavFormat(2, 48000, 16, 44, 48000 * 4), source);
+        PcmWavTranscoder.WavFormat result = transcoder.probe(output);
+        assertEquals(1, result.channels());
+        assertEquals(44100, result.sampleRate());
+        assertEquals(16, result.bitsPerSample());
+        assertEquals(44100 * 2, result.dataLength(), 2);
+
+        ByteBuffer samples = ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 44; offset < samples.limit(); offset += 2) {
+            assertEquals(2000, samples.getShort(offset));
+        }
+    }
+
+    @Test
+    void shouldWriteFlacWithStreamInfoOfTheSamples() throws Exception {
+        // Arrange, a mono source is copied to both channels
+        Path input = writeWav(tempDir.resolve("in.wav"), 44100, 1, 5000, 1200, 0);
+        Path output = tempDir.resolve("out.flac");
+        AudioFormatConstants.AudioConfig target = new AudioFormatConstants().getConfig("flac");
+        ByteBuffer expected = ByteBuffer.allocate(5000 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 5000 * 2; i++) {
+            expected.putShort((short) 1200);
+        }
+
+        // Act
+        PcmWavTranscoder.WavFormat source = transcoder.probe(input);
+        transcoder.transcode(input, source, output, target);
+
+        // Assert
+        assertTrue(transcoder.supports(source, target));
+        ByteBuffer flac = ByteBuffer.wrap(Files.readAllBytes(output));
+        assertEquals(0x664C6143, flac.getInt(0)); // fLaC
+        long info = flac.getLong(18);
+        assertEquals(44100, info >>> 44);
+        assertEquals(2, ((info >>> 41) & 0x7) + 1);
+        assertEquals(16, ((info >>> 36) & 0x1F) + 1);
+        assertEquals(5000, info & 0xFFFFFFFFFL);
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(expected.array()), Arrays.copyOfRange(flac.array(), 26, 42));
+        assertTrue(flac.limit() < 200, "two constant blocks take a few bytes each");
+    }
+
+    @Test
+    void shouldLeaveFlacThatWouldLoseSamplesToFFmpeg() throws Exception {
+        // Arrange
+        AudioFormatConstants.AudioConfig flac = new AudioFormatConstants().getConfig("flac");
+
+        // Act & Assert
+        assertFalse(transcoder.supports(new PcmWavTranscoder.WavFormat(2, 48000, 16, 44, 4), flac));
+        assertFalse(transcoder.supports(new PcmWavTranscoder.WavFormat(2, 44100, 24, 44, 6), flac));
+        assertTrue(transcoder.supports(new PcmWavTranscoder.WavFormat(2, 48000, 24, 44, 6), new AudioFormatConstants().getConfig("wav")));
+    }
+
+    @Test
+    void shouldNotProbeNonPcmFiles() throws Exception {
+        // Arrange
+        Path mp3 = Files.write(tempDir.resolve("in.mp3"), new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        // Act & Assert
+        assertNull(transcoder.probe(mp3));
+    }
+
+    @Test
+    void shouldBeSelectedByFFmpegWrapperForWavTargets() throws Exception {
+        // Arrange, no ffmpeg binary is needed for this conversion
+        Path input = writeWav(tempDir.resolve("in.wav"), 22050, 1, 2205, 1000, 0);
+        FFmpegWrapper ffmpegWrapper = new FFmpegWrapper(new AudioFormatConstants(), transcoder, true,
+                new AudioMetrics(new SimpleMeterRegistry()), "");
+
+        // Act
+        File converted = ffmpegWrapper.convertAudio(input.toFile(), "wav", tempDir.resolve("out.wav"), null);
+
+        // Assert
+        PcmWavTranscoder.WavFormat result = transcoder.probe(converted.toPath());
+        assertEquals(2, result.channels());
+        assertEquals(44100, result.sampleRate());
+        assertEquals(4410 * 4, result.dataLength(), 8);
+    }
+
+    private static Path writeWav(Path path, int sampleRate, int channels, int frames, int left, int right) throws Exception {
+        int dataLength = frames * channels * 2;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataLength).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataLength);
+        for (int i = 0; i < frames; i++) {
+            wav.putShort((short) left);
+            if (channels == 2) {
+                wav.putShort((short) right);
+            }
+        }
+        return Files.write(path, wav.array());
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -82,6 +83,16 @@ class FileRepositoryTest {
         assertThat(oldestFile.get().getFileName()).isEqualTo("test1.mp3");
     }
 
+    @Test
+    void shouldFindAllFilesOfGroupOrderedByCreation() {
+        // WHEN
+        List<FileEntity> groupFiles = fileRepository
+                .findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 1L);
+
+        // THEN
+        assertThat(groupFiles).extracting(FileEntity::getFileName).containsExactly("test1.mp3", "test2.wav");
+    }
+
     @Test
     void shouldReturnEmptyWhenFileNotFound() {
         // WHEN
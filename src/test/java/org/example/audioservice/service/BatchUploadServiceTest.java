@@ -0,0 +1,119 @@
+package org.example.audioservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.dto.BatchUploadPart;
+import org.example.audioservice.dto.BatchUploadResult;
+import org.example.audioservice.exception.PhraseNotFoundException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchUploadServiceTest {
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private PhraseManifestService phraseManifestService;
+
+    @Mock
+    private BlobStore blobStore;
+
+    private BatchUploadService batchUploadService;
+
+    @BeforeEach
+    void setup() {
+        batchUploadService = new BatchUploadService(fileService, phraseManifestService, blobStore,
+                new AudioMetrics(new SimpleMeterRegistry()), 10, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchUploadService.shutdown();
+    }
+
+    @Test
+    void shouldSaveStoredPartsInOneBatchAndReportTheOthers() {
+        // Arrange
+        List<BatchUploadPart> parts = List.of(
+                part("201"), part("not-a-phrase"), part("202"), part("201"), part("999"));
+        when(fileService.stageUpload(any(MockMultipartFile.class), eq(100L), any()))
+                .thenAnswer(invocation -> staged(invocation.getArgument(2)));
+        lenient().doThrow(new PhraseNotFoundException("Phrase with id 999 not found")).when(fileService).checkPhrase(999L);
+        when(phraseManifestService.recordUploads(eq(100L), anyList())).thenAnswer(invocation -> {
+            List<FileEntity> files = invocation.getArgument(1);
+            files.forEach(file -> file.setId(file.getPhraseId() + 1000));
+            return files;
+        });
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.saveAudioFiles(100L, parts);
+
+        // Assert
+        assertEquals(List.of(HttpStatus.OK, HttpStatus.BAD_REQUEST, HttpStatus.OK, HttpStatus.BAD_REQUEST, HttpStatus.NOT_FOUND),
+                results.stream().map(BatchUploadResult::getStatus).toList());
+        assertEquals(1201L, results.get(0).getFileId());
+        assertEquals(1202L, results.get(2).getFileId());
+        verify(phraseManifestService, times(1)).recordUploads(eq(100L), argThatHasSize(2));
+        verify(fileService, times(2)).uploadSaved(any());
+    }
+
+    @Test
+    void shouldReleaseBlobsWhenBatchCannotBeSaved() {
+        // Arrange
+        when(fileService.stageUpload(any(MockMultipartFile.class), eq(100L), any()))
+                .thenAnswer(invocation -> staged(invocation.getArgument(2)));
+        when(phraseManifestService.recordUploads(eq(100L), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.saveAudioFiles(100L, List.of(part("201"), part("202")));
+
+        // Assert
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == HttpStatus.INTERNAL_SERVER_ERROR));
+        verify(blobStore).release("blob-201");
+        verify(blobStore).release("blob-202");
+        verify(fileService, never()).uploadSaved(any());
+    }
+
+    private static List<FileEntity> argThatHasSize(int size) {
+        return argThat(files -> files.size() == size);
+    }
+
+    private static BatchUploadPart part(String name) {
+        return new BatchUploadPart(name, new MockMultipartFile(name, name + ".mp3", "audio/mpeg", new byte[]{1, 2, 3}));
+    }
+
+    private static FileService.StagedUpload staged(Long phraseId) {
+        FileEntity file = FileEntity.builder()
+                .userId(100L)
+                .phraseId(phraseId)
+                .fileName(phraseId + ".mp3")
+                .filePath("/blobs/" + phraseId + ".mp3")
+                .format("mp3")
+                .groupId(1L)
+                .createdAt(1L)
+                .build();
+        BlobEntity blob = BlobEntity.builder().blobKey("blob-" + phraseId).build();
+        return new FileService.StagedUpload(file, blob);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.audioservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.dto.FileDownloadDTO;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.exception.UnsupportedFileFormatException;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.FileEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkDownloadServiceTest {
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private PhraseManifestService phraseManifestService;
+
+    private BulkDownloadService bulkDownloadService;
+
+    private final List<String> delivered = new ArrayList<>();
+
+    private final BulkDownloadSink sink = new BulkDownloadSink() {
+        @Override
+        public void file(Long phraseId, FileDownloadDTO file) {
+            delivered.add(phraseId + ":" + file.getFileName());
+        }
+
+        @Override
+        public void failed(Long phraseId, String reason) {
+            delivered.add(phraseId + ":failed");
+        }
+    };
+
+    @BeforeEach
+    void setup() {
+        bulkDownloadService = new BulkDownloadService(fileService, phraseManifestService,
+                new AudioMetrics(new SimpleMeterRegistry()), 10, 1);
+    }
+
+    @Test
+    void shouldServeExistingFilesFirstThenConversionsInCompletionOrder() throws IOException {
+        // GIVEN
+        FileEntity existing = file(1L, "mp3");
+        when(phraseManifestService.resolveAll(eq(100L), eq(List.of(1L, 2L, 3L, 4L)))).thenReturn(Map.of(
+                1L, phraseFiles(1L, existing),
+                2L, phraseFiles(2L, file(2L, "wav")),
+                3L, phraseFiles(3L, file(3L, "wav"))));
+        CompletableFuture<FileEntity> second = new CompletableFuture<>();
+        when(fileService.requestConversion(new ConversionKey(100L, 2L, 2L, "mp3"))).thenReturn(second);
+        when(fileService.requestConversion(new ConversionKey(100L, 3L, 3L, "mp3")))
+                .thenReturn(CompletableFuture.failedFuture(new StorageException("Failed to convert file")));
+        when(fileService.findDownload(any())).thenAnswer(invocation -> download(invocation.getArgument(0)));
+        // the window holds one conversion, phrase 3 only starts once phrase 2 finished
+        second.complete(file(2L, "mp3"));
+
+        // WHEN
+        bulkDownloadService.getAudioFiles(100L, List.of(1L, 2L, 3L, 4L, 1L), "MP3", sink);
+
+        // THEN
+        assertEquals(List.of("4:failed", "1:1.mp3", "2:2.mp3", "3:failed"), delivered);
+        verify(fileService, times(2)).requestConversion(any());
+    }
+
+    @Test
+    void shouldRejectUnsupportedFormatBeforeResolving() {
+        // WHEN / THEN
+        assertThrows(UnsupportedFileFormatException.class,
+                () -> bulkDownloadService.getAudioFiles(100L, List.of(1L), "exe", sink));
+        verifyNoInteractions(phraseManifestService);
+        assertTrue(delivered.isEmpty());
+    }
+
+    private static FileEntity file(Long phraseId, String format) {
+        return FileEntity.builder()
+                .id(phraseId * 10)
+                .userId(100L)
+                .phraseId(phraseId)
+                .fileName(phraseId + "." + format)
+                .filePath("/blobs/" + phraseId + "." + format)
+                .format(format)
+                .groupId(phraseId)
+                .createdAt(1L)
+                .build();
+    }
+
+    private static PhraseFiles phraseFiles(Long phraseId, FileEntity original) {
+        return PhraseFiles.builder()
+                .userId(100L)
+                .phraseId(phraseId)
+                .groupId(phraseId)
+                .original(original)
+                .files(Map.of(original.getFormat(), original))
+                .build();
+    }
+
+    private static FileDownloadDTO download(FileEntity file) {
+        return FileDownloadDTO.builder()
+                .fileId(file.getId())
+                .fileName(file.getFileName())
+                .filePath(file.getFilePath())
+                .build();
+    }
+}
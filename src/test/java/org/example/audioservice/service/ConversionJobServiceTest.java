@@ -0,0 +1,92 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.exception.ResourceNotFoundException;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({ConversionJobService.class, ConversionQueue.class})
+class ConversionJobServiceTest {
+
+    @Autowired
+    private ConversionJobService conversionJobService;
+
+    @Autowired
+    private ConversionQueue conversionQueue;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private ConversionQueueWorker conversionQueueWorker;
+
+    @MockitoBean
+    private PhraseFilesCache phraseFilesCache;
+
+    @BeforeEach
+    void setup() {
+        when(phraseFilesCache.get(100L, 200L)).thenReturn(Optional.of(PhraseFiles.builder()
+                .userId(100L).phraseId(200L).groupId(1L).files(Map.of()).build()));
+    }
+
+    @Test
+    void shouldReuseUnfinishedJobAndRecordTheConvertedFile() {
+        // WHEN
+        ConversionJobEntity job = conversionJobService.submit(100L, 200L, "FLAC");
+        ConversionJobEntity retried = conversionJobService.submit(100L, 200L, "flac");
+
+        // THEN
+        assertThat(retried.getJobId()).isEqualTo(job.getJobId());
+        assertThat(job.getStatus()).isEqualTo(ConversionJobEntity.Status.QUEUED);
+        verify(conversionQueueWorker, times(2)).wakeUp();
+
+        // WHEN
+        ConversionJobEntity claimed = conversionQueue.claim(job.getJobId()).orElseThrow();
+        conversionQueue.complete(claimed, 7L);
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity done = conversionJobService.getJob(job.getJobId());
+        assertThat(done.getStatus()).isEqualTo(ConversionJobEntity.Status.DONE);
+        assertThat(done.getFileId()).isEqualTo(7L);
+        assertThat(done.getAttempts()).isEqualTo(1);
+        assertThat(done.getLeaseOwner()).isNull();
+    }
+
+    @Test
+    void shouldQueueFailedJobAgainOnTheNextRequest() {
+        // GIVEN
+        ConversionJobEntity job = conversionJobService.submit(100L, 200L, "flac");
+        ConversionJobEntity claimed = conversionQueue.claim(job.getJobId()).orElseThrow();
+        conversionQueue.fail(claimed, new ResourceNotFoundException("No original file available"));
+        entityManager.clear();
+        assertThat(conversionJobService.getJob(job.getJobId()).getStatus()).isEqualTo(ConversionJobEntity.Status.FAILED);
+
+        // WHEN
+        ConversionJobEntity retried = conversionJobService.submit(100L, 200L, "flac");
+        entityManager.clear();
+
+        // THEN
+        assertThat(retried.getJobId()).isEqualTo(job.getJobId());
+        ConversionJobEntity queued = conversionJobService.getJob(job.getJobId());
+        assertThat(queued.getStatus()).isEqualTo(ConversionJobEntity.Status.QUEUED);
+        assertThat(queued.getAttempts()).isZero();
+        assertThat(queued.getError()).isNull();
+    }
+}
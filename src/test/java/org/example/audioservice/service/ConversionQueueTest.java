@@ -0,0 +1,201 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.example.audioservice.exception.ResourceNotFoundException;
+import org.example.audioservice.exception.StorageException;
+import org.example.audioservice.model.ConversionJobEntity;
+import org.example.audioservice.repository.ConversionJobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several queue instances with their own node ids stand in for the nodes sharing the table.
+ */
+@DataJpaTest
+class ConversionQueueTest {
+
+    private static final ConversionKey KEY = new ConversionKey(100L, 200L, 1L, "flac");
+
+    @Autowired
+    private ConversionJobRepository jobRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void shouldQueueOneJobPerDerivativeAndQueueItAgainOnceDone() {
+        // GIVEN
+        ConversionQueue queue = node("node-a", Duration.ofSeconds(30), 5);
+
+        // WHEN
+        ConversionJobEntity job = queue.enqueue(KEY);
+        ConversionJobEntity again = queue.enqueue(KEY);
+
+        // THEN
+        assertThat(again.getJobId()).isEqualTo(job.getJobId());
+        assertThat(jobRepository.count()).isEqualTo(1);
+
+        // WHEN
+        queue.complete(queue.claim(job.getJobId()).orElseThrow(), 7L);
+        entityManager.clear();
+        ConversionJobEntity requeued = queue.enqueue(KEY);
+
+        // THEN
+        assertThat(requeued.getJobId()).isEqualTo(job.getJobId());
+        assertThat(requeued.getStatus()).isEqualTo(ConversionJobEntity.Status.QUEUED);
+        assertThat(requeued.getFileId()).isNull();
+        assertThat(queue.getLeasedCount()).isZero();
+    }
+
+    @Test
+    void shouldClaimJobOfAnotherNodeOnlyOnceItsLeaseRunsOut() throws Exception {
+        // GIVEN
+        ConversionQueue nodeA = node("node-a", Duration.ofSeconds(30), 5);
+        ConversionQueue nodeB = node("node-b", Duration.ofMillis(1), 5);
+        ConversionJobEntity leasedByA = nodeA.enqueue(KEY);
+        ConversionJobEntity leasedByB = nodeA.enqueue(new ConversionKey(100L, 200L, 1L, "opus"));
+        nodeA.claim(leasedByA.getJobId()).orElseThrow();
+        nodeB.claim(leasedByB.getJobId()).orElseThrow();
+
+        // WHEN
+        Thread.sleep(5);
+        boolean stolenFromA = nodeB.claim(leasedByA.getJobId()).isPresent();
+        List<ConversionJobEntity> claimedByA = nodeA.claimReady(10);
+
+        // THEN
+        assertThat(stolenFromA).isFalse();
+        assertThat(claimedByA).singleElement().satisfies(job -> {
+            assertThat(job.getJobId()).isEqualTo(leasedByB.getJobId());
+            assertThat(job.getLeaseOwner()).isEqualTo("node-a");
+            assertThat(job.getAttempts()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void shouldFailJobWhoseLeaseRanOutOnItsLastAttemptInsteadOfClaimingIt() throws Exception {
+        // GIVEN
+        ConversionQueue nodeA = node("node-a", Duration.ofMillis(1), 1);
+        ConversionQueue nodeB = node("node-b", Duration.ofSeconds(30), 1);
+        ConversionJobEntity job = nodeA.enqueue(KEY);
+        nodeA.claim(job.getJobId()).orElseThrow();
+
+        // WHEN
+        Thread.sleep(5);
+        boolean claimed = nodeB.claim(job.getJobId()).isPresent();
+        entityManager.flush();
+        entityManager.clear();
+
+        // THEN
+        assertThat(claimed).isFalse();
+        ConversionJobEntity failed = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(ConversionJobEntity.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLeaseOwner()).isNull();
+    }
+
+    @Test
+    void shouldRecordOutcomeOnlyFromNodeHoldingTheLease() throws Exception {
+        // GIVEN
+        ConversionQueue nodeA = node("node-a", Duration.ofMillis(1), 5);
+        ConversionQueue nodeB = node("node-b", Duration.ofSeconds(30), 5);
+        ConversionJobEntity job = nodeA.enqueue(KEY);
+        ConversionJobEntity claimedByA = nodeA.claim(job.getJobId()).orElseThrow();
+        Thread.sleep(5);
+        ConversionJobEntity claimedByB = nodeB.claim(job.getJobId()).orElseThrow();
+
+        // WHEN
+        nodeA.complete(claimedByA, 7L);
+        nodeA.fail(claimedByA, new ResourceNotFoundException("No original file available"));
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity running = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(running.getStatus()).isEqualTo(ConversionJobEntity.Status.RUNNING);
+        assertThat(running.getLeaseOwner()).isEqualTo("node-b");
+
+        // WHEN
+        nodeB.complete(claimedByB, 8L);
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity done = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(done.getStatus()).isEqualTo(ConversionJobEntity.Status.DONE);
+        assertThat(done.getFileId()).isEqualTo(8L);
+    }
+
+    @Test
+    void shouldFailJobRejectedForRequestUntilItIsQueuedAgain() {
+        // GIVEN
+        ConversionQueue queue = node("node-a", Duration.ofSeconds(30), 5);
+        ConversionJobEntity job = queue.enqueue(KEY);
+
+        // WHEN
+        queue.reject(queue.claim(job.getJobId()).orElseThrow(),
+                new ConversionRejectedException("Too many pending conversions for user: 100", HttpStatus.TOO_MANY_REQUESTS, 5));
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity rejected = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(rejected.getStatus()).isEqualTo(ConversionJobEntity.Status.FAILED);
+        assertThat(rejected.getLeaseOwner()).isNull();
+        assertThat(queue.claimReady(10)).isEmpty();
+        assertThat(queue.getLeasedCount()).isZero();
+
+        // WHEN
+        ConversionJobEntity requeued = queue.enqueue(KEY);
+
+        // THEN
+        assertThat(requeued.getStatus()).isEqualTo(ConversionJobEntity.Status.QUEUED);
+        assertThat(requeued.getAttempts()).isZero();
+    }
+
+    @Test
+    void shouldRetryFailedAttemptAfterBackoffUntilAttemptsRunOut() {
+        // GIVEN
+        ConversionQueue queue = node("node-a", Duration.ofSeconds(30), 2);
+        ConversionJobEntity job = queue.enqueue(KEY);
+
+        // WHEN
+        queue.fail(queue.claim(job.getJobId()).orElseThrow(), new StorageException("ffmpeg failed"));
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity retrying = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(retrying.getStatus()).isEqualTo(ConversionJobEntity.Status.QUEUED);
+        assertThat(retrying.getError()).isEqualTo("ffmpeg failed");
+        assertThat(retrying.getNextAttemptAt()).isGreaterThan(System.currentTimeMillis() + 30_000);
+        assertThat(queue.claimReady(10)).isEmpty();
+
+        // WHEN
+        queue.fail(queue.claim(job.getJobId()).orElseThrow(),
+                new ConversionRejectedException("Conversion queue is full", HttpStatus.SERVICE_UNAVAILABLE, 5));
+        entityManager.clear();
+
+        // THEN
+        assertThat(jobRepository.findById(job.getJobId()).orElseThrow().getAttempts()).isEqualTo(1);
+
+        // WHEN
+        queue.fail(queue.claim(job.getJobId()).orElseThrow(), new StorageException("ffmpeg failed again"));
+        entityManager.clear();
+
+        // THEN
+        ConversionJobEntity failed = jobRepository.findById(job.getJobId()).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(ConversionJobEntity.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(2);
+        assertThat(failed.getError()).isEqualTo("ffmpeg failed again");
+    }
+
+    private ConversionQueue node(String nodeId, Duration lease, int maxAttempts) {
+        return new ConversionQueue(jobRepository, nodeId, lease, maxAttempts, Duration.ofMinutes(1),
+                Duration.ofMinutes(5), Duration.ofSeconds(60), 5);
+    }
+}
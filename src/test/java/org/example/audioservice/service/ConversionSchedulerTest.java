@@ -0,0 +1,117 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionSchedulerTest {
+
+    private ConversionScheduler scheduler;
+    private CountDownLatch blockerStarted;
+    private CountDownLatch releaseBlocker;
+
+    @BeforeEach
+    void setup() {
+        // single worker so the queue order is observable
+        scheduler = new ConversionScheduler(1, 4, 3, 7);
+        blockerStarted = new CountDownLatch(1);
+        releaseBlocker = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseBlocker.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void shouldDrainUsersRoundRobin() throws Exception {
+        // Arrange
+        occupyWorker();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+
+        // Act
+        futures.add(scheduler.submit(1L, () -> record(order, "u1-a")));
+        futures.add(scheduler.submit(1L, () -> record(order, "u1-b")));
+        futures.add(scheduler.submit(1L, () -> record(order, "u1-c")));
+        futures.add(scheduler.submit(2L, () -> record(order, "u2-a")));
+        releaseBlocker.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of("u1-a", "u2-a", "u1-b", "u1-c"), order);
+    }
+
+    @Test
+    void shouldRejectWith429WhenUserQueueIsFull() throws Exception {
+        // Arrange
+        occupyWorker();
+        scheduler.submit(1L, () -> "a");
+        scheduler.submit(1L, () -> "b");
+        scheduler.submit(1L, () -> "c");
+
+        // Act + Assert
+        ConversionRejectedException exception = assertThrows(ConversionRejectedException.class,
+                () -> scheduler.submit(1L, () -> "d"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        assertEquals(7, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void shouldRejectWith503WhenQueueIsFull() throws Exception {
+        // Arrange
+        occupyWorker();
+        scheduler.submit(1L, () -> "a");
+        scheduler.submit(2L, () -> "b");
+        scheduler.submit(3L, () -> "c");
+        scheduler.submit(4L, () -> "d");
+
+        // Act + Assert
+        ConversionRejectedException exception = assertThrows(ConversionRejectedException.class,
+                () -> scheduler.submit(5L, () -> "e"));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    void shouldPropagateTaskFailureToCaller() {
+        // Act + Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> scheduler.execute(1L, () -> {
+                    throw new IllegalStateException("ffmpeg exited with 1");
+                }));
+
+        assertEquals("ffmpeg exited with 1", exception.getMessage());
+    }
+
+    private void occupyWorker() throws InterruptedException {
+        scheduler.submit(0L, () -> {
+            blockerStarted.countDown();
+            try {
+                releaseBlocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocker";
+        });
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    private String record(List<String> order, String name) {
+        order.add(name);
+        return name;
+    }
+}
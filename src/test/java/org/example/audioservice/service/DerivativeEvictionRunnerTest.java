@@ -0,0 +1,131 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.model.PhraseManifest;
+import org.example.audioservice.model.PhraseManifestId;
+import org.example.audioservice.repository.BlobRepository;
+import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.repository.PhraseManifestRepository;
+import org.example.audioservice.storage.DerivativeAccessTracker;
+import org.example.audioservice.storage.LocalStorageBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@Import({DerivativeEvictionRunner.class, DerivativeEvictionService.class, PhraseManifestService.class, DerivativeAccessTracker.class,
+        LocalStorageBackend.class})
+@TestPropertySource(properties = {"audio.derivatives.max-size=50B", "audio.derivatives.eviction.policy=lru",
+        "file.upload-dir=${java.io.tmpdir}"})
+class DerivativeEvictionRunnerTest {
+
+    private static final String SOURCE_HASH = "ab".repeat(32);
+
+    @Autowired
+    private DerivativeEvictionRunner evictionRunner;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private PhraseManifestRepository manifestRepository;
+
+    @MockitoBean
+    private PhraseFilesCache phraseFilesCache;
+
+    @MockitoBean
+    private AudioMetrics audioMetrics;
+
+    @TempDir
+    Path storage;
+
+    @Test
+    void shouldEvictLeastRecentlyReadDerivativesAndKeepOriginals() throws Exception {
+        // GIVEN
+        long now = System.currentTimeMillis();
+        BlobEntity original = blob("original", null, 1000, 1L);
+        BlobEntity oldest = blob("oldest", SOURCE_HASH, 100, 1_000L);
+        BlobEntity older = blob("older", SOURCE_HASH, 100, 2_000L);
+        BlobEntity recent = blob("recent", SOURCE_HASH, 100, now);
+
+        FileEntity originalFile = file("mp3", original.getBlobKey(), original.getBlobKey());
+        FileEntity oldestFile = file("wav", oldest.getBlobKey(), original.getBlobKey());
+        FileEntity olderFile = file("ogg", older.getBlobKey(), original.getBlobKey());
+        FileEntity recentFile = file("aac", recent.getBlobKey(), original.getBlobKey());
+
+        Map<String, Long> formats = new LinkedHashMap<>();
+        formats.put("mp3", originalFile.getId());
+        formats.put("wav", oldestFile.getId());
+        formats.put("ogg", olderFile.getId());
+        formats.put("aac", recentFile.getId());
+        manifestRepository.save(PhraseManifest.builder()
+                .userId(100L)
+                .phraseId(200L)
+                .groupId(1L)
+                .originalFileId(originalFile.getId())
+                .formatFileIds(formats)
+                .updatedAt(now)
+                .build());
+
+        // WHEN
+        long freed = evictionRunner.evictOverBudget();
+
+        // THEN
+        // the recently read derivative stays although the budget is still exceeded
+        assertThat(freed).isEqualTo(200);
+        assertThat(blobRepository.findAll()).extracting(BlobEntity::getBlobKey).containsExactlyInAnyOrder("original", "recent");
+        assertThat(Files.exists(Path.of(oldest.getFilePath()))).isFalse();
+        assertThat(Files.exists(Path.of(recent.getFilePath()))).isTrue();
+        assertThat(fileRepository.findAll()).extracting(FileEntity::getFormat).containsExactlyInAnyOrder("mp3", "aac");
+        assertThat(manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow().getFormatFileIds())
+                .containsOnlyKeys("mp3", "aac");
+        verify(phraseFilesCache, times(2)).invalidate(100L, 200L);
+    }
+
+    private BlobEntity blob(String blobKey, String sourceHash, int size, long lastAccessedAt) throws Exception {
+        Path file = Files.write(storage.resolve(blobKey), new byte[size]);
+        return blobRepository.save(BlobEntity.builder()
+                .blobKey(blobKey)
+                .filePath(file.toString())
+                .size((long) size)
+                .refCount(1L)
+                .sourceHash(sourceHash)
+                .createdAt(1L)
+                .lastAccessedAt(lastAccessedAt)
+                .hitCount(0L)
+                .build());
+    }
+
+    private FileEntity file(String format, String blobKey, String contentHash) {
+        return fileRepository.save(FileEntity.builder()
+                .userId(100L)
+                .phraseId(200L)
+                .fileName("clip." + format)
+                .filePath(storage.resolve(blobKey).toString())
+                .format(format)
+                .groupId(1L)
+                .createdAt(1L)
+                .contentHash(contentHash)
+                .blobKey(blobKey)
+                .build());
+    }
+}
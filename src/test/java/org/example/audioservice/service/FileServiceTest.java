@@ -1,28 +1,69 @@
 package org.example.audioservice.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.audioservice.cache.HotClipCache;
+import org.example.audioservice.cache.PhraseFilesCache;
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.dto.ConversionKey;
 import org.example.audioservice.dto.FileDownloadDTO;
 import org.example.audioservice.exception.*;
+import org.example.audioservice.ingest.IngestPipeline;
 import org.example.audioservice.library.FFmpegWrapper;
+import org.example.audioservice.library.FFprobeWrapper;
+import org.example.audioservice.library.PcmWavTranscoder;
+import org.example.audioservice.metrics.AudioMetrics;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.ConversionJobEntity;
 import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.repository.BlobRepository;
 import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.repository.PhraseManifestRepository;
 import org.example.audioservice.service.FileService;
+import org.example.audioservice.service.TranscodeSourcePlanner;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.DerivativeAccessTracker;
+import org.example.audioservice.storage.LocalStorageBackend;
+import org.example.audioservice.util.TeeOutputStream;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,7 +75,37 @@ class FileServiceTest {
     @Mock
     private FFmpegWrapper ffmpegWrapper;
 
-    @InjectMocks
+    @Mock
+    private FFprobeWrapper ffprobeWrapper;
+
+    @Mock
+    private PhraseManifestRepository manifestRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private ConversionQueue conversionQueue;
+
+    // jobs queued through the mocked conversion queue, by job id
+    private final Map<String, ConversionJobEntity> queuedJobs = new ConcurrentHashMap<>();
+
+    private ConversionScheduler conversionScheduler;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LocalStorageBackend storageBackend;
+
+    private PhraseManifestService phraseManifestService;
+
+    private PhraseFilesCache phraseFilesCache;
+
     private FileService fileService;
 
     private FileEntity fileEntity;
@@ -42,6 +113,27 @@ class FileServiceTest {
 
     @BeforeEach
     void setup() throws Exception {
+        conversionScheduler = new ConversionScheduler(2, 10, 10, 5);
+        storageBackend = new LocalStorageBackend(System.getProperty("java.io.tmpdir"));
+        // no manifest rows are stubbed, so phrases resolve through the file_tab fallback
+        phraseManifestService = new PhraseManifestService(fileRepository, manifestRepository, mock(PlatformTransactionManager.class));
+        phraseFilesCache = new PhraseFilesCache(phraseManifestService, Optional.empty(), 100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        fileService = fileService(ffmpegWrapper);
+        // every job is claimed by this node unless a test says otherwise
+        lenient().when(conversionQueue.enqueue(any())).thenAnswer(invocation -> {
+            ConversionKey key = invocation.getArgument(0);
+            return queuedJobs.computeIfAbsent(key.toString(), jobId -> ConversionJobEntity.builder()
+                    .jobId(jobId)
+                    .userId(key.userId())
+                    .phraseId(key.phraseId())
+                    .groupId(key.groupId())
+                    .format(key.format())
+                    .status(ConversionJobEntity.Status.QUEUED)
+                    .attempts(0)
+                    .build());
+        });
+        lenient().when(conversionQueue.claim(any())).thenAnswer(invocation -> Optional.ofNullable(queuedJobs.get(invocation.getArgument(0))));
+
         filePath = Files.createTempFile("test-file", ".mp3");
 
         fileEntity = FileEntity.builder()
@@ -56,11 +148,28 @@ class FileServiceTest {
                 .build();
     }
 
+    @AfterEach
+    void tearDown() {
+        conversionScheduler.shutdown();
+    }
+
+    private FileService fileService(FFmpegWrapper ffmpeg) {
+        return new FileService(fileRepository, ffmpeg, conversionScheduler, eventPublisher,
+                phraseFilesCache, phraseManifestService, new IngestPipeline(8192), blobStore,
+                new AudioMetrics(meterRegistry), new DerivativeAccessTracker(blobRepository),
+                storageBackend, new TranscodeSourcePlanner(blobStore, storageBackend, new AudioFormatConstants()),
+                ffprobeWrapper, new AudioFormatConstants(),
+                new HotClipCache(DataSize.ofBytes(0), DataSize.ofMegabytes(1), 2, Duration.ofMinutes(10)),
+                conversionQueue);
+    }
+
     @Test
     void shouldReturnLatestFileWhenExists() throws Exception {
         // Arrange
         when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
                 .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
 
         // Act
         FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "mp3");
@@ -72,6 +181,25 @@ class FileServiceTest {
         verify(fileRepository, never()).findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(any(), any(), anyLong());
     }
 
+    @Test
+    void shouldServeRepeatedRequestsFromCache() throws Exception {
+        // Arrange
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+
+        // Act
+        fileService.getAudioFile(100L, 200L, "mp3");
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "mp3");
+
+        // Assert
+        assertEquals(filePath, result.getFile());
+        verify(fileRepository, times(1)).findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L);
+        verify(fileRepository, times(1)).findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L);
+        assertEquals(2.0, meterRegistry.get(AudioMetrics.LOOKUP).tag("format", "mp3").tag("result", "hit").counter().count());
+    }
+
     @Test
     void shouldReturn404WhenNoOriginalOrConvertedFileExists() {
         // Arrange
@@ -92,6 +220,8 @@ class FileServiceTest {
 
         when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
                 .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
 
         when(fileRepository.findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(
                 eq(100L), eq(200L), eq("wav"), anyLong())).thenReturn(Optional.empty());
@@ -100,6 +230,7 @@ class FileServiceTest {
                 eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
 
         when(ffmpegWrapper.convertAudio(any(), eq("wav"))).thenReturn(convertedFile);
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
         FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "wav");
@@ -108,6 +239,317 @@ class FileServiceTest {
         assertNotNull(result);
         assertEquals("test.mp3", result.getFileName());
         verify(fileRepository).save(any());
+        verify(conversionQueue).complete(argThat(job -> "wav".equals(job.getFormat())), any());
+    }
+
+    @Test
+    void shouldWaitForConversionLeasedByAnotherNode() throws Exception {
+        // Arrange
+        FileEntity converted = FileEntity.builder()
+                .id(7L)
+                .userId(100L)
+                .phraseId(200L)
+                .fileName("test.mp3")
+                .filePath(Files.createTempFile("converted-elsewhere", ".wav").toString())
+                .format("wav")
+                .groupId(999L)
+                .createdAt(System.currentTimeMillis())
+                .build();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        doReturn(Optional.empty()).when(conversionQueue).claim(any());
+        when(conversionQueue.awaitDone(any())).thenReturn(CompletableFuture.completedFuture(7L));
+        when(fileRepository.findById(7L)).thenReturn(Optional.of(converted));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "wav");
+
+        // Assert
+        assertEquals(converted.getFilePath(), result.getFile().toString());
+        verifyNoInteractions(ffmpegWrapper);
+        verify(conversionQueue, never()).complete(any(), any());
+    }
+
+    @Test
+    void shouldFailClaimedJobWhenRequestIsRejected() {
+        // Arrange
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        conversionScheduler.shutdown();
+
+        // Act
+        assertThrows(ConversionRejectedException.class, () -> fileService.getAudioFile(100L, 200L, "wav"));
+
+        // Assert
+        verify(conversionQueue).reject(argThat(job -> "wav".equals(job.getFormat())), any());
+        verify(conversionQueue, never()).fail(any(), any());
+        verifyNoInteractions(ffmpegWrapper);
+    }
+
+    @Test
+    void shouldReuseDerivativeOfIdenticalUpload() throws Exception {
+        // Arrange
+        Path sharedFile = Files.createTempFile("shared", ".wav");
+        fileEntity.setContentHash("abcd");
+        BlobEntity sharedBlob = BlobEntity.builder()
+                .blobKey("derived")
+                .filePath(sharedFile.toString())
+                .size(0L)
+                .refCount(2L)
+                .build();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+        when(blobStore.derivativeKey("abcd", "wav")).thenReturn("derived");
+        when(blobStore.acquire("derived")).thenReturn(Optional.of(sharedBlob));
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "wav");
+
+        // Assert
+        assertEquals(sharedFile, result.getFile());
+        verifyNoInteractions(ffmpegWrapper);
+        verify(fileRepository).save(argThat(file -> "derived".equals(file.getBlobKey()) && "abcd".equals(file.getContentHash())));
+    }
+
+    @Test
+    void shouldConvertAgainWhenDerivativeWasEvicted() throws Exception {
+        // Arrange
+        File convertedFile = Files.createTempFile("converted", ".wav").toFile();
+        FileEntity evicted = FileEntity.builder()
+                .id(2L)
+                .userId(100L)
+                .phraseId(200L)
+                .fileName("test.mp3")
+                .filePath(filePath.resolveSibling("evicted-" + System.nanoTime() + ".wav").toString())
+                .format("wav")
+                .groupId(999L)
+                .createdAt(fileEntity.getCreatedAt() + 1)
+                .build();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(evicted));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity, evicted));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(100L, 200L, "wav", 999L))
+                .thenReturn(Optional.of(evicted));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(Optional.of(fileEntity));
+        when(ffmpegWrapper.convertAudio(any(), eq("wav"))).thenReturn(convertedFile);
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "wav");
+
+        // Assert
+        assertEquals(convertedFile.toPath(), result.getFile());
+        verify(ffmpegWrapper).convertAudio(any(), eq("wav"));
+    }
+
+    @Test
+    void shouldRemuxWhenOriginalStreamMatchesTarget() throws Exception {
+        // Arrange
+        File remuxedFile = Files.createTempFile("remuxed", ".opus").toFile();
+        Path incoming = Files.createTempFile("incoming", ".opus");
+        fileEntity.setFormat("ogg");
+        fileEntity.setContentHash("abcd");
+        fileEntity.setCodec("opus");
+        fileEntity.setSampleRate(48000);
+        fileEntity.setChannels(2);
+        fileEntity.setBitrate(64000L);
+        fileEntity.setDurationMs(2500L);
+        BlobEntity blob = BlobEntity.builder()
+                .blobKey("derived")
+                .filePath(remuxedFile.getPath())
+                .size(0L)
+                .refCount(1L)
+                .build();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+        when(blobStore.derivativeKey("abcd", "opus")).thenReturn("derived");
+        when(blobStore.acquire("derived")).thenReturn(Optional.empty());
+        when(blobStore.newIncomingPath("opus")).thenReturn(incoming);
+        when(ffmpegWrapper.remux(any(), eq("opus"), eq(incoming), isNull())).thenReturn(incoming.toFile());
+        when(blobStore.store(incoming, "derived", "opus", "abcd")).thenReturn(blob);
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "opus");
+
+        // Assert
+        assertEquals(remuxedFile.toPath(), result.getFile());
+        verify(ffmpegWrapper, never()).convertAudio(any(), any(), any(), any());
+        verify(fileRepository).save(argThat(file -> "opus".equals(file.getCodec()) && file.getBitrate() == 64000L
+                && file.getDurationMs() == 2500L));
+    }
+
+    @Test
+    void shouldConvertWavOriginalToFlacInProcess() throws Exception {
+        // Arrange, no ffmpeg binary is needed for this conversion
+        FileService inProcess = fileService(new FFmpegWrapper(new AudioFormatConstants(), new PcmWavTranscoder(), true,
+                new AudioMetrics(meterRegistry), ""));
+        Path original = writeWav(Files.createTempFile("original", ".wav"), 4410);
+        Path incoming = filePath.resolveSibling("incoming-" + System.nanoTime() + ".flac");
+        fileEntity.setFormat("wav");
+        fileEntity.setFilePath(original.toString());
+        fileEntity.setContentHash("abcd");
+        BlobEntity blob = BlobEntity.builder()
+                .blobKey("derived")
+                .filePath(incoming.toString())
+                .size(0L)
+                .refCount(1L)
+                .build();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+        when(blobStore.derivativeKey("abcd", "flac")).thenReturn("derived");
+        when(blobStore.acquire("derived")).thenReturn(Optional.empty());
+        when(blobStore.newIncomingPath("flac")).thenReturn(incoming);
+        when(blobStore.store(incoming, "derived", "flac", "abcd")).thenReturn(blob);
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = inProcess.getAudioFile(100L, 200L, "flac");
+
+        // Assert
+        assertEquals(incoming, result.getFile());
+        assertArrayEquals("fLaC".getBytes(), Arrays.copyOf(Files.readAllBytes(incoming), 4));
+        assertEquals(1, meterRegistry.get(AudioMetrics.CONVERSION)
+                .tag("source", "wav").tag("target", "flac").tag("engine", "pcm").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void shouldStreamStreamableFormatWhileConverting() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(fileService, "progressiveEnabled", true);
+        File convertedFile = Files.createTempFile("converted", ".ogg").toFile();
+        ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+        when(ffmpegWrapper.convertAudio(any(), eq("ogg"), isNull(), notNull())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(new byte[]{1, 2, 3});
+            return convertedFile;
+        });
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "ogg", fileName -> responseBody);
+
+        // Assert
+        assertNull(result);
+        assertArrayEquals(new byte[]{1, 2, 3}, responseBody.toByteArray());
+        verify(fileRepository).save(argThat(file -> file.getFilePath().equals(convertedFile.getPath())));
+        assertEquals(3.0, meterRegistry.get(AudioMetrics.SERVED_BYTES).tag("format", "ogg").counter().count());
+    }
+
+    @Test
+    void shouldCountOnlyBytesStreamedBeforeClientWentAway() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(fileService, "progressiveEnabled", true);
+        File convertedFile = Files.write(Files.createTempFile("converted", ".ogg"), new byte[6]).toFile();
+        OutputStream responseBody = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 3) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+        when(ffmpegWrapper.convertAudio(any(), eq("ogg"), isNull(), notNull())).thenAnswer(invocation -> {
+            // the tee detaches the client and keeps encoding for the cache
+            try (TeeOutputStream tee = new TeeOutputStream(OutputStream.nullOutputStream(), invocation.getArgument(3))) {
+                tee.write(new byte[]{1, 2, 3});
+                tee.write(new byte[]{4, 5, 6});
+            }
+            return convertedFile;
+        });
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        FileDownloadDTO result = fileService.getAudioFile(100L, 200L, "ogg", fileName -> responseBody);
+
+        // Assert
+        assertNull(result);
+        assertEquals(3.0, meterRegistry.get(AudioMetrics.SERVED_BYTES).tag("format", "ogg").counter().count());
+    }
+
+    @Test
+    void shouldConvertOnceForConcurrentRequests() throws Exception {
+        // Arrange
+        File convertedFile = Files.createTempFile("converted", ".wav").toFile();
+        CountDownLatch conversionStarted = new CountDownLatch(1);
+        CountDownLatch releaseConversion = new CountDownLatch(1);
+
+        when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
+                .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
+
+        when(fileRepository.findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(
+                eq(100L), eq(200L), eq("wav"), anyLong())).thenReturn(Optional.empty());
+
+        when(fileRepository.findTopByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(
+                eq(100L), eq(200L), anyLong())).thenReturn(Optional.of(fileEntity));
+
+        when(ffmpegWrapper.convertAudio(any(), eq("wav"))).thenAnswer(invocation -> {
+            conversionStarted.countDown();
+            releaseConversion.await(5, TimeUnit.SECONDS);
+            return convertedFile;
+        });
+        when(fileRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<FileDownloadDTO> leader = executor.submit(() -> fileService.getAudioFile(100L, 200L, "wav"));
+            assertTrue(conversionStarted.await(5, TimeUnit.SECONDS));
+            Future<FileDownloadDTO> follower = executor.submit(() -> fileService.getAudioFile(100L, 200L, "wav"));
+
+            // give the follower time to join the in-flight conversion before it completes
+            Thread.sleep(200);
+            releaseConversion.countDown();
+
+            // Assert
+            assertEquals(convertedFile.toPath(), leader.get(5, TimeUnit.SECONDS).getFile());
+            assertEquals(convertedFile.toPath(), follower.get(5, TimeUnit.SECONDS).getFile());
+            verify(ffmpegWrapper, times(1)).convertAudio(any(), eq("wav"));
+            verify(fileRepository, times(1)).save(any());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Test
@@ -115,6 +557,8 @@ class FileServiceTest {
         // Arrange
         when(fileRepository.findTopByUserIdAndPhraseIdOrderByCreatedAtDesc(100L, 200L))
                 .thenReturn(Optional.of(fileEntity));
+        when(fileRepository.findByUserIdAndPhraseIdAndGroupIdOrderByCreatedAtAsc(100L, 200L, 999L))
+                .thenReturn(List.of(fileEntity));
 
         when(fileRepository.findTopByUserIdAndPhraseIdAndFormatAndGroupIdOrderByCreatedAtDesc(
                 eq(100L), eq(200L), eq("wav"), anyLong())).thenReturn(Optional.empty());
@@ -140,4 +584,18 @@ class FileServiceTest {
 
         assertTrue(exception.getMessage().contains("Unsupported format"));
     }
+
+    // 44.1k stereo 16 bit pcm, the wav config's own settings
+    private static Path writeWav(Path path, int frames) throws Exception {
+        int dataLength = frames * 4;
+        ByteBuffer wav = ByteBuffer.allocate(44 + dataLength).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + dataLength).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 2)
+                .putInt(44100).putInt(44100 * 4).putShort((short) 4).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(dataLength);
+        for (int i = 0; i < frames * 2; i++) {
+            wav.putShort((short) (Math.sin(i / 20.0) * 8000));
+        }
+        return Files.write(path, wav.array());
+    }
 }
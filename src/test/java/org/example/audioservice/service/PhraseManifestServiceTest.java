@@ -0,0 +1,194 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.PhraseFiles;
+import org.example.audioservice.dto.PhraseKey;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.model.PhraseManifest;
+import org.example.audioservice.model.PhraseManifestId;
+import org.example.audioservice.repository.FileRepository;
+import org.example.audioservice.repository.PhraseManifestRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PhraseManifestService.class)
+class PhraseManifestServiceTest {
+
+    @Autowired
+    private PhraseManifestService phraseManifestService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private PhraseManifestRepository manifestRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldPointManifestAtLatestUploadAndAddConversions() {
+        // GIVEN
+        phraseManifestService.recordUpload(file("old.mp3", "mp3", 1L, 1000L));
+        FileEntity original = phraseManifestService.recordUpload(file("new.wav", "wav", 2L, 2000L));
+
+        // WHEN
+        FileEntity converted = phraseManifestService.recordConversion(file("new.wav", "flac", 2L, 3000L));
+        phraseManifestService.recordConversion(file("old.mp3", "ogg", 1L, 4000L));
+
+        // THEN
+        PhraseManifest manifest = manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow();
+        assertThat(manifest.getGroupId()).isEqualTo(2L);
+        assertThat(manifest.getOriginalFileId()).isEqualTo(original.getId());
+        assertThat(manifest.getFormatFileIds()).isEqualTo(Map.of("wav", original.getId(), "flac", converted.getId()));
+
+        PhraseFiles phraseFiles = phraseManifestService.resolve(100L, 200L).orElseThrow();
+        assertThat(phraseFiles.getGroupId()).isEqualTo(2L);
+        assertThat(phraseFiles.getOriginal().getFileName()).isEqualTo("new.wav");
+        assertThat(phraseFiles.getFiles()).containsOnlyKeys("wav", "flac");
+    }
+
+    @Test
+    void shouldBackfillManifestFromExistingFiles() {
+        // GIVEN
+        FileEntity original = fileRepository.save(file("legacy.mp3", "mp3", 7L, 1000L));
+        FileEntity converted = fileRepository.save(file("legacy.mp3", "wav", 7L, 2000L));
+
+        // WHEN
+        assertThat(phraseManifestService.findPhrasesWithoutManifest(10)).containsExactly(new PhraseKey(100L, 200L));
+        boolean created = phraseManifestService.backfill(new PhraseKey(100L, 200L));
+
+        // THEN
+        assertThat(created).isTrue();
+        assertThat(phraseManifestService.findPhrasesWithoutManifest(10)).isEmpty();
+        PhraseManifest manifest = manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow();
+        assertThat(manifest.getOriginalFileId()).isEqualTo(original.getId());
+        assertThat(manifest.getFormatFileIds()).isEqualTo(Map.of("mp3", original.getId(), "wav", converted.getId()));
+    }
+
+    @Test
+    void shouldRecordBatchOfUploadsAndPointEveryManifest() {
+        // GIVEN
+        phraseManifestService.recordUpload(file("old.mp3", "mp3", 1L, 1000L));
+        FileEntity other = file("other.wav", "wav", 2L, 2000L);
+        other.setPhraseId(201L);
+
+        // WHEN
+        List<FileEntity> saved = phraseManifestService.recordUploads(100L, List.of(file("new.ogg", "ogg", 2L, 2000L), other));
+
+        // THEN
+        assertThat(saved).allMatch(file -> file.getId() != null);
+        PhraseManifest updated = manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow();
+        assertThat(updated.getOriginalFileId()).isEqualTo(saved.get(0).getId());
+        assertThat(updated.getFormatFileIds()).isEqualTo(Map.of("ogg", saved.get(0).getId()));
+        PhraseManifest created = manifestRepository.findById(new PhraseManifestId(100L, 201L)).orElseThrow();
+        assertThat(created.getOriginalFileId()).isEqualTo(saved.get(1).getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldRecordConcurrentFirstUploadsOfPhrase() throws Exception {
+        // GIVEN
+        CompletableFuture<FileEntity> first = uncommittedFirstUpload();
+
+        try {
+            // WHEN
+            FileEntity second = phraseManifestService.recordUpload(file("second.wav", "wav", 2L, 2000L));
+            first.get(5, TimeUnit.SECONDS);
+
+            // THEN
+            PhraseManifest manifest = manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow();
+            assertThat(manifest.getGroupId()).isEqualTo(2L);
+            assertThat(manifest.getOriginalFileId()).isEqualTo(second.getId());
+            assertThat(fileRepository.count()).isEqualTo(2);
+        } finally {
+            // committed outside the test transaction, nothing rolls it back
+            manifestRepository.deleteAll();
+            fileRepository.deleteAll();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldRecordWholeBatchWhenOnePhraseRacesWithFirstUpload() throws Exception {
+        // GIVEN
+        CompletableFuture<FileEntity> first = uncommittedFirstUpload();
+        FileEntity other = file("other.wav", "wav", 2L, 2000L);
+        other.setPhraseId(201L);
+
+        try {
+            // WHEN
+            List<FileEntity> saved = phraseManifestService.recordUploads(100L, List.of(file("second.ogg", "ogg", 2L, 2000L), other));
+            first.get(5, TimeUnit.SECONDS);
+
+            // THEN
+            assertThat(manifestRepository.findById(new PhraseManifestId(100L, 200L)).orElseThrow().getOriginalFileId())
+                    .isEqualTo(saved.get(0).getId());
+            assertThat(manifestRepository.findById(new PhraseManifestId(100L, 201L)).orElseThrow().getOriginalFileId())
+                    .isEqualTo(saved.get(1).getId());
+            assertThat(fileRepository.count()).isEqualTo(3);
+        } finally {
+            manifestRepository.deleteAll();
+            fileRepository.deleteAll();
+        }
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownPhrase() {
+        // WHEN
+        Optional<PhraseFiles> result = phraseManifestService.resolve(999L, 999L);
+
+        // THEN
+        assertThat(result).isNotPresent();
+    }
+
+    private CompletableFuture<FileEntity> uncommittedFirstUpload() throws InterruptedException {
+        CountDownLatch firstInserted = new CountDownLatch(1);
+        CompletableFuture<FileEntity> first = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    // the first manifest row stays uncommitted while the other upload runs into it
+                    FileEntity saved = phraseManifestService.recordUpload(file("first.mp3", "mp3", 1L, 1000L));
+                    manifestRepository.flush();
+                    firstInserted.countDown();
+                    sleep(300);
+                    return saved;
+                }));
+        assertThat(firstInserted.await(5, TimeUnit.SECONDS)).isTrue();
+        return first;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private FileEntity file(String fileName, String format, Long groupId, Long createdAt) {
+        return FileEntity.builder()
+                .userId(100L)
+                .phraseId(200L)
+                .fileName(fileName)
+                .filePath("/path/to/" + fileName + "." + format)
+                .format(format)
+                .groupId(groupId)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.dto.ConversionKey;
+import org.example.audioservice.event.AudioUploadedEvent;
+import org.example.audioservice.exception.ConversionRejectedException;
+import org.example.audioservice.model.FileEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PretranscodeServiceTest {
+
+    @Mock
+    private FileService fileService;
+
+    private FileEntity original;
+
+    @BeforeEach
+    void setup() {
+        original = FileEntity.builder()
+                .id(1L)
+                .userId(100L)
+                .phraseId(200L)
+                .fileName("test.mp3")
+                .filePath("/path/to/test.mp3")
+                .format("mp3")
+                .groupId(999L)
+                .createdAt(System.currentTimeMillis())
+                .build();
+    }
+
+    @Test
+    void shouldRequestConfiguredFormatsExceptOriginal() {
+        // Arrange
+        PretranscodeService service = new PretranscodeService(fileService, List.of("mp3", " OPUS", "xyz", "wav"));
+        when(fileService.requestConversion(any())).thenReturn(CompletableFuture.completedFuture(original));
+
+        // Act
+        service.onAudioUploaded(new AudioUploadedEvent(original));
+
+        // Assert
+        assertEquals(Set.of("mp3", "opus", "wav"), service.getFormats());
+        verify(fileService).requestConversion(new ConversionKey(100L, 200L, 999L, "opus"));
+        verify(fileService).requestConversion(new ConversionKey(100L, 200L, 999L, "wav"));
+        verifyNoMoreInteractions(fileService);
+        assertEquals(2, service.getSubmitted());
+        assertEquals(2, service.getCompleted());
+    }
+
+    @Test
+    void shouldCountFailedAndRejectedConversions() {
+        // Arrange
+        PretranscodeService service = new PretranscodeService(fileService, List.of("opus", "wav"));
+        when(fileService.requestConversion(new ConversionKey(100L, 200L, 999L, "opus")))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("ffmpeg failed")));
+        when(fileService.requestConversion(new ConversionKey(100L, 200L, 999L, "wav")))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new ConversionRejectedException("Conversion queue is full", HttpStatus.SERVICE_UNAVAILABLE, 5)));
+
+        // Act
+        service.onAudioUploaded(new AudioUploadedEvent(original));
+
+        // Assert
+        assertEquals(0, service.getCompleted());
+        assertEquals(1, service.getFailed());
+        assertEquals(1, service.getRejected());
+    }
+}
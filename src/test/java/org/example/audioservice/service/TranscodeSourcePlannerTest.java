@@ -0,0 +1,108 @@
+package org.example.audioservice.service;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.model.FileEntity;
+import org.example.audioservice.storage.BlobStore;
+import org.example.audioservice.storage.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TranscodeSourcePlannerTest {
+
+    @TempDir
+    Path storage;
+
+    private final BlobStore blobStore = mock(BlobStore.class);
+
+    private TranscodeSourcePlanner planner;
+
+    @BeforeEach
+    void setup() {
+        planner = new TranscodeSourcePlanner(blobStore, new LocalStorageBackend(storage.toString()), new AudioFormatConstants());
+    }
+
+    @Test
+    void shouldPreferMezzanineOverLossyOriginal() throws Exception {
+        // Arrange
+        FileEntity original = file(1L, "mp3", "abcd");
+        Path mezzanine = Files.write(storage.resolve("mezzanine.flac"), new byte[]{1});
+        when(blobStore.findMezzanine("abcd")).thenReturn(Optional.of(BlobEntity.builder().filePath(mezzanine.toString()).build()));
+
+        // Act
+        TranscodeSourcePlanner.TranscodeSource source = planner.plan(original, List.of(original, file(2L, "wav", "abcd")), "ogg");
+
+        // Assert
+        assertEquals(mezzanine.toString(), source.location());
+        assertEquals("mezzanine", source.kind());
+    }
+
+    @Test
+    void shouldDecodeLosslessDerivativeButNeverLossyOne() throws Exception {
+        // Arrange
+        FileEntity original = file(1L, "mp3", "abcd");
+        FileEntity ogg = file(2L, "ogg", "abcd");
+        FileEntity flac = file(3L, "flac", "abcd");
+        FileEntity evictedWav = file(4L, "wav", "abcd");
+        Files.delete(Path.of(evictedWav.getFilePath()));
+
+        // Act & Assert
+        assertEquals(flac.getFilePath(), planner.plan(original, List.of(original, ogg, evictedWav, flac), "aac").location());
+        assertEquals(original.getFilePath(), planner.plan(original, List.of(original, ogg), "aac").location());
+    }
+
+    @Test
+    void shouldKeepPcmOriginal() throws Exception {
+        // Arrange
+        FileEntity original = file(1L, "wav", "abcd");
+
+        // Act
+        TranscodeSourcePlanner.TranscodeSource source = planner.plan(original, List.of(original, file(2L, "flac", "abcd")), "mp3");
+
+        // Assert
+        assertEquals(original.getFilePath(), source.location());
+        assertEquals("original", source.kind());
+    }
+
+    @Test
+    void shouldCopyStreamThatAlreadyMatchesTarget() throws Exception {
+        // Arrange
+        FileEntity original = file(1L, "ogg", "abcd");
+        original.setCodec("opus");
+        original.setSampleRate(48000);
+        original.setChannels(2);
+        original.setBitrate(64000L);
+
+        // Act
+        TranscodeSourcePlanner.TranscodeSource toOpus = planner.plan(original, List.of(original), "opus");
+        original.setBitrate(256000L);
+        TranscodeSourcePlanner.TranscodeSource aboveTargetBitrate = planner.plan(original, List.of(original), "opus");
+
+        // Assert
+        assertTrue(toOpus.streamCopy());
+        assertEquals(original.getFilePath(), toOpus.location());
+        assertFalse(aboveTargetBitrate.streamCopy());
+    }
+
+    private FileEntity file(Long id, String format, String contentHash) throws Exception {
+        Path path = Files.write(storage.resolve(id + "." + format), new byte[]{1});
+        return FileEntity.builder()
+                .id(id)
+                .format(format)
+                .filePath(path.toString())
+                .contentHash(contentHash)
+                .build();
+    }
+}
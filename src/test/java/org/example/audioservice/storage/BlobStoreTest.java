@@ -0,0 +1,147 @@
+package org.example.audioservice.storage;
+
+import org.example.audioservice.constant.AudioFormatConstants;
+import org.example.audioservice.model.BlobEntity;
+import org.example.audioservice.repository.BlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs without the test transaction, files are only deleted once a release commits.
+ */
+@DataJpaTest
+@Import({BlobStore.class, LocalStorageBackend.class, AudioFormatConstants.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BlobStoreTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private BlobRepository blobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) throws IOException {
+        Path uploadDir = Files.createTempDirectory("blob-store-test");
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blobRepository.deleteAll();
+    }
+
+    @Test
+    void shouldStoreIdenticalContentOnceAndDeleteItWithTheLastReference() throws Exception {
+        // GIVEN
+        Path first = incoming("same bytes");
+        Path second = incoming("same bytes");
+
+        // WHEN
+        BlobEntity stored = blobStore.store(first, HASH, "mp3", null);
+        BlobEntity deduplicated = blobStore.store(second, HASH, "mp3", null);
+
+        // THEN
+        Path blobPath = Paths.get(stored.getFilePath());
+        assertThat(deduplicated.getFilePath()).isEqualTo(stored.getFilePath());
+        assertThat(blobPath.toString()).contains("blobs/ab/ab/" + HASH + ".mp3");
+        assertThat(blobRepository.findById(HASH).orElseThrow().getRefCount()).isEqualTo(2L);
+        assertThat(first).doesNotExist();
+        assertThat(second).doesNotExist();
+
+        // WHEN
+        blobStore.release(HASH);
+
+        // THEN
+        assertThat(blobPath).exists();
+
+        // WHEN
+        blobStore.release(HASH);
+
+        // THEN
+        assertThat(blobRepository.findById(HASH)).isEmpty();
+        assertThat(blobPath).doesNotExist();
+    }
+
+    @Test
+    void shouldKeyDerivativesBySourceAndEncoderSettings() throws Exception {
+        // GIVEN
+        String derivativeKey = blobStore.derivativeKey(HASH, "wav");
+        blobStore.store(incoming("converted"), derivativeKey, "wav", HASH);
+
+        // WHEN
+        BlobEntity reused = blobStore.acquire(blobStore.derivativeKey(HASH, "wav")).orElseThrow();
+
+        // THEN
+        assertThat(reused.getRefCount()).isEqualTo(2L);
+        assertThat(reused.getSourceHash()).isEqualTo(HASH);
+        assertThat(blobStore.derivativeKey(HASH, "mp3")).isNotEqualTo(derivativeKey);
+        assertThat(blobStore.acquire(blobStore.derivativeKey(HASH, "mp3"))).isEmpty();
+    }
+
+    @Test
+    void shouldDeleteMezzanineWithItsOriginal() throws Exception {
+        // GIVEN
+        blobStore.store(incoming("original"), HASH, "mp3", null);
+        BlobEntity mezzanine = blobStore.storeMezzanine(incoming("lossless"), HASH, "flac");
+
+        // WHEN
+        blobStore.release(HASH);
+
+        // THEN
+        assertThat(mezzanine.getRole()).isEqualTo(BlobEntity.ROLE_MEZZANINE);
+        assertThat(blobRepository.findById(mezzanine.getBlobKey())).isEmpty();
+        assertThat(Paths.get(mezzanine.getFilePath())).doesNotExist();
+        assertThat(blobStore.findMezzanine(HASH)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepFileOfReleaseThatRolledBack() throws Exception {
+        // GIVEN
+        BlobEntity stored = blobStore.store(incoming("original"), HASH, "mp3", null);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // WHEN
+        transaction.executeWithoutResult(status -> {
+            blobStore.release(HASH);
+            status.setRollbackOnly();
+        });
+
+        // THEN
+        assertThat(Paths.get(stored.getFilePath())).exists();
+        assertThat(blobRepository.findById(HASH).orElseThrow().getRefCount()).isEqualTo(1L);
+
+        // WHEN
+        blobStore.release(HASH);
+
+        // THEN
+        assertThat(Paths.get(stored.getFilePath())).doesNotExist();
+    }
+
+    private Path incoming(String content) throws IOException {
+        Path path = blobStore.newIncomingPath("tmp");
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.audioservice.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageBackendTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void shouldMoveFileUnderKeyAndReadRanges() throws Exception {
+        // Arrange
+        LocalStorageBackend backend = new LocalStorageBackend(uploadDir.toString());
+        Path source = Files.write(uploadDir.resolve("incoming.mp3"), new byte[]{1, 2, 3, 4, 5, 6});
+
+        // Act
+        String location = backend.put("blobs/ab/cd/abcd.mp3", source);
+
+        // Assert
+        assertFalse(Files.exists(source));
+        assertEquals(uploadDir.resolve("blobs/ab/cd/abcd.mp3").toAbsolutePath().toString(), location);
+        assertEquals(6, backend.stat(location).size());
+        assertEquals(Path.of(location), backend.localPath(location));
+        try (InputStream in = backend.openRange(location, 2, 3)) {
+            assertArrayEquals(new byte[]{3, 4, 5}, in.readAllBytes());
+        }
+
+        backend.delete(location);
+        assertNull(backend.stat(location));
+        assertFalse(backend.exists(location));
+    }
+
+    @Test
+    void shouldRejectKeyOutsideUploadDirectory() throws Exception {
+        // Arrange
+        LocalStorageBackend backend = new LocalStorageBackend(uploadDir.resolve("uploads").toString());
+        Path source = Files.write(uploadDir.resolve("incoming.mp3"), new byte[]{1});
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> backend.put("../escaped.mp3", source));
+        assertTrue(Files.exists(source));
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.audioservice.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class S3StorageBackendTest {
+
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    @TempDir
+    Path uploadDir;
+
+    private final S3Client s3 = mock(S3Client.class);
+
+    @Test
+    void shouldUploadLargeFileInPartsUnderPrefix() throws Exception {
+        // Arrange
+        S3StorageBackend backend = new S3StorageBackend(s3, "audio", "prod", PART_SIZE, uploadDir.toString());
+        Path source = Files.write(uploadDir.resolve("incoming.wav"), new byte[(int) (2 * PART_SIZE + 10)]);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        List<Long> partLengths = new ArrayList<>();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest part = invocation.getArgument(0);
+            partLengths.add(part.contentLength());
+            return UploadPartResponse.builder().eTag("etag-" + part.partNumber()).build();
+        });
+
+        // Act
+        String location = backend.put("blobs/ab/cd/abcd.wav", source);
+
+        // Assert
+        assertEquals("s3://audio/prod/blobs/ab/cd/abcd.wav", location);
+        assertEquals(List.of(PART_SIZE, PART_SIZE, 10L), partLengths);
+        verify(s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void shouldAbortMultipartUploadAndKeepSourceWhenPartFails() throws Exception {
+        // Arrange
+        S3StorageBackend backend = new S3StorageBackend(s3, "audio", "", PART_SIZE, uploadDir.toString());
+        Path source = Files.write(uploadDir.resolve("incoming.wav"), new byte[(int) (PART_SIZE + 1)]);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> backend.put("blobs/ab/cd/abcd.wav", source));
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    void shouldReportMissingObjectAsAbsent() throws Exception {
+        // Arrange
+        S3StorageBackend backend = new S3StorageBackend(s3, "audio", "", PART_SIZE, uploadDir.toString());
+        when(s3.headObject(any(HeadObjectRequest.class)))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).message("Not Found").build());
+
+        // Act & Assert
+        assertNull(backend.stat("s3://audio/blobs/ab/cd/abcd.mp3"));
+        assertNull(backend.localPath("s3://audio/blobs/ab/cd/abcd.mp3"));
+    }
+
+    @Test
+    void shouldReadLocalLocationsFromDisk() throws Exception {
+        // Arrange
+        S3StorageBackend backend = new S3StorageBackend(s3, "audio", "", PART_SIZE, uploadDir.toString());
+        Path legacy = Files.write(uploadDir.resolve("legacy.mp3"), new byte[]{1, 2, 3});
+
+        // Act
+        StorageBackend.StoredObject stored = backend.stat(legacy.toString());
+
+        // Assert
+        assertEquals(3, stored.size());
+        assertEquals(legacy, backend.localPath(legacy.toString()));
+        verifyNoInteractions(s3);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.audioservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldWriteReadableZip() throws Exception {
+        // Arrange
+        Path file = Files.write(tempDir.resolve("a.mp3"), new byte[]{1, 2, 3, 4, 5});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        ArchiveWriter writer = ArchiveWriter.open("zip", out);
+        try (InputStream content = Files.newInputStream(file)) {
+            writer.putFile("1.mp3", content, 5, 1_700_000_000_000L);
+        }
+        writer.putBytes("errors.txt", "2: missing\n".getBytes(StandardCharsets.UTF_8));
+        writer.finish();
+
+        // Assert
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("1.mp3", entry.getName());
+            assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, zip.readAllBytes());
+            assertEquals("errors.txt", zip.getNextEntry().getName());
+            assertEquals("2: missing\n", new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void shouldWriteUstarBlocksWithValidChecksum() throws Exception {
+        // Arrange
+        Path file = Files.write(tempDir.resolve("a.wav"), new byte[700]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        ArchiveWriter writer = ArchiveWriter.open("tar", out);
+        try (InputStream content = Files.newInputStream(file)) {
+            writer.putFile("1.wav", content, 700, 1_700_000_000_000L);
+        }
+        writer.finish();
+
+        // Assert
+        byte[] tar = out.toByteArray();
+        // header, two content blocks, two end blocks
+        assertEquals(5 * 512, tar.length);
+        byte[] header = Arrays.copyOf(tar, 512);
+        assertEquals("1.wav", new String(header, 0, 5, StandardCharsets.US_ASCII));
+        assertEquals(700, Long.parseLong(new String(header, 124, 11, StandardCharsets.US_ASCII), 8));
+        assertEquals("ustar", new String(header, 257, 5, StandardCharsets.US_ASCII));
+
+        long stored = Long.parseLong(new String(header, 148, 6, StandardCharsets.US_ASCII), 8);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long computed = 0;
+        for (byte b : header) {
+            computed += b & 0xFF;
+        }
+        assertEquals(computed, stored);
+    }
+}